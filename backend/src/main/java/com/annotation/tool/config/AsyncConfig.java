@@ -0,0 +1,125 @@
+package com.annotation.tool.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuration of background executors
+ * 
+ * Text extraction runs on a bounded worker pool so that large uploads
+ * do not hold request threads while PDFBox/POI parse the file.
+ * Scheduled maintenance such as upload store reconciliation and the purge
+ * of soft-deleted documents is enabled here.
+ */
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+    
+    @Value("${app.extraction.pool-size:2}")
+    private int extractionPoolSize;
+    
+    @Value("${app.extraction.queue-capacity:100}")
+    private int extractionQueueCapacity;
+    
+    @Value("${app.extraction.pdf.parallelism:0}")
+    private int pdfParallelism;
+    
+    @Value("${app.extraction.archive.parallelism:0}")
+    private int archiveParallelism;
+    
+    @Value("${app.documents.purge.queue-capacity:1000}")
+    private int purgeQueueCapacity;
+    
+    @Value("${app.annotations.export.concurrency:2}")
+    private int exportConcurrency;
+    
+    @Value("${app.annotations.export.queue-capacity:10}")
+    private int exportQueueCapacity;
+    
+    /**
+     * Executor for document text extraction jobs
+     */
+    @Bean(name = "documentExtractionExecutor")
+    public ThreadPoolTaskExecutor documentExtractionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(extractionPoolSize);
+        executor.setMaxPoolSize(extractionPoolSize);
+        executor.setQueueCapacity(extractionQueueCapacity);
+        executor.setThreadNamePrefix("extraction-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Executor for extracting the entries of bulk archive uploads
+     * 
+     * A parallelism of 0 uses one worker per available core. When the short queue
+     * is full the reading thread extracts the entry itself, which throttles how
+     * far reading the archive runs ahead of extraction.
+     */
+    @Bean(name = "archiveExtractionExecutor")
+    public ThreadPoolTaskExecutor archiveExtractionExecutor() {
+        int parallelism = archiveParallelism > 0 ? archiveParallelism : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("archive-extraction-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Single worker purging soft-deleted documents
+     * 
+     * Purges are batched deletes that would only contend with each other on more
+     * threads; documents that do not fit in the queue are left to the scheduled sweep.
+     */
+    @Bean(name = "documentPurgeExecutor")
+    public ThreadPoolTaskExecutor documentPurgeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(purgeQueueCapacity);
+        executor.setThreadNamePrefix("document-purge-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Executor writing streamed responses such as annotation exports
+     * 
+     * Each export holds a database connection while it streams, so only a few
+     * run at once and the others wait in the queue.
+     */
+    @Bean(name = "streamingResponseExecutor")
+    public ThreadPoolTaskExecutor streamingResponseExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(exportConcurrency);
+        executor.setMaxPoolSize(exportConcurrency);
+        executor.setQueueCapacity(exportQueueCapacity);
+        executor.setThreadNamePrefix("streaming-response-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Fork-join pool for stripping page ranges of large PDFs in parallel
+     * 
+     * A parallelism of 0 uses one worker per available core.
+     */
+    @Bean(name = "pdfExtractionPool", destroyMethod = "shutdown")
+    public ForkJoinPool pdfExtractionPool() {
+        int parallelism = pdfParallelism > 0 ? pdfParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+}
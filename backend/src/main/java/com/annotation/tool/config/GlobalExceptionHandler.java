@@ -1,7 +1,9 @@
 package com.annotation.tool.config;
 
+import com.annotation.tool.service.IngestionAdmissionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -77,4 +79,21 @@ public class GlobalExceptionHandler {
 
         return new ResponseEntity<>(body, HttpStatus.PAYLOAD_TOO_LARGE);
     }
+
+    @ExceptionHandler(IngestionAdmissionService.AdmissionRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleAdmissionRejectedException(IngestionAdmissionService.AdmissionRejectedException ex, WebRequest request) {
+        logger.warn("Ingestion request rejected: {} at {}", ex.getMessage(), request.getDescription(false));
+        
+        HttpStatus status = HttpStatus.valueOf(ex.getStatus());
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", ex.getMessage());
+        body.put("path", request.getDescription(false).replace("uri=", ""));
+
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(body);
+    }
 }
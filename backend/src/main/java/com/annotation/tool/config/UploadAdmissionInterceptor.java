@@ -0,0 +1,55 @@
+package com.annotation.tool.config;
+
+import com.annotation.tool.service.IngestionAdmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Admission interceptor for upload endpoints
+ * 
+ * Multipart requests are resolved lazily, so this runs before the body is
+ * parsed and rejected uploads never spool a byte to disk. Rejections are
+ * thrown to the global exception handler, which answers 429/503 with
+ * Retry-After.
+ */
+@Component
+public class UploadAdmissionInterceptor implements HandlerInterceptor {
+    
+    private static final String ADMITTED_BYTES_ATTRIBUTE = UploadAdmissionInterceptor.class.getName() + ".admittedBytes";
+    
+    @Autowired
+    private IngestionAdmissionService admissionService;
+    
+    @Value("${spring.servlet.multipart.max-request-size:50MB}")
+    private DataSize maxRequestSize;
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        
+        if (request.getRequestURI().endsWith("/upload")) {
+            admissionService.checkExtractionBacklog();
+        }
+        
+        // Chunked requests are charged the largest size they may have
+        long bytes = request.getContentLengthLong() >= 0 ? request.getContentLengthLong() : maxRequestSize.toBytes();
+        admissionService.admitUpload(bytes);
+        request.setAttribute(ADMITTED_BYTES_ATTRIBUTE, bytes);
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object bytes = request.getAttribute(ADMITTED_BYTES_ATTRIBUTE);
+        if (bytes != null) {
+            admissionService.releaseUpload((Long) bytes);
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package com.annotation.tool.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.filter.CommonsRequestLoggingFilter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 /**
  * Web configuration for the annotation tool
  * 
- * Configures CORS settings to allow frontend communication
- * and enables HTTP request logging
+ * Configures CORS settings to allow frontend communication,
+ * admission control for uploads, streamed responses and HTTP request logging
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -19,16 +26,42 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${app.cors.allowed-origins:http://localhost:3000}")
     private String allowedOrigins;
     
+    @Value("${app.annotations.export.timeout:1h}")
+    private Duration streamingTimeout;
+    
+    @Autowired
+    private UploadAdmissionInterceptor uploadAdmissionInterceptor;
+    
+    @Autowired
+    @Qualifier("streamingResponseExecutor")
+    private ThreadPoolTaskExecutor streamingResponseExecutor;
+    
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
                 .allowedOrigins(allowedOrigins.split(","))
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                .allowedMethods("GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("ETag", "Last-Modified", "Accept-Ranges", "Content-Range", "Content-Disposition")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
     
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(uploadAdmissionInterceptor)
+                .addPathPatterns("/api/documents/upload", "/api/documents/upload-archive");
+    }
+    
+    /**
+     * Write streamed responses on their own bounded pool, allowing long exports
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingResponseExecutor);
+        configurer.setDefaultTimeout(streamingTimeout.toMillis());
+    }
+    
     /**
      * Enable detailed HTTP request logging
      */
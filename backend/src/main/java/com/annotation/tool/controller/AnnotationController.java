@@ -1,16 +1,27 @@
 package com.annotation.tool.controller;
 
 import com.annotation.tool.dto.AnnotationDTO;
+import com.annotation.tool.dto.BulkAnnotationRequestDTO;
+import com.annotation.tool.dto.BulkAnnotationResultDTO;
+import com.annotation.tool.repository.AnnotationRepositoryCustom;
+import com.annotation.tool.service.AnnotationExportService;
+import com.annotation.tool.service.AnnotationIndexService;
 import com.annotation.tool.service.AnnotationService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST Controller for Annotation management
@@ -25,67 +36,139 @@ public class AnnotationController {
     @Autowired
     private AnnotationService annotationService;
 
+    @Autowired
+    private AnnotationIndexService annotationIndexService;
+
+    @Autowired
+    private AnnotationExportService annotationExportService;
+
     /**
-     * Get all annotations
+     * Get a page of all annotations
+     * 
+     * Every annotation read takes an optional contextLength, the characters of
+     * context returned on each side (0 for none); it defaults to the configured length.
+     * Listings sort by createdAt or startPosition; pass nextCursor back as cursor
+     * for the following page.
      */
     @GetMapping
-    public ResponseEntity<List<AnnotationDTO>> getAllAnnotations() {
-        List<AnnotationDTO> annotations = annotationService.getAllAnnotations();
-        return ResponseEntity.ok(annotations);
+    public ResponseEntity<?> getAllAnnotations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return ResponseEntity.ok(annotationService.getAllAnnotations(cursor, limit, sort, direction, contextLength));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
      * Get annotation by ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<AnnotationDTO> getAnnotationById(@PathVariable UUID id) {
-        return annotationService.getAnnotationById(id)
-                .map(annotation -> ResponseEntity.ok(annotation))
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getAnnotationById(@PathVariable UUID id,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return annotationService.getAnnotationById(id, contextLength)
+                    .<ResponseEntity<?>>map(annotation -> ResponseEntity.ok(annotation))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
-     * Get annotations for a specific document
+     * Get a page of the annotations of a specific document, by position unless sorted otherwise
      */
     @GetMapping("/document/{documentId}")
-    public ResponseEntity<List<AnnotationDTO>> getAnnotationsByDocumentId(@PathVariable UUID documentId) {
-        List<AnnotationDTO> annotations = annotationService.getAnnotationsByDocumentId(documentId);
-        return ResponseEntity.ok(annotations);
+    public ResponseEntity<?> getAnnotationsByDocumentId(
+            @PathVariable UUID documentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "startPosition") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return ResponseEntity.ok(annotationService.getAnnotationsByDocumentId(
+                    documentId, cursor, limit, sort, direction, contextLength));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
-     * Get annotations with a specific label
+     * Get a page of the annotations with a specific label
      */
     @GetMapping("/label/{labelId}")
-    public ResponseEntity<List<AnnotationDTO>> getAnnotationsByLabelId(@PathVariable UUID labelId) {
-        List<AnnotationDTO> annotations = annotationService.getAnnotationsByLabelId(labelId);
-        return ResponseEntity.ok(annotations);
+    public ResponseEntity<?> getAnnotationsByLabelId(
+            @PathVariable UUID labelId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return ResponseEntity.ok(annotationService.getAnnotationsByLabelId(
+                    labelId, cursor, limit, sort, direction, contextLength));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
-     * Get annotations by document and label
+     * Get a page of annotations by document and label, by position unless sorted otherwise
      */
     @GetMapping("/document/{documentId}/label/{labelId}")
-    public ResponseEntity<List<AnnotationDTO>> getAnnotationsByDocumentAndLabel(
+    public ResponseEntity<?> getAnnotationsByDocumentAndLabel(
             @PathVariable UUID documentId,
-            @PathVariable UUID labelId) {
-        List<AnnotationDTO> annotations = annotationService.getAnnotationsByDocumentAndLabel(documentId, labelId);
-        return ResponseEntity.ok(annotations);
+            @PathVariable UUID labelId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "startPosition") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return ResponseEntity.ok(annotationService.getAnnotationsByDocumentAndLabel(
+                    documentId, labelId, cursor, limit, sort, direction, contextLength));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
      * Create a new annotation
+     * 
+     * The overlap policy (allow, reject or merge) overrides the configured one for
+     * duplicates and heavy overlaps of annotations with the same label.
      */
     @PostMapping
-    public ResponseEntity<?> createAnnotation(@Valid @RequestBody AnnotationDTO annotationDTO) {
+    public ResponseEntity<?> createAnnotation(@Valid @RequestBody AnnotationDTO annotationDTO,
+            @RequestParam(required = false) String overlapPolicy) {
         try {
-            AnnotationDTO createdAnnotation = annotationService.createAnnotation(annotationDTO);
+            AnnotationDTO createdAnnotation = annotationService.createAnnotation(annotationDTO, overlapPolicy);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdAnnotation);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
+    /**
+     * Create, update and delete many annotations in one request
+     * 
+     * Each operation is reported in the result; invalid ones do not fail the others.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<?> applyBulk(@RequestBody BulkAnnotationRequestDTO request) {
+        try {
+            BulkAnnotationResultDTO result = annotationService.applyBulk(request);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Update an existing annotation
      */
@@ -114,24 +197,130 @@ public class AnnotationController {
     }
 
     /**
-     * Search annotations by selected text
+     * Search a page of annotations by selected text
      */
     @GetMapping("/search")
-    public ResponseEntity<List<AnnotationDTO>> searchAnnotations(@RequestParam String query) {
-        List<AnnotationDTO> annotations = annotationService.searchAnnotationsByText(query);
-        return ResponseEntity.ok(annotations);
+    public ResponseEntity<?> searchAnnotations(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return ResponseEntity.ok(annotationService.searchAnnotationsByText(
+                    query, cursor, limit, sort, direction, contextLength));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
-     * Get annotations within a specific position range
+     * Get a page of annotations within a specific position range, by position unless sorted otherwise
      */
     @GetMapping("/document/{documentId}/range")
-    public ResponseEntity<List<AnnotationDTO>> getAnnotationsInRange(
+    public ResponseEntity<?> getAnnotationsInRange(
             @PathVariable UUID documentId,
             @RequestParam int startPos,
-            @RequestParam int endPos) {
-        List<AnnotationDTO> annotations = annotationService.getAnnotationsInRange(documentId, startPos, endPos);
-        return ResponseEntity.ok(annotations);
+            @RequestParam int endPos,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "startPosition") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return ResponseEntity.ok(annotationService.getAnnotationsInRange(
+                    documentId, startPos, endPos, cursor, limit, sort, direction, contextLength));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Export annotations as newline-delimited JSON in creation order, optionally
+     * filtered by document, label and creation time in [createdFrom, createdBefore)
+     * 
+     * Lines are streamed as they are read, gzip compressed when the client accepts gzip.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAnnotations(
+            @RequestParam(required = false) UUID documentId,
+            @RequestParam(required = false) UUID labelId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // An invalid filter is left to GlobalExceptionHandler, as the body here can only be a stream
+        AnnotationRepositoryCustom.ListingQuery query = annotationExportService.createQuery(
+                documentId, labelId, createdFrom, createdBefore);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                annotationExportService.export(query, compressed);
+                compressed.finish();
+            } else {
+                annotationExportService.export(query, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"annotations.ndjson\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Get the spans of a document's annotations overlapping [start, end), or with
+     * contained=true lying within [start, end], from the in-memory index
+     */
+    @GetMapping("/document/{documentId}/spans")
+    public ResponseEntity<?> getSpans(
+            @PathVariable UUID documentId,
+            @RequestParam int start,
+            @RequestParam int end,
+            @RequestParam(defaultValue = "false") boolean contained) {
+        try {
+            return annotationIndexService.getSpans(documentId, start, end, contained)
+                    .<ResponseEntity<?>>map(spans -> ResponseEntity.ok(spans))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the spans of a document's annotations covering the character at a position
+     */
+    @GetMapping("/document/{documentId}/spans/at")
+    public ResponseEntity<?> getSpansAt(@PathVariable UUID documentId, @RequestParam int position) {
+        try {
+            return annotationIndexService.getSpansAt(documentId, position)
+                    .<ResponseEntity<?>>map(spans -> ResponseEntity.ok(spans))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the spans of a document's annotations closest to a position, those covering it first
+     */
+    @GetMapping("/document/{documentId}/spans/nearest")
+    public ResponseEntity<?> getNearestSpans(
+            @PathVariable UUID documentId,
+            @RequestParam int position,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return annotationIndexService.getNearestSpans(documentId, position, limit)
+                    .<ResponseEntity<?>>map(spans -> ResponseEntity.ok(spans))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
@@ -1,15 +1,26 @@
 package com.annotation.tool.controller;
 
+import com.annotation.tool.dto.ArchiveUploadResultDTO;
 import com.annotation.tool.dto.DocumentDTO;
+import com.annotation.tool.dto.DocumentSummaryDTO;
+import com.annotation.tool.dto.ExtractionJobDTO;
+import com.annotation.tool.service.DocumentArchiveService;
+import com.annotation.tool.service.DocumentExtractionService;
+import com.annotation.tool.service.DocumentPositionService;
 import com.annotation.tool.service.DocumentService;
+import com.annotation.tool.util.FileDownloadUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -25,13 +36,35 @@ public class DocumentController {
     @Autowired
     private DocumentService documentService;
 
+    @Autowired
+    private DocumentExtractionService documentExtractionService;
+
+    @Autowired
+    private DocumentArchiveService documentArchiveService;
+
+    @Autowired
+    private DocumentPositionService documentPositionService;
+
+    @Autowired
+    private FileDownloadUtil fileDownloadUtil;
+
     /**
-     * Get all documents
+     * Get a page of document summaries
+     * 
+     * Summaries carry no content; sort by uploadDate, name or fileType and
+     * pass nextCursor back as cursor for the following page
      */
     @GetMapping
-    public ResponseEntity<List<DocumentDTO>> getAllDocuments() {
-        List<DocumentDTO> documents = documentService.getAllDocuments();
-        return ResponseEntity.ok(documents);
+    public ResponseEntity<?> getAllDocuments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "uploadDate") String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+        try {
+            return ResponseEntity.ok(documentService.getDocumentSummaries(cursor, limit, sort, direction));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
@@ -46,24 +79,117 @@ public class DocumentController {
 
     /**
      * Get document with annotations by ID
+     * 
+     * contextLength sets the characters of annotation context on each side (0 for none)
      */
     @GetMapping("/{id}/with-annotations")
-    public ResponseEntity<DocumentDTO> getDocumentWithAnnotationsById(@PathVariable UUID id) {
-        return documentService.getDocumentWithAnnotationsById(id)
-                .map(document -> ResponseEntity.ok(document))
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getDocumentWithAnnotationsById(@PathVariable UUID id,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return documentService.getDocumentWithAnnotationsById(id, contextLength)
+                    .<ResponseEntity<?>>map(document -> ResponseEntity.ok(document))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Download the original uploaded file
+     * 
+     * Supports Range and If-Range requests and conditional requests against the
+     * ETag, which is the SHA-256 of the file
+     */
+    @GetMapping("/{id}/file")
+    public ResponseEntity<?> downloadOriginalFile(@PathVariable UUID id, ServletWebRequest request) throws IOException {
+        Optional<FileDownloadUtil.DownloadableFile> file = documentService.getOriginalFile(id);
+        if (file.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return fileDownloadUtil.download(file.get(), request);
+    }
+
+    /**
+     * Get a window of document content
+     * 
+     * Length defaults to the configured window length; offsets are character positions
+     */
+    @GetMapping("/{id}/content")
+    public ResponseEntity<?> getDocumentContent(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) Integer length) {
+        try {
+            return documentService.getDocumentContent(id, offset, length)
+                    .<ResponseEntity<?>>map(content -> ResponseEntity.ok(content))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get a window of document content with the annotations overlapping it
+     */
+    @GetMapping("/{id}/viewport")
+    public ResponseEntity<?> getDocumentViewport(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) Integer length,
+            @RequestParam(required = false) Integer contextLength) {
+        try {
+            return documentService.getDocumentViewport(id, offset, length, contextLength)
+                    .<ResponseEntity<?>>map(viewport -> ResponseEntity.ok(viewport))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Locate a character offset by line, column, paragraph and page
+     */
+    @GetMapping("/{id}/position")
+    public ResponseEntity<?> getTextPosition(@PathVariable UUID id, @RequestParam int offset) {
+        try {
+            return documentPositionService.getPosition(id, offset)
+                    .<ResponseEntity<?>>map(position -> ResponseEntity.ok(position))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the character offset range of a page (1-based)
+     * 
+     * PDF text is split into pages at form feeds; other documents are a single page
+     */
+    @GetMapping("/{id}/pages/{page}")
+    public ResponseEntity<?> getPageRange(@PathVariable UUID id, @PathVariable int page) {
+        try {
+            return documentPositionService.getPageRange(id, page)
+                    .<ResponseEntity<?>>map(range -> ResponseEntity.ok(range))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
      * Upload a new document
+     * 
+     * Returns 202 Accepted with the extraction job; poll /jobs/{id} for completion
      */
     @PostMapping("/upload")
     public ResponseEntity<?> uploadDocument(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "name", required = false) String documentName) {
         try {
-            DocumentDTO uploadedDocument = documentService.uploadDocument(file, documentName);
-            return ResponseEntity.status(HttpStatus.CREATED).body(uploadedDocument);
+            ExtractionJobDTO job = documentService.uploadDocument(file, documentName);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/api/documents/jobs/" + job.getId()))
+                    .body(job);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
@@ -72,6 +198,44 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Upload a .zip, .tar, .tar.gz or .tgz archive of documents
+     * 
+     * Returns a manifest with the outcome of every entry
+     */
+    @PostMapping("/upload-archive")
+    public ResponseEntity<?> uploadArchive(@RequestParam("file") MultipartFile archive) {
+        try {
+            ArchiveUploadResultDTO result = documentArchiveService.uploadArchive(archive);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to upload archive: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the status of a text extraction job
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ExtractionJobDTO> getExtractionJob(@PathVariable UUID id) {
+        return documentExtractionService.getJob(id)
+                .map(job -> ResponseEntity.ok(job))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Cancel a queued or running text extraction job
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<ExtractionJobDTO> cancelExtractionJob(@PathVariable UUID id) {
+        return documentExtractionService.cancelJob(id)
+                .map(job -> ResponseEntity.ok(job))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Update document name
      */
@@ -108,26 +272,42 @@ public class DocumentController {
      * Get documents by file type
      */
     @GetMapping("/by-type/{fileType}")
-    public ResponseEntity<List<DocumentDTO>> getDocumentsByFileType(@PathVariable String fileType) {
-        List<DocumentDTO> documents = documentService.getDocumentsByFileType(fileType);
-        return ResponseEntity.ok(documents);
+    public ResponseEntity<?> getDocumentsByFileType(
+            @PathVariable String fileType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "uploadDate") String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+        try {
+            return ResponseEntity.ok(documentService.getDocumentsByFileType(fileType, cursor, limit, sort, direction));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
      * Search documents by name
      */
     @GetMapping("/search")
-    public ResponseEntity<List<DocumentDTO>> searchDocuments(@RequestParam String query) {
-        List<DocumentDTO> documents = documentService.searchDocumentsByName(query);
-        return ResponseEntity.ok(documents);
+    public ResponseEntity<?> searchDocuments(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "uploadDate") String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+        try {
+            return ResponseEntity.ok(documentService.searchDocumentsByName(query, cursor, limit, sort, direction));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
      * Search documents by content
      */
     @GetMapping("/search-content")
-    public ResponseEntity<List<DocumentDTO>> searchDocumentsByContent(@RequestParam String query) {
-        List<DocumentDTO> documents = documentService.searchDocumentsByContent(query);
+    public ResponseEntity<List<DocumentSummaryDTO>> searchDocumentsByContent(@RequestParam String query) {
+        List<DocumentSummaryDTO> documents = documentService.searchDocumentsByContent(query);
         return ResponseEntity.ok(documents);
     }
 
@@ -153,8 +333,15 @@ public class DocumentController {
      * Get documents without annotations
      */
     @GetMapping("/without-annotations")
-    public ResponseEntity<List<DocumentDTO>> getDocumentsWithoutAnnotations() {
-        List<DocumentDTO> documents = documentService.getDocumentsWithoutAnnotations();
-        return ResponseEntity.ok(documents);
+    public ResponseEntity<?> getDocumentsWithoutAnnotations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "uploadDate") String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+        try {
+            return ResponseEntity.ok(documentService.getDocumentsWithoutAnnotations(cursor, limit, sort, direction));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 }
@@ -0,0 +1,45 @@
+package com.annotation.tool.controller;
+
+import com.annotation.tool.dto.StorageReconciliationDTO;
+import com.annotation.tool.service.StorageReconciliationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST Controller for maintenance of the upload store
+ */
+@RestController
+@RequestMapping("/api/storage")
+public class StorageController {
+
+    @Autowired
+    private StorageReconciliationService storageReconciliationService;
+
+    /**
+     * Get the report of the last reconciliation of stored files with documents
+     */
+    @GetMapping("/reconciliation")
+    public ResponseEntity<StorageReconciliationDTO> getLastReconciliation() {
+        return storageReconciliationService.getLastReport()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Reconcile stored files with documents now, deleting orphaned files unless dryRun is set
+     */
+    @PostMapping("/reconciliation")
+    public ResponseEntity<?> reconcile(@RequestParam(defaultValue = "true") boolean dryRun) {
+        Optional<StorageReconciliationDTO> report = storageReconciliationService.reconcile(dryRun);
+        if (report.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "A reconciliation is already running"));
+        }
+        return ResponseEntity.ok(report.get());
+    }
+}
@@ -12,6 +12,52 @@ import java.util.UUID;
  */
 public class AnnotationDTO {
     
+    /**
+     * How a new annotation duplicating or heavily overlapping an annotation with
+     * the same label is handled
+     */
+    public enum OverlapPolicy {
+        ALLOW,   // Created anyway
+        REJECT,  // Refused
+        MERGE;   // Folded into the existing annotation, widened to cover both
+        
+        public static OverlapPolicy fromName(String name) {
+            for (OverlapPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported overlap policy: " + name);
+        }
+    }
+    
+    /**
+     * Sortable fields of annotation listings, each paginated with the ID as tiebreaker
+     */
+    public enum SortField {
+        CREATED_AT("createdAt"),
+        START_POSITION("startPosition");
+        
+        private final String property;
+        
+        SortField(String property) {
+            this.property = property;
+        }
+        
+        public String getProperty() {
+            return property;
+        }
+        
+        public static SortField fromProperty(String property) {
+            for (SortField field : values()) {
+                if (field.property.equals(property)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported sort field: " + property);
+        }
+    }
+    
     private UUID id;
     
     @NotNull(message = "Document ID is required")
@@ -50,6 +96,22 @@ public class AnnotationDTO {
         this.endPosition = endPosition;
     }
     
+    public AnnotationDTO(UUID id, UUID documentId, String documentName, UUID labelId, String labelName,
+                        String labelColor, Integer startPosition, Integer endPosition, String selectedText,
+                        LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.documentId = documentId;
+        this.documentName = documentName;
+        this.labelId = labelId;
+        this.labelName = labelName;
+        this.labelColor = labelColor;
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
+        this.selectedText = selectedText;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+    
     // Getters and Setters
     public UUID getId() {
         return id;
@@ -0,0 +1,70 @@
+package com.annotation.tool.dto;
+
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for the position and label of an annotation, served from
+ * the in-memory annotation index
+ * 
+ * startPosition is inclusive and endPosition exclusive
+ */
+public class AnnotationSpanDTO {
+    
+    private UUID id;
+    private UUID documentId;
+    private UUID labelId;
+    private int startPosition;
+    private int endPosition;
+    
+    // Constructors
+    public AnnotationSpanDTO() {}
+    
+    public AnnotationSpanDTO(UUID id, UUID documentId, UUID labelId, int startPosition, int endPosition) {
+        this.id = id;
+        this.documentId = documentId;
+        this.labelId = labelId;
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
+    }
+    
+    // Getters and Setters
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public UUID getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(UUID documentId) {
+        this.documentId = documentId;
+    }
+    
+    public UUID getLabelId() {
+        return labelId;
+    }
+    
+    public void setLabelId(UUID labelId) {
+        this.labelId = labelId;
+    }
+    
+    public int getStartPosition() {
+        return startPosition;
+    }
+    
+    public void setStartPosition(int startPosition) {
+        this.startPosition = startPosition;
+    }
+    
+    public int getEndPosition() {
+        return endPosition;
+    }
+    
+    public void setEndPosition(int endPosition) {
+        this.endPosition = endPosition;
+    }
+}
@@ -0,0 +1,68 @@
+package com.annotation.tool.dto;
+
+import java.util.UUID;
+
+/**
+ * Data Transfer Object describing the outcome of one entry of an uploaded archive
+ */
+public class ArchiveEntryResultDTO {
+    
+    public enum Status {
+        CREATED, SKIPPED, FAILED
+    }
+    
+    private String entryName;
+    private Status status;
+    private UUID documentId;
+    private Long fileSize;
+    private String error;
+    
+    // Constructors
+    public ArchiveEntryResultDTO() {}
+    
+    public ArchiveEntryResultDTO(String entryName, Status status) {
+        this.entryName = entryName;
+        this.status = status;
+    }
+    
+    // Getters and Setters
+    public String getEntryName() {
+        return entryName;
+    }
+    
+    public void setEntryName(String entryName) {
+        this.entryName = entryName;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public UUID getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(UUID documentId) {
+        this.documentId = documentId;
+    }
+    
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
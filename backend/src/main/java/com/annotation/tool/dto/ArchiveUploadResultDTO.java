@@ -0,0 +1,82 @@
+package com.annotation.tool.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the per-entry manifest of an archive upload
+ */
+public class ArchiveUploadResultDTO {
+    
+    private String archiveName;
+    private int createdCount;
+    private int skippedCount;
+    private int failedCount;
+    private List<ArchiveEntryResultDTO> entries = new ArrayList<>();
+    
+    // Constructors
+    public ArchiveUploadResultDTO() {}
+    
+    public ArchiveUploadResultDTO(String archiveName) {
+        this.archiveName = archiveName;
+    }
+    
+    /**
+     * Record the outcome of an entry
+     */
+    public void addEntry(ArchiveEntryResultDTO entry) {
+        entries.add(entry);
+        switch (entry.getStatus()) {
+            case CREATED:
+                createdCount++;
+                break;
+            case SKIPPED:
+                skippedCount++;
+                break;
+            case FAILED:
+                failedCount++;
+                break;
+        }
+    }
+    
+    // Getters and Setters
+    public String getArchiveName() {
+        return archiveName;
+    }
+    
+    public void setArchiveName(String archiveName) {
+        this.archiveName = archiveName;
+    }
+    
+    public int getCreatedCount() {
+        return createdCount;
+    }
+    
+    public void setCreatedCount(int createdCount) {
+        this.createdCount = createdCount;
+    }
+    
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+    
+    public void setSkippedCount(int skippedCount) {
+        this.skippedCount = skippedCount;
+    }
+    
+    public int getFailedCount() {
+        return failedCount;
+    }
+    
+    public void setFailedCount(int failedCount) {
+        this.failedCount = failedCount;
+    }
+    
+    public List<ArchiveEntryResultDTO> getEntries() {
+        return entries;
+    }
+    
+    public void setEntries(List<ArchiveEntryResultDTO> entries) {
+        this.entries = entries;
+    }
+}
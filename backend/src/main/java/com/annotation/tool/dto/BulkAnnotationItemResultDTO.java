@@ -0,0 +1,83 @@
+package com.annotation.tool.dto;
+
+import java.util.UUID;
+
+/**
+ * Data Transfer Object describing the outcome of one operation of a bulk annotation request
+ */
+public class BulkAnnotationItemResultDTO {
+    
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+    
+    public enum Status {
+        CREATED, UPDATED, DELETED, MERGED, FAILED
+    }
+    
+    private Operation operation;
+    private int index; // Position in the request's list for the operation
+    private UUID id;
+    private Status status;
+    private String error;
+    
+    // Constructors
+    public BulkAnnotationItemResultDTO() {}
+    
+    public BulkAnnotationItemResultDTO(Operation operation, int index, UUID id, Status status) {
+        this.operation = operation;
+        this.index = index;
+        this.id = id;
+        this.status = status;
+    }
+    
+    /**
+     * Result of an operation that was rejected
+     */
+    public static BulkAnnotationItemResultDTO failed(Operation operation, int index, UUID id, String error) {
+        BulkAnnotationItemResultDTO result = new BulkAnnotationItemResultDTO(operation, index, id, Status.FAILED);
+        result.setError(error);
+        return result;
+    }
+    
+    // Getters and Setters
+    public Operation getOperation() {
+        return operation;
+    }
+    
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,64 @@
+package com.annotation.tool.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for a batch of annotation creations, updates and deletions
+ * 
+ * Creations name their document, label and positions; updates additionally their
+ * annotation ID and may change the label and positions but not the document.
+ * The overlap policy applies to the creations; when absent the configured
+ * default is used.
+ */
+public class BulkAnnotationRequestDTO {
+    
+    private List<AnnotationDTO> create = new ArrayList<>();
+    private List<AnnotationDTO> update = new ArrayList<>();
+    private List<UUID> delete = new ArrayList<>();
+    private String overlapPolicy;
+    
+    // Constructors
+    public BulkAnnotationRequestDTO() {}
+    
+    /**
+     * Count the operations of the batch
+     */
+    public int size() {
+        return create.size() + update.size() + delete.size();
+    }
+    
+    // Getters and Setters
+    public List<AnnotationDTO> getCreate() {
+        return create;
+    }
+    
+    public void setCreate(List<AnnotationDTO> create) {
+        this.create = create != null ? create : new ArrayList<>();
+    }
+    
+    public List<AnnotationDTO> getUpdate() {
+        return update;
+    }
+    
+    public void setUpdate(List<AnnotationDTO> update) {
+        this.update = update != null ? update : new ArrayList<>();
+    }
+    
+    public List<UUID> getDelete() {
+        return delete;
+    }
+    
+    public void setDelete(List<UUID> delete) {
+        this.delete = delete != null ? delete : new ArrayList<>();
+    }
+    
+    public String getOverlapPolicy() {
+        return overlapPolicy;
+    }
+    
+    public void setOverlapPolicy(String overlapPolicy) {
+        this.overlapPolicy = overlapPolicy;
+    }
+}
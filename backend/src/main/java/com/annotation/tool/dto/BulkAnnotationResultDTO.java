@@ -0,0 +1,102 @@
+package com.annotation.tool.dto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the per-item outcome of a bulk annotation request
+ */
+public class BulkAnnotationResultDTO {
+    
+    private int createdCount;
+    private int updatedCount;
+    private int deletedCount;
+    private int mergedCount;
+    private int failedCount;
+    private List<BulkAnnotationItemResultDTO> items = new ArrayList<>();
+    
+    // Constructors
+    public BulkAnnotationResultDTO() {}
+    
+    /**
+     * Record the outcome of an operation
+     */
+    public void addItem(BulkAnnotationItemResultDTO item) {
+        items.add(item);
+        switch (item.getStatus()) {
+            case CREATED:
+                createdCount++;
+                break;
+            case UPDATED:
+                updatedCount++;
+                break;
+            case DELETED:
+                deletedCount++;
+                break;
+            case MERGED:
+                mergedCount++;
+                break;
+            case FAILED:
+                failedCount++;
+                break;
+        }
+    }
+    
+    /**
+     * Order the items as the operations were given in the request
+     */
+    public void sortItems() {
+        items.sort(Comparator.comparing(BulkAnnotationItemResultDTO::getOperation)
+                .thenComparingInt(BulkAnnotationItemResultDTO::getIndex));
+    }
+    
+    // Getters and Setters
+    public int getCreatedCount() {
+        return createdCount;
+    }
+    
+    public void setCreatedCount(int createdCount) {
+        this.createdCount = createdCount;
+    }
+    
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+    
+    public void setUpdatedCount(int updatedCount) {
+        this.updatedCount = updatedCount;
+    }
+    
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+    
+    public void setDeletedCount(int deletedCount) {
+        this.deletedCount = deletedCount;
+    }
+    
+    public int getMergedCount() {
+        return mergedCount;
+    }
+    
+    public void setMergedCount(int mergedCount) {
+        this.mergedCount = mergedCount;
+    }
+    
+    public int getFailedCount() {
+        return failedCount;
+    }
+    
+    public void setFailedCount(int failedCount) {
+        this.failedCount = failedCount;
+    }
+    
+    public List<BulkAnnotationItemResultDTO> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<BulkAnnotationItemResultDTO> items) {
+        this.items = items;
+    }
+}
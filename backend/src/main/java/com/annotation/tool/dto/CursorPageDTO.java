@@ -0,0 +1,44 @@
+package com.annotation.tool.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for one page of a keyset paginated listing
+ * 
+ * nextCursor is null on the last page; pass it back as the cursor
+ * parameter to fetch the following page.
+ */
+public class CursorPageDTO<T> {
+    
+    private List<T> items;
+    private String nextCursor;
+    
+    // Constructors
+    public CursorPageDTO() {}
+    
+    public CursorPageDTO(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,91 @@
+package com.annotation.tool.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for a window of a document's content
+ * 
+ * Offsets are character positions in the extracted text, the same positions
+ * annotations use. Annotations are only set for viewport requests.
+ */
+public class DocumentContentDTO {
+    
+    private UUID documentId;
+    private String documentName;
+    private int offset;
+    private int length;
+    private int totalLength;
+    private String content;
+    
+    private List<AnnotationDTO> annotations;
+    
+    // Constructors
+    public DocumentContentDTO() {}
+    
+    public DocumentContentDTO(UUID documentId, String documentName, int offset, int totalLength, String content) {
+        this.documentId = documentId;
+        this.documentName = documentName;
+        this.offset = offset;
+        this.length = content.length();
+        this.totalLength = totalLength;
+        this.content = content;
+    }
+    
+    // Getters and Setters
+    public UUID getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(UUID documentId) {
+        this.documentId = documentId;
+    }
+    
+    public String getDocumentName() {
+        return documentName;
+    }
+    
+    public void setDocumentName(String documentName) {
+        this.documentName = documentName;
+    }
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+    
+    public int getLength() {
+        return length;
+    }
+    
+    public void setLength(int length) {
+        this.length = length;
+    }
+    
+    public int getTotalLength() {
+        return totalLength;
+    }
+    
+    public void setTotalLength(int totalLength) {
+        this.totalLength = totalLength;
+    }
+    
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+    
+    public List<AnnotationDTO> getAnnotations() {
+        return annotations;
+    }
+    
+    public void setAnnotations(List<AnnotationDTO> annotations) {
+        this.annotations = annotations;
+    }
+}
@@ -14,6 +14,7 @@ public class DocumentDTO {
     private String originalFilename;
     private String fileType;
     private String content;
+    private Integer contentLength;
     private Long fileSize;
     private LocalDateTime uploadDate;
     
@@ -72,6 +73,14 @@ public class DocumentDTO {
         this.content = content;
     }
     
+    public Integer getContentLength() {
+        return contentLength;
+    }
+    
+    public void setContentLength(Integer contentLength) {
+        this.contentLength = contentLength;
+    }
+    
     public Long getFileSize() {
         return fileSize;
     }
@@ -0,0 +1,128 @@
+package com.annotation.tool.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for document listings
+ * 
+ * Carries document metadata without the extracted content
+ */
+public class DocumentSummaryDTO {
+    
+    /**
+     * Fields document listings can be sorted by
+     */
+    public enum SortField {
+        UPLOAD_DATE("uploadDate"),
+        NAME("name"),
+        FILE_TYPE("fileType");
+        
+        private final String property;
+        
+        SortField(String property) {
+            this.property = property;
+        }
+        
+        public String getProperty() {
+            return property;
+        }
+        
+        public static SortField fromProperty(String property) {
+            for (SortField field : values()) {
+                if (field.property.equals(property)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported sort field: " + property);
+        }
+    }
+    
+    private UUID id;
+    private String name;
+    private String originalFilename;
+    private String fileType;
+    private Long fileSize;
+    private Integer contentLength;
+    private LocalDateTime uploadDate;
+    private Long annotationCount;
+    
+    // Constructors
+    public DocumentSummaryDTO() {}
+    
+    public DocumentSummaryDTO(UUID id, String name, String originalFilename, String fileType,
+                              Long fileSize, Integer contentLength, LocalDateTime uploadDate) {
+        this.id = id;
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.fileType = fileType;
+        this.fileSize = fileSize;
+        this.contentLength = contentLength;
+        this.uploadDate = uploadDate;
+    }
+    
+    // Getters and Setters
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+    
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+    
+    public String getFileType() {
+        return fileType;
+    }
+    
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+    
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    public Integer getContentLength() {
+        return contentLength;
+    }
+    
+    public void setContentLength(Integer contentLength) {
+        this.contentLength = contentLength;
+    }
+    
+    public LocalDateTime getUploadDate() {
+        return uploadDate;
+    }
+    
+    public void setUploadDate(LocalDateTime uploadDate) {
+        this.uploadDate = uploadDate;
+    }
+    
+    public Long getAnnotationCount() {
+        return annotationCount;
+    }
+    
+    public void setAnnotationCount(Long annotationCount) {
+        this.annotationCount = annotationCount;
+    }
+}
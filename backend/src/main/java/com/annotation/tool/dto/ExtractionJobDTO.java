@@ -0,0 +1,109 @@
+package com.annotation.tool.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object describing a background text extraction job
+ */
+public class ExtractionJobDTO {
+    
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+    
+    private UUID id;
+    private UUID documentId;
+    private String documentName;
+    private Status status;
+    private String error;
+    private Integer pagesProcessed;
+    private Integer totalPages;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    
+    // Constructors
+    public ExtractionJobDTO() {}
+    
+    // Getters and Setters
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public UUID getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(UUID documentId) {
+        this.documentId = documentId;
+    }
+    
+    public String getDocumentName() {
+        return documentName;
+    }
+    
+    public void setDocumentName(String documentName) {
+        this.documentName = documentName;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public Integer getPagesProcessed() {
+        return pagesProcessed;
+    }
+    
+    public void setPagesProcessed(Integer pagesProcessed) {
+        this.pagesProcessed = pagesProcessed;
+    }
+    
+    public Integer getTotalPages() {
+        return totalPages;
+    }
+    
+    public void setTotalPages(Integer totalPages) {
+        this.totalPages = totalPages;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,69 @@
+package com.annotation.tool.dto;
+
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for the character offset range of a page of a document's text
+ * 
+ * startOffset is inclusive and endOffset exclusive
+ */
+public class PageRangeDTO {
+    
+    private UUID documentId;
+    private int page;
+    private int startOffset;
+    private int endOffset;
+    private int pageCount;
+    
+    // Constructors
+    public PageRangeDTO() {}
+    
+    public PageRangeDTO(UUID documentId, int page, int startOffset, int endOffset, int pageCount) {
+        this.documentId = documentId;
+        this.page = page;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.pageCount = pageCount;
+    }
+    
+    // Getters and Setters
+    public UUID getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(UUID documentId) {
+        this.documentId = documentId;
+    }
+    
+    public int getPage() {
+        return page;
+    }
+    
+    public void setPage(int page) {
+        this.page = page;
+    }
+    
+    public int getStartOffset() {
+        return startOffset;
+    }
+    
+    public void setStartOffset(int startOffset) {
+        this.startOffset = startOffset;
+    }
+    
+    public int getEndOffset() {
+        return endOffset;
+    }
+    
+    public void setEndOffset(int endOffset) {
+        this.endOffset = endOffset;
+    }
+    
+    public int getPageCount() {
+        return pageCount;
+    }
+    
+    public void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+}
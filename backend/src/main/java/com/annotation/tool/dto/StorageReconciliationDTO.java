@@ -0,0 +1,141 @@
+package com.annotation.tool.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the outcome of reconciling the upload store with documents
+ *
+ * Orphaned files are stored files no document references; dangling paths are
+ * document file paths with no stored file behind them.
+ */
+public class StorageReconciliationDTO {
+    
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private boolean dryRun;
+    private long storedFiles;
+    private long referencedPaths;
+    private long orphanedFiles;
+    private long orphanedBytes;
+    private long recentOrphansSkipped;
+    private long reclaimedFiles;
+    private long reclaimedBytes;
+    private long danglingPaths;
+    private List<String> danglingPathSamples = new ArrayList<>();
+    private String error;
+    
+    // Constructors
+    public StorageReconciliationDTO() {}
+    
+    public StorageReconciliationDTO(boolean dryRun) {
+        this.dryRun = dryRun;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+    
+    public boolean isDryRun() {
+        return dryRun;
+    }
+    
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+    
+    public long getStoredFiles() {
+        return storedFiles;
+    }
+    
+    public void setStoredFiles(long storedFiles) {
+        this.storedFiles = storedFiles;
+    }
+    
+    public long getReferencedPaths() {
+        return referencedPaths;
+    }
+    
+    public void setReferencedPaths(long referencedPaths) {
+        this.referencedPaths = referencedPaths;
+    }
+    
+    public long getOrphanedFiles() {
+        return orphanedFiles;
+    }
+    
+    public void setOrphanedFiles(long orphanedFiles) {
+        this.orphanedFiles = orphanedFiles;
+    }
+    
+    public long getOrphanedBytes() {
+        return orphanedBytes;
+    }
+    
+    public void setOrphanedBytes(long orphanedBytes) {
+        this.orphanedBytes = orphanedBytes;
+    }
+    
+    public long getRecentOrphansSkipped() {
+        return recentOrphansSkipped;
+    }
+    
+    public void setRecentOrphansSkipped(long recentOrphansSkipped) {
+        this.recentOrphansSkipped = recentOrphansSkipped;
+    }
+    
+    public long getReclaimedFiles() {
+        return reclaimedFiles;
+    }
+    
+    public void setReclaimedFiles(long reclaimedFiles) {
+        this.reclaimedFiles = reclaimedFiles;
+    }
+    
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+    
+    public void setReclaimedBytes(long reclaimedBytes) {
+        this.reclaimedBytes = reclaimedBytes;
+    }
+    
+    public long getDanglingPaths() {
+        return danglingPaths;
+    }
+    
+    public void setDanglingPaths(long danglingPaths) {
+        this.danglingPaths = danglingPaths;
+    }
+    
+    public List<String> getDanglingPathSamples() {
+        return danglingPathSamples;
+    }
+    
+    public void setDanglingPathSamples(List<String> danglingPathSamples) {
+        this.danglingPathSamples = danglingPathSamples;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
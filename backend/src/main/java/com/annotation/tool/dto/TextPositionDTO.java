@@ -0,0 +1,107 @@
+package com.annotation.tool.dto;
+
+import java.util.UUID;
+
+/**
+ * Data Transfer Object locating a character offset of a document's text
+ * 
+ * Line, column, paragraph and page numbers are 1-based; paragraph is null for
+ * offsets before the first paragraph
+ */
+public class TextPositionDTO {
+    
+    private UUID documentId;
+    private int offset;
+    private int line;
+    private int column;
+    private Integer paragraph;
+    private int page;
+    private int lineCount;
+    private int paragraphCount;
+    private int pageCount;
+    
+    // Constructors
+    public TextPositionDTO() {}
+    
+    public TextPositionDTO(UUID documentId, int offset, int line, int column, Integer paragraph, int page) {
+        this.documentId = documentId;
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
+        this.paragraph = paragraph;
+        this.page = page;
+    }
+    
+    // Getters and Setters
+    public UUID getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(UUID documentId) {
+        this.documentId = documentId;
+    }
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+    
+    public int getLine() {
+        return line;
+    }
+    
+    public void setLine(int line) {
+        this.line = line;
+    }
+    
+    public int getColumn() {
+        return column;
+    }
+    
+    public void setColumn(int column) {
+        this.column = column;
+    }
+    
+    public Integer getParagraph() {
+        return paragraph;
+    }
+    
+    public void setParagraph(Integer paragraph) {
+        this.paragraph = paragraph;
+    }
+    
+    public int getPage() {
+        return page;
+    }
+    
+    public void setPage(int page) {
+        this.page = page;
+    }
+    
+    public int getLineCount() {
+        return lineCount;
+    }
+    
+    public void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+    
+    public int getParagraphCount() {
+        return paragraphCount;
+    }
+    
+    public void setParagraphCount(int paragraphCount) {
+        this.paragraphCount = paragraphCount;
+    }
+    
+    public int getPageCount() {
+        return pageCount;
+    }
+    
+    public void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+}
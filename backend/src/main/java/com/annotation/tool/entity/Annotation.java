@@ -11,7 +11,8 @@ import java.util.UUID;
  * Entity class representing an annotation on a document
  * 
  * An annotation marks a specific text segment in a document with a label
- * It includes position information and context for precise text location
+ * It includes position information for precise text location; the context
+ * around the segment is read from the document text when needed
  */
 @Entity
 @Table(name = "annotations")
@@ -39,12 +40,6 @@ public class Annotation {
     @Column(name = "selected_text", nullable = false, columnDefinition = "TEXT")
     private String selectedText;
     
-    @Column(name = "context_before", columnDefinition = "TEXT")
-    private String contextBefore;
-    
-    @Column(name = "context_after", columnDefinition = "TEXT")
-    private String contextAfter;
-    
     @CreationTimestamp
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -57,15 +52,12 @@ public class Annotation {
     public Annotation() {}
     
     public Annotation(Document document, Label label, Integer startPosition, 
-                     Integer endPosition, String selectedText, 
-                     String contextBefore, String contextAfter) {
+                     Integer endPosition, String selectedText) {
         this.document = document;
         this.label = label;
         this.startPosition = startPosition;
         this.endPosition = endPosition;
         this.selectedText = selectedText;
-        this.contextBefore = contextBefore;
-        this.contextAfter = contextAfter;
     }
     
     // Getters and Setters
@@ -117,22 +109,6 @@ public class Annotation {
         this.selectedText = selectedText;
     }
     
-    public String getContextBefore() {
-        return contextBefore;
-    }
-    
-    public void setContextBefore(String contextBefore) {
-        this.contextBefore = contextBefore;
-    }
-    
-    public String getContextAfter() {
-        return contextAfter;
-    }
-    
-    public void setContextAfter(String contextAfter) {
-        this.contextAfter = contextAfter;
-    }
-    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -2,6 +2,7 @@ package com.annotation.tool.entity;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -12,10 +13,14 @@ import java.util.UUID;
  * Entity class representing uploaded documents that can be annotated
  * 
  * Supports .txt, .docx, and .pdf file formats
- * Stores both the original file and extracted text content for annotation
+ * Stores the original file; the extracted text content for annotation is
+ * kept in compressed chunks (see DocumentContentChunk)
+ * Soft-deleted documents are hidden from every entity query until they are
+ * purged (see DocumentPurgeService)
  */
 @Entity
 @Table(name = "documents")
+@SQLRestriction("deleted_at IS NULL")
 public class Document {
     
     @Id
@@ -35,29 +40,35 @@ public class Document {
     @Column(name = "file_path", nullable = false, length = 500)
     private String filePath;
     
-    @Column(name = "content", columnDefinition = "TEXT")
-    private String content; // Extracted text content
+    @Column(name = "content_length")
+    private Integer contentLength; // Length of the extracted text in chars, null until extracted
     
     @Column(name = "file_size")
     private Long fileSize;
     
-    @OneToMany(mappedBy = "document", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 of the uploaded file, hex encoded
+    
+    // Annotations are deleted set-based before the document, not by cascade
+    @OneToMany(mappedBy = "document", fetch = FetchType.LAZY)
     private List<Annotation> annotations = new ArrayList<>();
     
     @CreationTimestamp
     @Column(name = "upload_date")
     private LocalDateTime uploadDate;
     
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt; // Set when soft-deleted, until the purge removes the row
+    
     // Constructors
     public Document() {}
     
     public Document(String name, String originalFilename, String fileType, 
-                   String filePath, String content, Long fileSize) {
+                   String filePath, Long fileSize) {
         this.name = name;
         this.originalFilename = originalFilename;
         this.fileType = fileType;
         this.filePath = filePath;
-        this.content = content;
         this.fileSize = fileSize;
     }
     
@@ -102,12 +113,12 @@ public class Document {
         this.filePath = filePath;
     }
     
-    public String getContent() {
-        return content;
+    public Integer getContentLength() {
+        return contentLength;
     }
     
-    public void setContent(String content) {
-        this.content = content;
+    public void setContentLength(Integer contentLength) {
+        this.contentLength = contentLength;
     }
     
     public Long getFileSize() {
@@ -118,6 +129,14 @@ public class Document {
         this.fileSize = fileSize;
     }
     
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
     public List<Annotation> getAnnotations() {
         return annotations;
     }
@@ -133,4 +152,12 @@ public class Document {
     public void setUploadDate(LocalDateTime uploadDate) {
         this.uploadDate = uploadDate;
     }
+    
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+    
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
 }
@@ -0,0 +1,122 @@
+package com.annotation.tool.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Entity class representing one compressed chunk of a document's extracted text
+ * 
+ * Chunk n holds characters [n * CHUNK_LENGTH, (n + 1) * CHUNK_LENGTH) of the
+ * text, so any window of the text maps to a contiguous range of chunks
+ */
+@Entity
+@Table(name = "document_content_chunks")
+@IdClass(DocumentContentChunk.ChunkId.class)
+public class DocumentContentChunk implements Persistable<DocumentContentChunk.ChunkId> {
+    
+    /**
+     * Composite primary key of a content chunk
+     */
+    public static class ChunkId implements Serializable {
+        
+        private UUID documentId;
+        private Integer chunkIndex;
+        
+        public ChunkId() {}
+        
+        public ChunkId(UUID documentId, Integer chunkIndex) {
+            this.documentId = documentId;
+            this.chunkIndex = chunkIndex;
+        }
+        
+        public UUID getDocumentId() {
+            return documentId;
+        }
+        
+        public Integer getChunkIndex() {
+            return chunkIndex;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChunkId)) return false;
+            ChunkId other = (ChunkId) o;
+            return Objects.equals(documentId, other.documentId) && Objects.equals(chunkIndex, other.chunkIndex);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(documentId, chunkIndex);
+        }
+    }
+    
+    @Id
+    @Column(name = "document_id", nullable = false)
+    private UUID documentId;
+    
+    @Id
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+    
+    @Column(name = "data", nullable = false, columnDefinition = "BYTEA")
+    private byte[] data; // Deflate-compressed modified UTF-8 of the chunk's characters
+    
+    // Keys are assigned up front, so save() would otherwise SELECT each row before inserting it
+    @Transient
+    private boolean isNew = true;
+    
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+    
+    // Constructors
+    public DocumentContentChunk() {}
+    
+    public DocumentContentChunk(UUID documentId, Integer chunkIndex, byte[] data) {
+        this.documentId = documentId;
+        this.chunkIndex = chunkIndex;
+        this.data = data;
+    }
+    
+    // Getters and Setters
+    public UUID getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(UUID documentId) {
+        this.documentId = documentId;
+    }
+    
+    public Integer getChunkIndex() {
+        return chunkIndex;
+    }
+    
+    public void setChunkIndex(Integer chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+    
+    public byte[] getData() {
+        return data;
+    }
+    
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+    
+    @Override
+    public ChunkId getId() {
+        return new ChunkId(documentId, chunkIndex);
+    }
+    
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+}
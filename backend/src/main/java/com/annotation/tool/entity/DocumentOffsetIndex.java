@@ -0,0 +1,105 @@
+package com.annotation.tool.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+
+/**
+ * Entity class holding the line, paragraph and page start offsets of a document's text
+ * 
+ * Each column is an ascending int[] encoded by TextOffsetIndex as varint deltas
+ */
+@Entity
+@Table(name = "document_offset_indexes")
+public class DocumentOffsetIndex implements Persistable<UUID> {
+    
+    @Id
+    @Column(name = "document_id", nullable = false)
+    private UUID documentId;
+    
+    @Column(name = "text_length", nullable = false)
+    private Integer textLength;
+    
+    @Column(name = "line_starts", nullable = false, columnDefinition = "BYTEA")
+    private byte[] lineStarts;
+    
+    @Column(name = "paragraph_starts", nullable = false, columnDefinition = "BYTEA")
+    private byte[] paragraphStarts;
+    
+    @Column(name = "page_starts", nullable = false, columnDefinition = "BYTEA")
+    private byte[] pageStarts;
+    
+    // Keys are assigned up front, so save() would otherwise SELECT each row before inserting it
+    @Transient
+    private boolean isNew = true;
+    
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+    
+    // Constructors
+    public DocumentOffsetIndex() {}
+    
+    public DocumentOffsetIndex(UUID documentId, Integer textLength, byte[] lineStarts,
+                               byte[] paragraphStarts, byte[] pageStarts) {
+        this.documentId = documentId;
+        this.textLength = textLength;
+        this.lineStarts = lineStarts;
+        this.paragraphStarts = paragraphStarts;
+        this.pageStarts = pageStarts;
+    }
+    
+    // Getters and Setters
+    public UUID getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(UUID documentId) {
+        this.documentId = documentId;
+    }
+    
+    public Integer getTextLength() {
+        return textLength;
+    }
+    
+    public void setTextLength(Integer textLength) {
+        this.textLength = textLength;
+    }
+    
+    public byte[] getLineStarts() {
+        return lineStarts;
+    }
+    
+    public void setLineStarts(byte[] lineStarts) {
+        this.lineStarts = lineStarts;
+    }
+    
+    public byte[] getParagraphStarts() {
+        return paragraphStarts;
+    }
+    
+    public void setParagraphStarts(byte[] paragraphStarts) {
+        this.paragraphStarts = paragraphStarts;
+    }
+    
+    public byte[] getPageStarts() {
+        return pageStarts;
+    }
+    
+    public void setPageStarts(byte[] pageStarts) {
+        this.pageStarts = pageStarts;
+    }
+    
+    @Override
+    public UUID getId() {
+        return documentId;
+    }
+    
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+}
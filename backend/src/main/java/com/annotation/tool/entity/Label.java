@@ -42,14 +42,15 @@ public class Label {
     private List<Label> children = new ArrayList<>();
     
     // Relationships where this label is the source
-    @OneToMany(mappedBy = "sourceLabel", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @OneToMany(mappedBy = "sourceLabel", fetch = FetchType.LAZY)
     private List<LabelRelationship> outgoingRelationships = new ArrayList<>();
     
     // Relationships where this label is the target
-    @OneToMany(mappedBy = "targetLabel", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @OneToMany(mappedBy = "targetLabel", fetch = FetchType.LAZY)
     private List<LabelRelationship> incomingRelationships = new ArrayList<>();
     
-    @OneToMany(mappedBy = "label", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    // Relationships and annotations are deleted set-based before the label, not by cascade
+    @OneToMany(mappedBy = "label", fetch = FetchType.LAZY)
     private List<Annotation> annotations = new ArrayList<>();
     
     @CreationTimestamp
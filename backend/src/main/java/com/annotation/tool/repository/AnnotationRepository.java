@@ -2,11 +2,15 @@ package com.annotation.tool.repository;
 
 import com.annotation.tool.entity.Annotation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -15,7 +19,60 @@ import java.util.UUID;
  * Provides methods for annotation management and analytics
  */
 @Repository
-public interface AnnotationRepository extends JpaRepository<Annotation, UUID> {
+public interface AnnotationRepository extends JpaRepository<Annotation, UUID>, AnnotationRepositoryCustom {
+    
+    /**
+     * Projection of an annotation's document, label and positions
+     */
+    interface Span {
+        
+        UUID getId();
+        
+        UUID getDocumentId();
+        
+        UUID getLabelId();
+        
+        Integer getStartPosition();
+        
+        Integer getEndPosition();
+    }
+    
+    /**
+     * Projection of an annotation with its document's name and its label, as returned by the API
+     */
+    interface View {
+        
+        UUID getId();
+        
+        UUID getDocumentId();
+        
+        String getDocumentName();
+        
+        UUID getLabelId();
+        
+        String getLabelName();
+        
+        String getLabelColor();
+        
+        Integer getStartPosition();
+        
+        Integer getEndPosition();
+        
+        String getSelectedText();
+        
+        LocalDateTime getCreatedAt();
+        
+        LocalDateTime getUpdatedAt();
+    }
+    
+    /**
+     * Select list of View queries, joining the document and label in the same statement
+     */
+    String SELECT_VIEW = "SELECT a.id AS id, d.id AS documentId, d.name AS documentName, " +
+                         "l.id AS labelId, l.name AS labelName, l.color AS labelColor, " +
+                         "a.startPosition AS startPosition, a.endPosition AS endPosition, " +
+                         "a.selectedText AS selectedText, a.createdAt AS createdAt, a.updatedAt AS updatedAt " +
+                         "FROM Annotation a JOIN a.document d JOIN a.label l ";
     
     /**
      * Find all annotations for a specific document
@@ -61,6 +118,15 @@ public interface AnnotationRepository extends JpaRepository<Annotation, UUID> {
            "ORDER BY COUNT(a) DESC")
     List<Object[]> countAnnotationsByDocument();
     
+    /**
+     * Count annotations of each of the given documents
+     */
+    @Query("SELECT a.document.id, COUNT(a) " +
+           "FROM Annotation a " +
+           "WHERE a.document.id IN :documentIds " +
+           "GROUP BY a.document.id")
+    List<Object[]> countByDocumentIds(@Param("documentIds") Collection<UUID> documentIds);
+    
     /**
      * Find text segments with highest concentration of a specific label
      * This query finds overlapping or nearby annotations of the same label
@@ -93,4 +159,71 @@ public interface AnnotationRepository extends JpaRepository<Annotation, UUID> {
      */
     @Query("SELECT COUNT(a) FROM Annotation a")
     Long getTotalAnnotationCount();
+    
+    /**
+     * Get the spans of the given annotations without loading them
+     */
+    @Query("SELECT a.id AS id, a.document.id AS documentId, a.label.id AS labelId, " +
+           "a.startPosition AS startPosition, a.endPosition AS endPosition " +
+           "FROM Annotation a WHERE a.id IN :ids")
+    List<Span> findSpansByIds(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Get the spans of all annotations of a document without loading them
+     */
+    @Query("SELECT a.id AS id, a.document.id AS documentId, a.label.id AS labelId, " +
+           "a.startPosition AS startPosition, a.endPosition AS endPosition " +
+           "FROM Annotation a WHERE a.document.id = :documentId")
+    List<Span> findSpansByDocumentId(@Param("documentId") UUID documentId);
+    
+    /**
+     * Get an annotation as a view
+     */
+    @Query(SELECT_VIEW + "WHERE a.id = :id")
+    Optional<View> findViewById(@Param("id") UUID id);
+    
+    /**
+     * Get the annotations of a document as views, ordered by position
+     */
+    @Query(SELECT_VIEW + "WHERE d.id = :documentId ORDER BY a.startPosition")
+    List<View> findViewsByDocumentId(@Param("documentId") UUID documentId);
+    
+    /**
+     * Get the annotations overlapping a position range in a document as views
+     */
+    @Query(SELECT_VIEW + "WHERE d.id = :documentId " +
+           "AND a.startPosition < :endPos " +
+           "AND a.endPosition > :startPos " +
+           "ORDER BY a.startPosition")
+    List<View> findViewsOverlapping(
+            @Param("documentId") UUID documentId,
+            @Param("startPos") int startPos,
+            @Param("endPos") int endPos);
+    
+    /**
+     * Check whether any annotation uses a label
+     */
+    boolean existsByLabelId(UUID labelId);
+    
+    /**
+     * Delete all annotations of a document in one statement, without loading them
+     */
+    @Modifying
+    @Query("DELETE FROM Annotation a WHERE a.document.id = :documentId")
+    int deleteByDocumentId(@Param("documentId") UUID documentId);
+    
+    /**
+     * Delete all annotations with a label in one statement, without loading them
+     */
+    @Modifying
+    @Query("DELETE FROM Annotation a WHERE a.label.id = :labelId")
+    int deleteByLabelId(@Param("labelId") UUID labelId);
+    
+    /**
+     * Delete up to limit annotations of a document, for purging it in short transactions
+     */
+    @Modifying
+    @Query(value = "DELETE FROM annotations WHERE id IN " +
+                   "(SELECT id FROM annotations WHERE document_id = :documentId LIMIT :limit)", nativeQuery = true)
+    int deleteBatchByDocumentId(@Param("documentId") UUID documentId, @Param("limit") int limit);
 }
@@ -0,0 +1,147 @@
+package com.annotation.tool.repository;
+
+import com.annotation.tool.dto.AnnotationDTO;
+import com.annotation.tool.entity.Annotation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Custom repository operations for Annotation entity that write in JDBC batches
+ * or need dynamic JPQL
+ */
+public interface AnnotationRepositoryCustom {
+    
+    /**
+     * Filter, sort order and keyset position of an annotation listing
+     */
+    class ListingQuery {
+        
+        private UUID documentId;
+        private UUID labelId;
+        private String textContains;
+        private Integer withinStart;
+        private Integer withinEnd;
+        private LocalDateTime createdFrom;
+        private LocalDateTime createdBefore;
+        private AnnotationDTO.SortField sortField = AnnotationDTO.SortField.CREATED_AT;
+        private boolean ascending;
+        private Object afterValue;
+        private UUID afterId;
+        
+        // Getters and Setters
+        public UUID getDocumentId() {
+            return documentId;
+        }
+        
+        public void setDocumentId(UUID documentId) {
+            this.documentId = documentId;
+        }
+        
+        public UUID getLabelId() {
+            return labelId;
+        }
+        
+        public void setLabelId(UUID labelId) {
+            this.labelId = labelId;
+        }
+        
+        public String getTextContains() {
+            return textContains;
+        }
+        
+        public void setTextContains(String textContains) {
+            this.textContains = textContains;
+        }
+        
+        public Integer getWithinStart() {
+            return withinStart;
+        }
+        
+        public Integer getWithinEnd() {
+            return withinEnd;
+        }
+        
+        /**
+         * Keep only annotations lying within [start, end]
+         */
+        public void setWithin(int start, int end) {
+            this.withinStart = start;
+            this.withinEnd = end;
+        }
+        
+        public LocalDateTime getCreatedFrom() {
+            return createdFrom;
+        }
+        
+        public LocalDateTime getCreatedBefore() {
+            return createdBefore;
+        }
+        
+        /**
+         * Keep only annotations created in [from, before); either bound may be null
+         */
+        public void setCreatedBetween(LocalDateTime from, LocalDateTime before) {
+            this.createdFrom = from;
+            this.createdBefore = before;
+        }
+        
+        public AnnotationDTO.SortField getSortField() {
+            return sortField;
+        }
+        
+        public void setSortField(AnnotationDTO.SortField sortField) {
+            this.sortField = sortField;
+        }
+        
+        public boolean isAscending() {
+            return ascending;
+        }
+        
+        public void setAscending(boolean ascending) {
+            this.ascending = ascending;
+        }
+        
+        public Object getAfterValue() {
+            return afterValue;
+        }
+        
+        public UUID getAfterId() {
+            return afterId;
+        }
+        
+        /**
+         * Start after the row with the given sort value and ID
+         */
+        public void setAfter(Object afterValue, UUID afterId) {
+            this.afterValue = afterValue;
+            this.afterId = afterId;
+        }
+    }
+    
+    /**
+     * Insert annotations with pre-generated IDs in JDBC batches, bypassing the
+     * persistence context
+     */
+    void insertAll(List<Annotation> annotations);
+    
+    /**
+     * Write the label, positions and text of existing annotations in JDBC batches,
+     * bypassing the persistence context
+     */
+    void updateAll(List<Annotation> annotations);
+    
+    /**
+     * Find annotations with their document's name and their label, sorted by the
+     * requested field and then by ID, starting after the keyset position of the query
+     */
+    List<AnnotationDTO> findListing(ListingQuery query, int limit);
+    
+    /**
+     * Stream all annotations of a listing through a forward-only cursor, fetching
+     * the given number of rows per round trip; must be consumed in a transaction
+     */
+    Stream<AnnotationDTO> streamListing(ListingQuery query, int fetchSize);
+}
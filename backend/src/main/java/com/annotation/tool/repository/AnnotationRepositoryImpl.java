@@ -0,0 +1,150 @@
+package com.annotation.tool.repository;
+
+import com.annotation.tool.dto.AnnotationDTO;
+import com.annotation.tool.entity.Annotation;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+/**
+ * Implementation of the custom Annotation repository operations
+ * 
+ * Batch writes run on the JDBC connection of the surrounding JPA transaction.
+ */
+public class AnnotationRepositoryImpl implements AnnotationRepositoryCustom {
+    
+    private static final String INSERT_SQL = "INSERT INTO annotations " +
+            "(id, document_id, label_id, start_position, end_position, selected_text, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String UPDATE_SQL = "UPDATE annotations SET label_id = ?, start_position = ?, " +
+            "end_position = ?, selected_text = ?, updated_at = ? WHERE id = ?";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${app.annotations.bulk.batch-size:500}")
+    private int batchSize;
+    
+    @Override
+    public void insertAll(List<Annotation> annotations) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, annotations, batchSize, (statement, annotation) -> {
+            statement.setObject(1, annotation.getId());
+            statement.setObject(2, annotation.getDocument().getId());
+            statement.setObject(3, annotation.getLabel().getId());
+            statement.setInt(4, annotation.getStartPosition());
+            statement.setInt(5, annotation.getEndPosition());
+            statement.setString(6, annotation.getSelectedText());
+            statement.setTimestamp(7, now);
+            statement.setTimestamp(8, now);
+        });
+    }
+    
+    @Override
+    public void updateAll(List<Annotation> annotations) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPDATE_SQL, annotations, batchSize, (statement, annotation) -> {
+            statement.setObject(1, annotation.getLabel().getId());
+            statement.setInt(2, annotation.getStartPosition());
+            statement.setInt(3, annotation.getEndPosition());
+            statement.setString(4, annotation.getSelectedText());
+            statement.setTimestamp(5, now);
+            statement.setObject(6, annotation.getId());
+        });
+    }
+    
+    @Override
+    public List<AnnotationDTO> findListing(ListingQuery query, int limit) {
+        return createListingQuery(query).setMaxResults(limit).getResultList();
+    }
+    
+    @Override
+    public Stream<AnnotationDTO> streamListing(ListingQuery query, int fetchSize) {
+        // DTO rows never enter the persistence context, so the stream holds no more than one fetch
+        return createListingQuery(query).setHint(HINT_FETCH_SIZE, fetchSize).getResultStream();
+    }
+    
+    private TypedQuery<AnnotationDTO> createListingQuery(ListingQuery query) {
+        // The sort property comes from the SortField enum, never from user input
+        String sortPath = "a." + query.getSortField().getProperty();
+        String comparison = query.isAscending() ? ">" : "<";
+        String direction = query.isAscending() ? "ASC" : "DESC";
+        
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.annotation.tool.dto.AnnotationDTO(" +
+                "a.id, d.id, d.name, l.id, l.name, l.color, " +
+                "a.startPosition, a.endPosition, a.selectedText, a.createdAt, a.updatedAt) " +
+                "FROM Annotation a JOIN a.document d JOIN a.label l WHERE 1 = 1");
+        if (query.getDocumentId() != null) {
+            jpql.append(" AND d.id = :documentId");
+        }
+        if (query.getLabelId() != null) {
+            jpql.append(" AND l.id = :labelId");
+        }
+        if (query.getTextContains() != null) {
+            jpql.append(" AND LOWER(a.selectedText) LIKE LOWER(:textPattern) ESCAPE '\\'");
+        }
+        if (query.getWithinStart() != null) {
+            jpql.append(" AND a.startPosition >= :withinStart AND a.endPosition <= :withinEnd");
+        }
+        if (query.getCreatedFrom() != null) {
+            jpql.append(" AND a.createdAt >= :createdFrom");
+        }
+        if (query.getCreatedBefore() != null) {
+            jpql.append(" AND a.createdAt < :createdBefore");
+        }
+        if (query.getAfterId() != null) {
+            // The inclusive bound lets the database seek in the (sort, id) index; the
+            // row-value comparison itself does not type-check in HQL with parameters
+            jpql.append(" AND ").append(sortPath).append(' ').append(comparison).append("= :afterValue")
+                    .append(" AND (").append(sortPath).append(' ').append(comparison).append(" :afterValue")
+                    .append(" OR a.id ").append(comparison).append(" :afterId)");
+        }
+        jpql.append(" ORDER BY ").append(sortPath).append(' ').append(direction)
+                .append(", a.id ").append(direction);
+        
+        TypedQuery<AnnotationDTO> typedQuery = entityManager.createQuery(jpql.toString(), AnnotationDTO.class);
+        if (query.getDocumentId() != null) {
+            typedQuery.setParameter("documentId", query.getDocumentId());
+        }
+        if (query.getLabelId() != null) {
+            typedQuery.setParameter("labelId", query.getLabelId());
+        }
+        if (query.getTextContains() != null) {
+            typedQuery.setParameter("textPattern", "%" + escapeLike(query.getTextContains()) + "%");
+        }
+        if (query.getWithinStart() != null) {
+            typedQuery.setParameter("withinStart", query.getWithinStart());
+            typedQuery.setParameter("withinEnd", query.getWithinEnd());
+        }
+        if (query.getCreatedFrom() != null) {
+            typedQuery.setParameter("createdFrom", query.getCreatedFrom());
+        }
+        if (query.getCreatedBefore() != null) {
+            typedQuery.setParameter("createdBefore", query.getCreatedBefore());
+        }
+        if (query.getAfterId() != null) {
+            typedQuery.setParameter("afterValue", query.getAfterValue());
+            typedQuery.setParameter("afterId", query.getAfterId());
+        }
+        return typedQuery;
+    }
+    
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,62 @@
+package com.annotation.tool.repository;
+
+import com.annotation.tool.entity.DocumentContentChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for DocumentContentChunk entity operations
+ */
+@Repository
+public interface DocumentContentChunkRepository extends JpaRepository<DocumentContentChunk, DocumentContentChunk.ChunkId> {
+    
+    /**
+     * Find all chunks of a document in text order
+     */
+    List<DocumentContentChunk> findByDocumentIdOrderByChunkIndex(UUID documentId);
+    
+    /**
+     * Find a range of chunks of a document in text order
+     */
+    List<DocumentContentChunk> findByDocumentIdAndChunkIndexBetweenOrderByChunkIndex(
+            UUID documentId, int firstChunk, int lastChunk);
+    
+    /**
+     * Check whether a document's content is stored in chunks
+     */
+    boolean existsByDocumentId(UUID documentId);
+    
+    /**
+     * Find up to limit chunks following the given one in (document, chunk index) order,
+     * as (document ID as text, chunk index, chunk data) rows
+     */
+    @Query(value = "SELECT CAST(document_id AS VARCHAR), chunk_index, data FROM document_content_chunks " +
+                   "WHERE document_id >= :afterDocumentId " +
+                   "AND (document_id > :afterDocumentId OR chunk_index > :afterChunkIndex) " +
+                   "ORDER BY document_id, chunk_index LIMIT :limit", nativeQuery = true)
+    List<Object[]> findChunkDataAfter(@Param("afterDocumentId") UUID afterDocumentId,
+                                      @Param("afterChunkIndex") int afterChunkIndex,
+                                      @Param("limit") int limit);
+    
+    /**
+     * Copy the chunks of one document to another without decompressing them
+     */
+    @Modifying
+    @Query(value = "INSERT INTO document_content_chunks (document_id, chunk_index, data) " +
+                   "SELECT :targetId, chunk_index, data FROM document_content_chunks WHERE document_id = :sourceId",
+           nativeQuery = true)
+    int copyChunks(@Param("sourceId") UUID sourceId, @Param("targetId") UUID targetId);
+    
+    /**
+     * Delete all chunks of a document
+     */
+    @Modifying
+    @Query("DELETE FROM DocumentContentChunk c WHERE c.documentId = :documentId")
+    int deleteByDocumentId(@Param("documentId") UUID documentId);
+}
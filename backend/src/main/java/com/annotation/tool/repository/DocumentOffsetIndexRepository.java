@@ -0,0 +1,35 @@
+package com.annotation.tool.repository;
+
+import com.annotation.tool.entity.DocumentOffsetIndex;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+/**
+ * Repository interface for DocumentOffsetIndex entity operations
+ */
+@Repository
+public interface DocumentOffsetIndexRepository extends JpaRepository<DocumentOffsetIndex, UUID> {
+    
+    /**
+     * Copy the offset index of one document to another with identical text
+     */
+    @Modifying
+    @Query(value = "INSERT INTO document_offset_indexes " +
+                   "(document_id, text_length, line_starts, paragraph_starts, page_starts) " +
+                   "SELECT :targetId, text_length, line_starts, paragraph_starts, page_starts " +
+                   "FROM document_offset_indexes WHERE document_id = :sourceId",
+           nativeQuery = true)
+    int copyIndex(@Param("sourceId") UUID sourceId, @Param("targetId") UUID targetId);
+    
+    /**
+     * Delete the offset index of a document
+     */
+    @Modifying
+    @Query("DELETE FROM DocumentOffsetIndex i WHERE i.documentId = :documentId")
+    int deleteByDocumentId(@Param("documentId") UUID documentId);
+}
@@ -1,12 +1,17 @@
 package com.annotation.tool.repository;
 
+import com.annotation.tool.dto.DocumentSummaryDTO;
 import com.annotation.tool.entity.Document;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -15,7 +20,17 @@ import java.util.UUID;
  * Provides methods for document management and analytics
  */
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, UUID> {
+public interface DocumentRepository extends JpaRepository<Document, UUID>, DocumentRepositoryCustom {
+    
+    /**
+     * Projection of a document's name and content length
+     */
+    interface ContentInfo {
+        
+        String getName();
+        
+        Integer getContentLength();
+    }
     
     /**
      * Find documents by file type
@@ -32,6 +47,23 @@ public interface DocumentRepository extends JpaRepository<Document, UUID> {
      */
     List<Document> findByOriginalFilename(String originalFilename);
     
+    /**
+     * Find an already extracted document with the same file content
+     */
+    Optional<Document> findFirstByContentHashAndFileTypeIgnoreCaseAndContentLengthIsNotNull(String contentHash, String fileType);
+    
+    /**
+     * Count documents sharing a stored file
+     */
+    long countByFilePath(String filePath);
+    
+    /**
+     * Find the next distinct stored file paths of documents not soft-deleted, in ascending order
+     */
+    @Query(value = "SELECT DISTINCT file_path FROM documents WHERE deleted_at IS NULL AND file_path > :afterPath " +
+                   "ORDER BY file_path LIMIT :limit", nativeQuery = true)
+    List<String> findFilePathsAfter(@Param("afterPath") String afterPath, @Param("limit") int limit);
+    
     /**
      * Find documents ordered by upload date (newest first)
      */
@@ -47,10 +79,13 @@ public interface DocumentRepository extends JpaRepository<Document, UUID> {
     List<Object[]> findDocumentsWithAnnotationCount();
     
     /**
-     * Find documents that contain a specific text in their content
+     * Find document summaries by ID, newest first
      */
-    @Query("SELECT d FROM Document d WHERE LOWER(d.content) LIKE LOWER(CONCAT('%', :searchText, '%'))")
-    List<Document> findByContentContaining(@Param("searchText") String searchText);
+    @Query("SELECT new com.annotation.tool.dto.DocumentSummaryDTO(" +
+           "d.id, d.name, d.originalFilename, d.fileType, d.fileSize, d.contentLength, d.uploadDate) " +
+           "FROM Document d WHERE d.id IN :ids " +
+           "ORDER BY d.uploadDate DESC, d.id DESC")
+    List<DocumentSummaryDTO> findSummariesByIds(@Param("ids") Collection<UUID> ids);
     
     /**
      * Get document statistics by file type
@@ -66,4 +101,78 @@ public interface DocumentRepository extends JpaRepository<Document, UUID> {
     @Query("SELECT d FROM Document d WHERE d.id NOT IN " +
            "(SELECT DISTINCT a.document.id FROM Annotation a)")
     List<Document> findDocumentsWithoutAnnotations();
+    
+    /**
+     * Get a document's name and content length without loading the document
+     */
+    @Query("SELECT d.name AS name, d.contentLength AS contentLength FROM Document d WHERE d.id = :id")
+    Optional<ContentInfo> findContentInfo(@Param("id") UUID id);
+    
+    /**
+     * Store the length of a document's extracted text
+     */
+    @Modifying
+    @Query("UPDATE Document d SET d.contentLength = :contentLength WHERE d.id = :id")
+    int updateContentLength(@Param("id") UUID id, @Param("contentLength") int contentLength);
+    
+    /**
+     * Find the IDs, as text, of documents whose text is still in the legacy uncompressed content column
+     */
+    @Query(value = "SELECT CAST(id AS VARCHAR) FROM documents WHERE content IS NOT NULL LIMIT :limit", nativeQuery = true)
+    List<String> findIdsWithLegacyContent(@Param("limit") int limit);
+    
+    /**
+     * Get a document's text from the legacy uncompressed content column
+     */
+    @Query(value = "SELECT content FROM documents WHERE id = :id", nativeQuery = true)
+    String findLegacyContent(@Param("id") UUID id);
+    
+    /**
+     * Get a window of a document's text from the legacy uncompressed content column;
+     * the start position is 1-based, as in SQL
+     */
+    @Query(value = "SELECT substring(content from :start for :length) FROM documents WHERE id = :id", nativeQuery = true)
+    String findLegacyContentWindow(@Param("id") UUID id, @Param("start") int start, @Param("length") int length);
+    
+    /**
+     * Find the IDs, as text, of documents whose legacy uncompressed content contains
+     * the given text (case-insensitive)
+     */
+    @Query(value = "SELECT CAST(id AS VARCHAR) FROM documents WHERE content IS NOT NULL " +
+                   "AND position(lower(:text) in lower(content)) > 0", nativeQuery = true)
+    List<String> findIdsWithLegacyContentContaining(@Param("text") String text);
+    
+    /**
+     * Clear the legacy uncompressed content column once the text is stored in chunks
+     */
+    @Modifying
+    @Query(value = "UPDATE documents SET content = NULL WHERE id = :id", nativeQuery = true)
+    int clearLegacyContent(@Param("id") UUID id);
+    
+    /**
+     * Soft-delete a document, hiding it until it is purged
+     */
+    @Modifying
+    @Query("UPDATE Document d SET d.deletedAt = :deletedAt WHERE d.id = :id AND d.deletedAt IS NULL")
+    int markDeleted(@Param("id") UUID id, @Param("deletedAt") LocalDateTime deletedAt);
+    
+    /**
+     * Find the IDs, as text, of soft-deleted documents waiting to be purged, oldest deletion first
+     */
+    @Query(value = "SELECT CAST(id AS VARCHAR) FROM documents WHERE deleted_at IS NOT NULL " +
+                   "ORDER BY deleted_at LIMIT :limit", nativeQuery = true)
+    List<String> findIdsPendingPurge(@Param("limit") int limit);
+    
+    /**
+     * Check whether a document is soft-deleted and not yet purged
+     */
+    @Query(value = "SELECT COUNT(*) > 0 FROM documents WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    boolean isDeleted(@Param("id") UUID id);
+    
+    /**
+     * Remove the row of a soft-deleted document
+     */
+    @Modifying
+    @Query(value = "DELETE FROM documents WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeDeleted(@Param("id") UUID id);
 }
@@ -0,0 +1,89 @@
+package com.annotation.tool.repository;
+
+import com.annotation.tool.dto.DocumentSummaryDTO;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Custom repository operations for Document entity that need dynamic JPQL
+ */
+public interface DocumentRepositoryCustom {
+    
+    /**
+     * Filter, sort order and keyset position of a document summary listing
+     */
+    class SummaryQuery {
+        
+        private String fileType;
+        private String nameContains;
+        private boolean withoutAnnotations;
+        private DocumentSummaryDTO.SortField sortField = DocumentSummaryDTO.SortField.UPLOAD_DATE;
+        private boolean ascending;
+        private Object afterValue;
+        private UUID afterId;
+        
+        // Getters and Setters
+        public String getFileType() {
+            return fileType;
+        }
+        
+        public void setFileType(String fileType) {
+            this.fileType = fileType;
+        }
+        
+        public String getNameContains() {
+            return nameContains;
+        }
+        
+        public void setNameContains(String nameContains) {
+            this.nameContains = nameContains;
+        }
+        
+        public boolean isWithoutAnnotations() {
+            return withoutAnnotations;
+        }
+        
+        public void setWithoutAnnotations(boolean withoutAnnotations) {
+            this.withoutAnnotations = withoutAnnotations;
+        }
+        
+        public DocumentSummaryDTO.SortField getSortField() {
+            return sortField;
+        }
+        
+        public void setSortField(DocumentSummaryDTO.SortField sortField) {
+            this.sortField = sortField;
+        }
+        
+        public boolean isAscending() {
+            return ascending;
+        }
+        
+        public void setAscending(boolean ascending) {
+            this.ascending = ascending;
+        }
+        
+        public Object getAfterValue() {
+            return afterValue;
+        }
+        
+        public UUID getAfterId() {
+            return afterId;
+        }
+        
+        /**
+         * Start after the row with the given sort value and ID
+         */
+        public void setAfter(Object afterValue, UUID afterId) {
+            this.afterValue = afterValue;
+            this.afterId = afterId;
+        }
+    }
+    
+    /**
+     * Find document summaries without content, sorted by the requested field and
+     * then by ID, starting after the keyset position of the query
+     */
+    List<DocumentSummaryDTO> findSummaries(SummaryQuery query, int limit);
+}
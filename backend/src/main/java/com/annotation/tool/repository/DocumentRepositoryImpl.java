@@ -0,0 +1,66 @@
+package com.annotation.tool.repository;
+
+import com.annotation.tool.dto.DocumentSummaryDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+
+/**
+ * Implementation of the custom Document repository operations
+ */
+public class DocumentRepositoryImpl implements DocumentRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<DocumentSummaryDTO> findSummaries(SummaryQuery query, int limit) {
+        // The sort property comes from the SortField enum, never from user input
+        String sortPath = "d." + query.getSortField().getProperty();
+        String comparison = query.isAscending() ? ">" : "<";
+        String direction = query.isAscending() ? "ASC" : "DESC";
+        
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.annotation.tool.dto.DocumentSummaryDTO(" +
+                "d.id, d.name, d.originalFilename, d.fileType, d.fileSize, d.contentLength, d.uploadDate) " +
+                "FROM Document d WHERE 1 = 1");
+        if (query.getFileType() != null) {
+            jpql.append(" AND d.fileType = :fileType");
+        }
+        if (query.getNameContains() != null) {
+            jpql.append(" AND LOWER(d.name) LIKE LOWER(:namePattern) ESCAPE '\\'");
+        }
+        if (query.isWithoutAnnotations()) {
+            jpql.append(" AND NOT EXISTS (SELECT 1 FROM Annotation a WHERE a.document = d)");
+        }
+        if (query.getAfterId() != null) {
+            // The inclusive bound lets the database seek in the (sort, id) index; the
+            // row-value comparison itself does not type-check in HQL with parameters
+            jpql.append(" AND ").append(sortPath).append(' ').append(comparison).append("= :afterValue")
+                    .append(" AND (").append(sortPath).append(' ').append(comparison).append(" :afterValue")
+                    .append(" OR d.id ").append(comparison).append(" :afterId)");
+        }
+        jpql.append(" ORDER BY ").append(sortPath).append(' ').append(direction)
+                .append(", d.id ").append(direction);
+        
+        TypedQuery<DocumentSummaryDTO> typedQuery = entityManager.createQuery(jpql.toString(), DocumentSummaryDTO.class);
+        if (query.getFileType() != null) {
+            typedQuery.setParameter("fileType", query.getFileType());
+        }
+        if (query.getNameContains() != null) {
+            typedQuery.setParameter("namePattern", "%" + escapeLike(query.getNameContains()) + "%");
+        }
+        if (query.getAfterId() != null) {
+            typedQuery.setParameter("afterValue", query.getAfterValue());
+            typedQuery.setParameter("afterId", query.getAfterId());
+        }
+        
+        return typedQuery.setMaxResults(limit).getResultList();
+    }
+    
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -2,6 +2,7 @@ package com.annotation.tool.repository;
 
 import com.annotation.tool.entity.LabelRelationship;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -63,4 +64,11 @@ public interface LabelRelationshipRepository extends JpaRepository<LabelRelation
            "GROUP BY lr.targetLabel " +
            "ORDER BY COUNT(lr) DESC")
     List<Object[]> findLabelsWithMostIncomingRelationships();
+    
+    /**
+     * Delete all relationships from or to a label in one statement, without loading them
+     */
+    @Modifying
+    @Query("DELETE FROM LabelRelationship lr WHERE lr.sourceLabel.id = :labelId OR lr.targetLabel.id = :labelId")
+    int deleteAllForLabel(@Param("labelId") UUID labelId);
 }
@@ -24,6 +24,11 @@ public interface LabelRepository extends JpaRepository<Label, UUID> {
      */
     Optional<Label> findByName(String name);
     
+    /**
+     * Check whether a label has child labels
+     */
+    boolean existsByParentId(UUID parentId);
+    
     /**
      * Find all root labels (labels without parent)
      */
@@ -0,0 +1,83 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.dto.AnnotationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Service class deriving the context around annotations from their document's text
+ *
+ * Context is not stored with annotations. It is cut from the document text
+ * when annotations are returned, at a length each request may choose, and
+ * the text is read through the shared content chunk cache in windows
+ * covering many nearby annotations at once.
+ */
+@Service
+public class AnnotationContextService {
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Value("${app.annotations.context.default-length:50}")
+    private int defaultContextLength;
+
+    @Value("${app.annotations.context.max-length:1000}")
+    private int maxContextLength;
+
+    /**
+     * Fill in the context before and after an annotation
+     *
+     * @param contextLength characters on each side, null for the configured default
+     */
+    public AnnotationDTO withContext(AnnotationDTO annotation, Integer contextLength) {
+        withContext(List.of(annotation), contextLength);
+        return annotation;
+    }
+
+    /**
+     * Fill in the context before and after annotations of any documents
+     *
+     * A context length of 0 leaves the context out without reading any text.
+     *
+     * @param contextLength characters on each side, null for the configured default
+     */
+    public List<AnnotationDTO> withContext(List<AnnotationDTO> annotations, Integer contextLength) {
+        int length = contextLength != null ? contextLength : defaultContextLength;
+        if (length < 0 || length > maxContextLength) {
+            throw new IllegalArgumentException("Context length must be between 0 and " + maxContextLength);
+        }
+        if (length == 0) {
+            return annotations;
+        }
+
+        Map<UUID, List<AnnotationDTO>> byDocument = annotations.stream()
+                .filter(annotation -> annotation.getDocumentId() != null)
+                .collect(Collectors.groupingBy(AnnotationDTO::getDocumentId));
+        byDocument.forEach((documentId, documentAnnotations) -> fillContext(documentId, documentAnnotations, length));
+        return annotations;
+    }
+
+    private void fillContext(UUID documentId, List<AnnotationDTO> annotations, int length) {
+        List<AnnotationDTO> sorted = annotations.stream()
+                .filter(annotation -> annotation.getStartPosition() != null && annotation.getEndPosition() != null)
+                .sorted(Comparator.comparing(AnnotationDTO::getStartPosition))
+                .collect(Collectors.toList());
+        int[] starts = sorted.stream().mapToInt(AnnotationDTO::getStartPosition).toArray();
+        int[] ends = sorted.stream().mapToInt(AnnotationDTO::getEndPosition).toArray();
+
+        documentContentService.readAround(documentId, starts, ends, length, (range, window, windowOffset) -> {
+            AnnotationDTO annotation = sorted.get(range);
+            int start = Math.max(0, Math.min(window.length(), annotation.getStartPosition() - windowOffset));
+            int end = Math.max(start, Math.min(window.length(), annotation.getEndPosition() - windowOffset));
+            annotation.setContextBefore(window.substring(Math.max(0, start - length), start));
+            annotation.setContextAfter(window.substring(end, Math.min(window.length(), end + length)));
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.dto.AnnotationDTO;
+import com.annotation.tool.repository.AnnotationRepository;
+import com.annotation.tool.repository.AnnotationRepositoryCustom;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Service class exporting annotations as newline-delimited JSON
+ *
+ * Annotations are read through a forward-only cursor as DTO rows, which never
+ * enter the persistence context, and each is written out as one JSON line as
+ * soon as it is read. Memory use stays flat however many annotations match.
+ */
+@Service
+public class AnnotationExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationExportService.class);
+
+    @Autowired
+    private AnnotationRepository annotationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.annotations.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Build the query of an export in creation order, checking its filter before
+     * anything is streamed
+     *
+     * @param createdFrom inclusive lower bound of the creation time, or null
+     * @param createdBefore exclusive upper bound of the creation time, or null
+     */
+    public AnnotationRepositoryCustom.ListingQuery createQuery(UUID documentId, UUID labelId,
+                                                               LocalDateTime createdFrom,
+                                                               LocalDateTime createdBefore) {
+        if (createdFrom != null && createdBefore != null && !createdFrom.isBefore(createdBefore)) {
+            throw new IllegalArgumentException("createdFrom must be before createdBefore");
+        }
+        AnnotationRepositoryCustom.ListingQuery query = new AnnotationRepositoryCustom.ListingQuery();
+        query.setDocumentId(documentId);
+        query.setLabelId(labelId);
+        query.setCreatedBetween(createdFrom, createdBefore);
+        query.setSortField(AnnotationDTO.SortField.CREATED_AT);
+        query.setAscending(true);
+        return query;
+    }
+
+    /**
+     * Write every annotation of the query to the stream, one JSON object per line
+     *
+     * The stream is flushed but not closed.
+     *
+     * @return the number of annotations written
+     */
+    @Transactional(readOnly = true)
+    public long export(AnnotationRepositoryCustom.ListingQuery query, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        // Rows are flushed in buffer-sized blocks rather than one by one
+        ObjectWriter writer = objectMapper.writerFor(AnnotationDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (Stream<AnnotationDTO> rows = annotationRepository.streamListing(query, fetchSize);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<AnnotationDTO> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+
+        logger.info("Exported {} annotations in {} ms", count, (System.nanoTime() - started) / 1_000_000);
+        return count;
+    }
+}
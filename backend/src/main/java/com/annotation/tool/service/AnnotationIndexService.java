@@ -0,0 +1,429 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.dto.AnnotationSpanDTO;
+import com.annotation.tool.repository.AnnotationRepository;
+import com.annotation.tool.repository.DocumentRepository;
+import com.annotation.tool.util.AnnotationIntervalIndex;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Service class answering position queries over a document's annotations from memory
+ *
+ * The interval indexes of recently queried documents are kept in a bounded
+ * LRU map, so documents being annotated are served without touching the
+ * database. An index is loaded from the document's annotation spans on first
+ * use and then kept current by the annotation writes, which are applied once
+ * their transaction commits. Applying a change is idempotent and serialized
+ * with loading the same document, so a write committing while its document is
+ * being loaded is reflected either way. Only indexes loaded outside any
+ * transaction are cached, so they never hold uncommitted changes.
+ *
+ * Writers checking a new span for conflicts reserve it until their
+ * transaction completes, so concurrent writers see each other's spans before
+ * they are committed and indexed. A writer whose document is not cached reads
+ * its spans through its own connection rather than a second one, which could
+ * exhaust the pool while writers wait on a document lock; that snapshot is
+ * kept for the rest of the transaction until another write to the same lock
+ * stripe completes.
+ */
+@Service
+public class AnnotationIndexService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private AnnotationRepository annotationRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.annotations.index.cache-size:64}")
+    private int cacheSize;
+
+    @Value("${app.annotations.index.max-nearest:100}")
+    private int maxNearest;
+
+    // Document ID -> annotation index, in least recently used order
+    private final LinkedHashMap<UUID, AnnotationIntervalIndex> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, AnnotationIntervalIndex> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    // Serialize loading and changing the index of the same document
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final long[] versions = new long[LOCK_STRIPES]; // Incremented under the lock whenever a write completes
+    private long generation; // Incremented whenever every index is dropped
+
+    // Document ID -> spans reserved by transactions that have not completed yet
+    private final Map<UUID, ReservedSpans> reserved = new ConcurrentHashMap<>();
+
+    private TransactionTemplate loadTransaction;
+
+    public AnnotationIndexService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        // Only used outside any transaction, so never nested in one
+        loadTransaction = new TransactionTemplate(transactionManager);
+        loadTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Get the spans overlapping [start, end), or with contained lying within [start, end]
+     */
+    public Optional<List<AnnotationSpanDTO>> getSpans(UUID documentId, int start, int end, boolean contained) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range");
+        }
+        return getIndex(documentId).map(index -> toDTOs(documentId,
+                contained ? index.containedIn(start, end) : index.overlapping(start, end)));
+    }
+
+    /**
+     * Get the spans covering the character at a position
+     */
+    public Optional<List<AnnotationSpanDTO>> getSpansAt(UUID documentId, int position) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Position must be non-negative");
+        }
+        return getIndex(documentId).map(index -> toDTOs(documentId, index.at(position)));
+    }
+
+    /**
+     * Get the spans closest to a position, those covering it first
+     */
+    public Optional<List<AnnotationSpanDTO>> getNearestSpans(UUID documentId, int position, int limit) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Position must be non-negative");
+        }
+        if (limit < 1 || limit > maxNearest) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxNearest);
+        }
+        return getIndex(documentId).map(index -> toDTOs(documentId, index.nearest(position, limit)));
+    }
+
+    /**
+     * Get the annotation index of a document, loading it on first use
+     *
+     * Within a transaction, an index that is not cached is read through the
+     * transaction's connection and not cached.
+     */
+    public Optional<AnnotationIntervalIndex> getIndex(UUID documentId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return getIndexInTransaction(documentId);
+        }
+
+        synchronized (this) {
+            AnnotationIntervalIndex cached = cache.get(documentId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+
+        synchronized (lock(documentId)) {
+            synchronized (this) {
+                AnnotationIntervalIndex cached = cache.get(documentId);
+                if (cached != null) {
+                    return Optional.of(cached);
+                }
+            }
+
+            long loadGeneration;
+            synchronized (this) {
+                loadGeneration = generation;
+            }
+            Optional<AnnotationIntervalIndex> loaded = loadTransaction.execute(status -> load(documentId));
+            if (loaded.isEmpty()) {
+                return loaded;
+            }
+            AnnotationIntervalIndex index = loaded.get();
+            synchronized (this) {
+                // Not cached if every index was dropped while loading
+                if (generation == loadGeneration) {
+                    cache.put(documentId, index);
+                }
+            }
+            return Optional.of(index);
+        }
+    }
+
+    /**
+     * Get the cached index of a document, or else the snapshot the calling
+     * transaction read of it, reading one if there is none or another write
+     * to the lock stripe has completed since
+     */
+    private Optional<AnnotationIntervalIndex> getIndexInTransaction(UUID documentId) {
+        synchronized (lock(documentId)) {
+            long loadGeneration;
+            synchronized (this) {
+                AnnotationIntervalIndex cached = cache.get(documentId);
+                if (cached != null) {
+                    return Optional.of(cached);
+                }
+                loadGeneration = generation;
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<UUID, Snapshot> snapshots = (Map<UUID, Snapshot>) TransactionSynchronizationManager.getResource(this);
+            if (snapshots == null) {
+                snapshots = new HashMap<>();
+                TransactionSynchronizationManager.bindResource(this, snapshots);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(AnnotationIndexService.this);
+                    }
+                });
+            }
+            long version = versions[stripe(documentId)];
+            Snapshot snapshot = snapshots.get(documentId);
+            if (snapshot == null || snapshot.version != version || snapshot.generation != loadGeneration) {
+                snapshot = new Snapshot(load(documentId), version, loadGeneration);
+                snapshots.put(documentId, snapshot);
+            }
+            return snapshot.index;
+        }
+    }
+
+    private Optional<AnnotationIntervalIndex> load(UUID documentId) {
+        if (!documentRepository.existsById(documentId)) {
+            return Optional.empty();
+        }
+        return Optional.of(AnnotationIntervalIndex.build(annotationRepository.findSpansByDocumentId(documentId).stream()
+                .map(span -> new AnnotationIntervalIndex.Entry(span.getId(), span.getLabelId(),
+                        span.getStartPosition(), span.getEndPosition()))
+                .collect(Collectors.toList())));
+    }
+
+    /**
+     * Find the spans of a document a new span conflicts with, among its indexed
+     * spans and the spans reserved by uncommitted writes, and reserve the new
+     * span if there are none
+     *
+     * Only spans overlapping the new span or equal to it are tested. The
+     * reservation lasts until the calling transaction completes.
+     *
+     * @return the conflicting spans in start order, empty if the span was reserved
+     */
+    public List<AnnotationIntervalIndex.Entry> reserveUnlessConflicting(UUID documentId,
+                                                                       AnnotationIntervalIndex.Entry span,
+                                                                       Predicate<AnnotationIntervalIndex.Entry> conflicts) {
+        synchronized (lock(documentId)) {
+            AnnotationIntervalIndex index = getIndex(documentId)
+                    .orElseThrow(() -> new IllegalArgumentException("Document not found"));
+            List<AnnotationIntervalIndex.Entry> candidates = new ArrayList<>(span.getStart() < span.getEnd()
+                    ? index.overlapping(span.getStart(), span.getEnd())
+                    : index.matching(span.getStart(), span.getEnd()));
+            ReservedSpans reservedSpans = reserved.get(documentId);
+            if (reservedSpans != null) {
+                candidates.addAll(reservedSpans.overlapping(span.getStart(), span.getEnd()));
+            }
+
+            List<AnnotationIntervalIndex.Entry> conflicting = candidates.stream()
+                    .filter(conflicts)
+                    .sorted(Comparator.comparingInt(AnnotationIntervalIndex.Entry::getStart)
+                            .thenComparingInt(AnnotationIntervalIndex.Entry::getEnd))
+                    .collect(Collectors.toList());
+            if (conflicting.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+                reserved.computeIfAbsent(documentId, id -> new ReservedSpans()).add(span);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        // Runs after the commit has been applied to the index
+                        release(documentId, span);
+                    }
+                });
+            }
+            return conflicting;
+        }
+    }
+
+    /**
+     * Apply annotation changes to a document's index once the writing transaction commits
+     *
+     * Added spans replace spans with the same ID, so updates are passed as added only.
+     */
+    public void applyAfterCommit(UUID documentId, Collection<UUID> removedIds,
+                                 Collection<AnnotationIntervalIndex.Entry> added) {
+        afterCommit(() -> {
+            synchronized (lock(documentId)) {
+                versions[stripe(documentId)]++;
+                AnnotationIntervalIndex cached;
+                synchronized (this) {
+                    cached = cache.get(documentId);
+                }
+                if (cached != null) {
+                    // Merged outside the map lock; the document lock keeps changes in order
+                    AnnotationIntervalIndex changed = cached.withChanges(removedIds, added);
+                    synchronized (this) {
+                        if (cache.get(documentId) == cached) {
+                            cache.put(documentId, changed);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Forget the index of a document once the writing transaction commits
+     */
+    public void evictAfterCommit(UUID documentId) {
+        afterCommit(() -> {
+            synchronized (lock(documentId)) {
+                versions[stripe(documentId)]++;
+                synchronized (this) {
+                    cache.remove(documentId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forget every index once the writing transaction commits, after changes
+     * spanning many documents
+     */
+    public void evictAllAfterCommit() {
+        afterCommit(() -> {
+            synchronized (this) {
+                cache.clear();
+                generation++;
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void release(UUID documentId, AnnotationIntervalIndex.Entry span) {
+        synchronized (lock(documentId)) {
+            versions[stripe(documentId)]++;
+            ReservedSpans reservedSpans = reserved.get(documentId);
+            if (reservedSpans != null && reservedSpans.remove(span)) {
+                reserved.remove(documentId);
+            }
+        }
+    }
+
+    private Object lock(UUID documentId) {
+        return locks[stripe(documentId)];
+    }
+
+    private static int stripe(UUID documentId) {
+        return Math.floorMod(documentId.hashCode(), LOCK_STRIPES);
+    }
+
+    private List<AnnotationSpanDTO> toDTOs(UUID documentId, List<AnnotationIntervalIndex.Entry> entries) {
+        return entries.stream()
+                .map(entry -> new AnnotationSpanDTO(entry.getId(), documentId, entry.getLabelId(),
+                        entry.getStart(), entry.getEnd()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Index of a document as read by a writing transaction
+     */
+    private static final class Snapshot {
+
+        private final Optional<AnnotationIntervalIndex> index;
+        private final long version;
+        private final long generation;
+
+        private Snapshot(Optional<AnnotationIntervalIndex> index, long version, long generation) {
+            this.index = index;
+            this.version = version;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Spans of one document reserved by uncommitted writes, by start
+     */
+    private static final class ReservedSpans {
+
+        private final TreeMap<Integer, List<AnnotationIntervalIndex.Entry>> byStart = new TreeMap<>();
+        private int maxLength; // Longest span reserved since the document had none
+        private int count;
+
+        private void add(AnnotationIntervalIndex.Entry span) {
+            byStart.computeIfAbsent(span.getStart(), start -> new ArrayList<>()).add(span);
+            maxLength = Math.max(maxLength, span.getEnd() - span.getStart());
+            count++;
+        }
+
+        /**
+         * Remove a span by identity
+         *
+         * @return whether no spans are left
+         */
+        private boolean remove(AnnotationIntervalIndex.Entry span) {
+            List<AnnotationIntervalIndex.Entry> spans = byStart.get(span.getStart());
+            if (spans != null && spans.removeIf(entry -> entry == span)) {
+                count--;
+                if (spans.isEmpty()) {
+                    byStart.remove(span.getStart());
+                }
+            }
+            return count == 0;
+        }
+
+        /**
+         * Find the spans overlapping [start, end) or, for an empty range, equal to it
+         */
+        private List<AnnotationIntervalIndex.Entry> overlapping(int start, int end) {
+            List<AnnotationIntervalIndex.Entry> result = new ArrayList<>();
+            for (List<AnnotationIntervalIndex.Entry> spans
+                    : byStart.subMap(start - maxLength, true, end, start == end).values()) {
+                for (AnnotationIntervalIndex.Entry span : spans) {
+                    boolean overlaps = start < end
+                            ? span.getStart() < end && span.getEnd() > start
+                            : span.getStart() == start && span.getEnd() == end;
+                    if (overlaps) {
+                        result.add(span);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
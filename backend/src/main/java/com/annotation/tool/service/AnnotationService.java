@@ -1,20 +1,38 @@
 package com.annotation.tool.service;
 
 import com.annotation.tool.dto.AnnotationDTO;
+import com.annotation.tool.dto.BulkAnnotationItemResultDTO;
+import com.annotation.tool.dto.BulkAnnotationRequestDTO;
+import com.annotation.tool.dto.BulkAnnotationResultDTO;
+import com.annotation.tool.dto.CursorPageDTO;
 import com.annotation.tool.entity.Annotation;
 import com.annotation.tool.entity.Document;
 import com.annotation.tool.entity.Label;
 import com.annotation.tool.repository.AnnotationRepository;
+import com.annotation.tool.repository.AnnotationRepositoryCustom;
 import com.annotation.tool.repository.DocumentRepository;
 import com.annotation.tool.repository.LabelRepository;
+import com.annotation.tool.util.AnnotationIntervalIndex;
 import com.annotation.tool.util.DTOMapper;
-import com.annotation.tool.util.FileProcessingUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -40,62 +58,114 @@ public class AnnotationService {
     private DTOMapper dtoMapper;
     
     @Autowired
-    private FileProcessingUtil fileProcessingUtil;
+    private DocumentContentService documentContentService;
     
-    private static final int CONTEXT_LENGTH = 50; // Characters before and after annotation
+    @Autowired
+    private AnnotationIndexService annotationIndexService;
+    
+    @Autowired
+    private AnnotationContextService annotationContextService;
+    
+    private static final int ID_BATCH_SIZE = 1000; // IDs per IN list
+    private static final String CONCURRENT_CONFLICT_MESSAGE =
+            "Annotation conflicts with an annotation with the same label that is being saved concurrently";
+    
+    @Value("${app.annotations.bulk.max-items:10000}")
+    private int bulkMaxItems;
+    
+    @Value("${app.annotations.overlap.policy:allow}")
+    private String defaultOverlapPolicy;
+    
+    @Value("${app.annotations.overlap.min-ratio:0.5}")
+    private double overlapMinRatio;
+    
+    @Value("${app.annotations.default-page-size:100}")
+    private int defaultPageSize;
+    
+    @Value("${app.annotations.max-page-size:1000}")
+    private int maxPageSize;
     
     /**
-     * Get all annotations
+     * Get a page of all annotations
+     * 
+     * Listings are keyset paginated on the sort field (createdAt or startPosition)
+     * and the ID. Annotation context is read from the document text at the given
+     * length on each side, null for the configured default and 0 for none.
      */
-    public List<AnnotationDTO> getAllAnnotations() {
-        return annotationRepository.findAll()
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<AnnotationDTO> getAllAnnotations(String cursor, Integer limit, String sort,
+                                                          String direction, Integer contextLength) {
+        return findListingPage(new AnnotationRepositoryCustom.ListingQuery(), cursor, limit, sort, direction,
+                contextLength);
     }
     
     /**
      * Get annotation by ID
      */
-    public Optional<AnnotationDTO> getAnnotationById(UUID id) {
-        return annotationRepository.findById(id)
-                .map(dtoMapper::toDTO);
+    public Optional<AnnotationDTO> getAnnotationById(UUID id, Integer contextLength) {
+        return annotationRepository.findViewById(id)
+                .map(dtoMapper::toDTO)
+                .map(annotation -> annotationContextService.withContext(annotation, contextLength));
     }
     
     /**
-     * Get annotations for a specific document
+     * Get a page of the annotations of a specific document
      */
-    public List<AnnotationDTO> getAnnotationsByDocumentId(UUID documentId) {
-        return annotationRepository.findByDocumentIdOrderByStartPosition(documentId)
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<AnnotationDTO> getAnnotationsByDocumentId(UUID documentId, String cursor, Integer limit,
+                                                                   String sort, String direction,
+                                                                   Integer contextLength) {
+        AnnotationRepositoryCustom.ListingQuery query = new AnnotationRepositoryCustom.ListingQuery();
+        query.setDocumentId(documentId);
+        return findListingPage(query, cursor, limit, sort, direction, contextLength);
     }
     
     /**
-     * Get annotations with a specific label
+     * Get a page of the annotations with a specific label
      */
-    public List<AnnotationDTO> getAnnotationsByLabelId(UUID labelId) {
-        return annotationRepository.findByLabelId(labelId)
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<AnnotationDTO> getAnnotationsByLabelId(UUID labelId, String cursor, Integer limit,
+                                                                String sort, String direction,
+                                                                Integer contextLength) {
+        AnnotationRepositoryCustom.ListingQuery query = new AnnotationRepositoryCustom.ListingQuery();
+        query.setLabelId(labelId);
+        return findListingPage(query, cursor, limit, sort, direction, contextLength);
     }
     
     /**
-     * Get annotations by document and label
+     * Get a page of the annotations of a document with a label
      */
-    public List<AnnotationDTO> getAnnotationsByDocumentAndLabel(UUID documentId, UUID labelId) {
-        return annotationRepository.findByDocumentIdAndLabelId(documentId, labelId)
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<AnnotationDTO> getAnnotationsByDocumentAndLabel(UUID documentId, UUID labelId,
+                                                                         String cursor, Integer limit,
+                                                                         String sort, String direction,
+                                                                         Integer contextLength) {
+        AnnotationRepositoryCustom.ListingQuery query = new AnnotationRepositoryCustom.ListingQuery();
+        query.setDocumentId(documentId);
+        query.setLabelId(labelId);
+        return findListingPage(query, cursor, limit, sort, direction, contextLength);
     }
     
     /**
-     * Create a new annotation
+     * Create a new annotation under the configured overlap policy
      */
     public AnnotationDTO createAnnotation(AnnotationDTO annotationDTO) {
+        return createAnnotation(annotationDTO, null);
+    }
+    
+    /**
+     * Create a new annotation
+     * 
+     * Unless the overlap policy allows it, a duplicate or heavy overlap of an
+     * annotation with the same label is refused or merged into that annotation,
+     * which is then returned instead. Conflicts are found in the document's
+     * interval index.
+     * 
+     * @param overlapPolicy the policy name, or null for the configured one
+     */
+    public AnnotationDTO createAnnotation(AnnotationDTO annotationDTO, String overlapPolicy) {
+        AnnotationDTO.OverlapPolicy policy = resolveOverlapPolicy(overlapPolicy);
+        
         // Validate that document and label exist
         Document document = documentRepository.findById(annotationDTO.getDocumentId())
                 .orElseThrow(() -> new IllegalArgumentException("Document not found"));
@@ -103,27 +173,25 @@ public class AnnotationService {
         Label label = labelRepository.findById(annotationDTO.getLabelId())
                 .orElseThrow(() -> new IllegalArgumentException("Label not found"));
         
-        // Validate positions
-        if (!fileProcessingUtil.isValidPosition(document.getContent(), 
-                annotationDTO.getStartPosition(), annotationDTO.getEndPosition())) {
-            throw new IllegalArgumentException("Invalid annotation positions");
+        if (policy != AnnotationDTO.OverlapPolicy.ALLOW) {
+            validatePositions(document, annotationDTO.getStartPosition(), annotationDTO.getEndPosition());
+            // Not saved yet, so reserved without an ID
+            AnnotationIntervalIndex.Entry span = new AnnotationIntervalIndex.Entry(null, label.getId(),
+                    annotationDTO.getStartPosition(), annotationDTO.getEndPosition());
+            List<AnnotationIntervalIndex.Entry> conflicting = annotationIndexService.reserveUnlessConflicting(
+                    document.getId(), span, existing -> conflicts(existing, span));
+            if (!conflicting.isEmpty()) {
+                if (policy == AnnotationDTO.OverlapPolicy.REJECT) {
+                    throw new IllegalArgumentException(conflictMessage(conflicting.get(0), span));
+                }
+                return annotationContextService.withContext(
+                        dtoMapper.toDTO(mergeInto(conflicting.get(0), span)), null);
+            }
         }
         
-        // Extract selected text and context
-        String selectedText = fileProcessingUtil.extractTextBetweenPositions(
-                document.getContent(), 
-                annotationDTO.getStartPosition(), 
-                annotationDTO.getEndPosition());
-        
-        String contextBefore = fileProcessingUtil.getContextBefore(
-                document.getContent(), 
-                annotationDTO.getStartPosition(), 
-                CONTEXT_LENGTH);
-        
-        String contextAfter = fileProcessingUtil.getContextAfter(
-                document.getContent(), 
-                annotationDTO.getEndPosition(), 
-                CONTEXT_LENGTH);
+        // Validate positions, then extract selected text
+        String selectedText = readSelection(document, 
+                annotationDTO.getStartPosition(), annotationDTO.getEndPosition());
         
         // Create annotation entity
         Annotation annotation = new Annotation(
@@ -131,13 +199,12 @@ public class AnnotationService {
                 label,
                 annotationDTO.getStartPosition(),
                 annotationDTO.getEndPosition(),
-                selectedText,
-                contextBefore,
-                contextAfter
+                selectedText
         );
         
         Annotation savedAnnotation = annotationRepository.save(annotation);
-        return dtoMapper.toDTO(savedAnnotation);
+        annotationIndexService.applyAfterCommit(document.getId(), List.of(), List.of(toIndexEntry(savedAnnotation)));
+        return annotationContextService.withContext(dtoMapper.toDTO(savedAnnotation), null);
     }
     
     /**
@@ -161,37 +228,19 @@ public class AnnotationService {
             Document document = existingAnnotation.getDocument();
             
             // Validate new positions
-            if (!fileProcessingUtil.isValidPosition(document.getContent(), 
-                    annotationDTO.getStartPosition(), annotationDTO.getEndPosition())) {
-                throw new IllegalArgumentException("Invalid annotation positions");
-            }
+            String selectedText = readSelection(document, 
+                    annotationDTO.getStartPosition(), annotationDTO.getEndPosition());
             
             // Update positions and text
             existingAnnotation.setStartPosition(annotationDTO.getStartPosition());
             existingAnnotation.setEndPosition(annotationDTO.getEndPosition());
-            
-            String selectedText = fileProcessingUtil.extractTextBetweenPositions(
-                    document.getContent(), 
-                    annotationDTO.getStartPosition(), 
-                    annotationDTO.getEndPosition());
-            
-            String contextBefore = fileProcessingUtil.getContextBefore(
-                    document.getContent(), 
-                    annotationDTO.getStartPosition(), 
-                    CONTEXT_LENGTH);
-            
-            String contextAfter = fileProcessingUtil.getContextAfter(
-                    document.getContent(), 
-                    annotationDTO.getEndPosition(), 
-                    CONTEXT_LENGTH);
-            
             existingAnnotation.setSelectedText(selectedText);
-            existingAnnotation.setContextBefore(contextBefore);
-            existingAnnotation.setContextAfter(contextAfter);
         }
         
         Annotation savedAnnotation = annotationRepository.save(existingAnnotation);
-        return dtoMapper.toDTO(savedAnnotation);
+        annotationIndexService.applyAfterCommit(savedAnnotation.getDocument().getId(), List.of(),
+                List.of(toIndexEntry(savedAnnotation)));
+        return annotationContextService.withContext(dtoMapper.toDTO(savedAnnotation), null);
     }
     
     /**
@@ -202,26 +251,33 @@ public class AnnotationService {
                 .orElseThrow(() -> new IllegalArgumentException("Annotation not found"));
         
         annotationRepository.delete(annotation);
+        annotationIndexService.applyAfterCommit(annotation.getDocument().getId(), List.of(id), List.of());
     }
     
     /**
-     * Search annotations by selected text
+     * Search a page of annotations by selected text
      */
-    public List<AnnotationDTO> searchAnnotationsByText(String searchTerm) {
-        return annotationRepository.findBySelectedTextContaining(searchTerm)
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<AnnotationDTO> searchAnnotationsByText(String searchTerm, String cursor, Integer limit,
+                                                                String sort, String direction,
+                                                                Integer contextLength) {
+        AnnotationRepositoryCustom.ListingQuery query = new AnnotationRepositoryCustom.ListingQuery();
+        query.setTextContains(searchTerm);
+        return findListingPage(query, cursor, limit, sort, direction, contextLength);
     }
     
     /**
-     * Get annotations within a specific position range
+     * Get a page of the annotations within a specific position range
      */
-    public List<AnnotationDTO> getAnnotationsInRange(UUID documentId, int startPos, int endPos) {
-        return annotationRepository.findAnnotationsInRange(documentId, startPos, endPos)
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<AnnotationDTO> getAnnotationsInRange(UUID documentId, int startPos, int endPos,
+                                                              String cursor, Integer limit,
+                                                              String sort, String direction,
+                                                              Integer contextLength) {
+        AnnotationRepositoryCustom.ListingQuery query = new AnnotationRepositoryCustom.ListingQuery();
+        query.setDocumentId(documentId);
+        query.setWithin(startPos, endPos);
+        return findListingPage(query, cursor, limit, sort, direction, contextLength);
     }
     
     /**
@@ -254,18 +310,445 @@ public class AnnotationService {
     }
     
     /**
-     * Delete all annotations for a specific document
+     * Delete all annotations for a specific document in one statement
+     * 
+     * @return the number of deleted annotations
+     */
+    public int deleteAnnotationsByDocumentId(UUID documentId) {
+        int deleted = annotationRepository.deleteByDocumentId(documentId);
+        annotationIndexService.evictAfterCommit(documentId);
+        return deleted;
+    }
+    
+    /**
+     * Delete all annotations with a specific label in one statement
+     * 
+     * @return the number of deleted annotations
+     */
+    public int deleteAnnotationsByLabelId(UUID labelId) {
+        int deleted = annotationRepository.deleteByLabelId(labelId);
+        annotationIndexService.evictAllAfterCommit();
+        return deleted;
+    }
+    
+    /**
+     * Apply a batch of annotation deletions, updates and creations, in that order
+     * 
+     * Documents and labels are loaded once per batch, each document's text is
+     * read once per stretch covering its annotations, and rows are written in
+     * JDBC batches with pre-generated IDs. Invalid operations are reported per
+     * item and do not fail the others.
+     */
+    public BulkAnnotationResultDTO applyBulk(BulkAnnotationRequestDTO request) {
+        if (request.size() > bulkMaxItems) {
+            throw new IllegalArgumentException("A bulk request may contain at most " + bulkMaxItems + " operations");
+        }
+        AnnotationDTO.OverlapPolicy policy = resolveOverlapPolicy(request.getOverlapPolicy());
+        
+        BulkAnnotationResultDTO result = new BulkAnnotationResultDTO();
+        applyBulkDeletes(request.getDelete(), result);
+        
+        Map<UUID, AnnotationRepository.Span> spans = new HashMap<>();
+        for (List<UUID> ids : partition(request.getUpdate().stream()
+                .map(AnnotationDTO::getId).filter(Objects::nonNull).distinct().collect(Collectors.toList()))) {
+            annotationRepository.findSpansByIds(ids).forEach(span -> spans.put(span.getId(), span));
+        }
+        
+        // Every referenced document and label, loaded once
+        Set<UUID> documentIds = new HashSet<>();
+        Set<UUID> labelIds = new HashSet<>();
+        request.getCreate().forEach(dto -> {
+            documentIds.add(dto.getDocumentId());
+            labelIds.add(dto.getLabelId());
+        });
+        request.getUpdate().forEach(dto -> labelIds.add(dto.getLabelId()));
+        spans.values().forEach(span -> documentIds.add(span.getDocumentId()));
+        documentIds.remove(null);
+        labelIds.remove(null);
+        Map<UUID, Document> documents = new HashMap<>();
+        for (List<UUID> ids : partition(documentIds)) {
+            documentRepository.findAllById(ids).forEach(document -> documents.put(document.getId(), document));
+        }
+        Map<UUID, Label> labels = new HashMap<>();
+        for (List<UUID> ids : partition(labelIds)) {
+            labelRepository.findAllById(ids).forEach(label -> labels.put(label.getId(), label));
+        }
+        
+        // Spans deleted or moved by this request do not conflict with its creations
+        Set<UUID> replaced = new HashSet<>(request.getDelete());
+        request.getUpdate().forEach(dto -> replaced.add(dto.getId()));
+        replaced.remove(null);
+        
+        List<PendingAnnotation> pending = new ArrayList<>();
+        List<PendingMerge> merges = new ArrayList<>();
+        for (int index = 0; index < request.getCreate().size(); index++) {
+            AnnotationDTO dto = request.getCreate().get(index);
+            try {
+                PendingAnnotation item = prepare(BulkAnnotationItemResultDTO.Operation.CREATE, index,
+                        UUID.randomUUID(), documents.get(dto.getDocumentId()), dto, labels);
+                if (policy != AnnotationDTO.OverlapPolicy.ALLOW) {
+                    AnnotationIntervalIndex.Entry span = toIndexEntry(item.annotation);
+                    List<AnnotationIntervalIndex.Entry> conflicting = annotationIndexService.reserveUnlessConflicting(
+                            item.annotation.getDocument().getId(), span,
+                            existing -> !replaced.contains(existing.getId()) && conflicts(existing, span));
+                    if (!conflicting.isEmpty()) {
+                        if (policy == AnnotationDTO.OverlapPolicy.REJECT) {
+                            throw new IllegalArgumentException(conflictMessage(conflicting.get(0), span));
+                        }
+                        merges.add(new PendingMerge(index, item.annotation, conflicting.get(0)));
+                        continue;
+                    }
+                }
+                pending.add(item);
+            } catch (IllegalArgumentException e) {
+                result.addItem(BulkAnnotationItemResultDTO.failed(
+                        BulkAnnotationItemResultDTO.Operation.CREATE, index, null, e.getMessage()));
+            }
+        }
+        Set<UUID> updated = new HashSet<>();
+        for (int index = 0; index < request.getUpdate().size(); index++) {
+            AnnotationDTO dto = request.getUpdate().get(index);
+            try {
+                AnnotationRepository.Span span = dto.getId() != null ? spans.get(dto.getId()) : null;
+                if (span == null) {
+                    throw new IllegalArgumentException("Annotation not found");
+                }
+                if (!updated.add(span.getId())) {
+                    throw new IllegalArgumentException("Annotation is updated more than once");
+                }
+                pending.add(prepare(BulkAnnotationItemResultDTO.Operation.UPDATE, index, span.getId(),
+                        documents.get(span.getDocumentId()), dto, labels));
+            } catch (IllegalArgumentException e) {
+                result.addItem(BulkAnnotationItemResultDTO.failed(
+                        BulkAnnotationItemResultDTO.Operation.UPDATE, index, dto.getId(), e.getMessage()));
+            }
+        }
+        
+        applyBulkMerges(merges, pending, result);
+        
+        pending.stream()
+                .collect(Collectors.groupingBy(item -> item.annotation.getDocument().getId()))
+                .values()
+                .forEach(this::readSelections);
+        
+        List<Annotation> inserts = new ArrayList<>();
+        List<Annotation> updates = new ArrayList<>();
+        for (PendingAnnotation item : pending) {
+            (item.insert ? inserts : updates).add(item.annotation);
+            BulkAnnotationItemResultDTO.Status status = item.operation == BulkAnnotationItemResultDTO.Operation.UPDATE
+                    ? BulkAnnotationItemResultDTO.Status.UPDATED
+                    : item.insert ? BulkAnnotationItemResultDTO.Status.CREATED : BulkAnnotationItemResultDTO.Status.MERGED;
+            result.addItem(new BulkAnnotationItemResultDTO(item.operation, item.index, item.annotation.getId(), status));
+        }
+        annotationRepository.insertAll(inserts);
+        annotationRepository.updateAll(updates);
+        pending.stream()
+                .map(item -> item.annotation)
+                .collect(Collectors.groupingBy(annotation -> annotation.getDocument().getId(),
+                        Collectors.mapping(this::toIndexEntry, Collectors.toList())))
+                .forEach((documentId, added) -> annotationIndexService.applyAfterCommit(documentId, List.of(), added));
+        
+        result.sortItems();
+        return result;
+    }
+    
+    /**
+     * Delete the existing annotations of a bulk request set-based
+     */
+    private void applyBulkDeletes(List<UUID> ids, BulkAnnotationResultDTO result) {
+        Map<UUID, UUID> existing = new HashMap<>(); // Annotation ID -> document ID
+        for (List<UUID> batch : partition(ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList()))) {
+            annotationRepository.findSpansByIds(batch).forEach(span -> existing.put(span.getId(), span.getDocumentId()));
+        }
+        for (List<UUID> batch : partition(existing.keySet())) {
+            annotationRepository.deleteAllByIdInBatch(batch);
+        }
+        existing.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((documentId, removed) -> annotationIndexService.applyAfterCommit(documentId, removed, List.of()));
+        
+        for (int index = 0; index < ids.size(); index++) {
+            UUID id = ids.get(index);
+            if (id != null && existing.remove(id) != null) {
+                result.addItem(new BulkAnnotationItemResultDTO(BulkAnnotationItemResultDTO.Operation.DELETE, index, id,
+                        BulkAnnotationItemResultDTO.Status.DELETED));
+            } else {
+                result.addItem(BulkAnnotationItemResultDTO.failed(
+                        BulkAnnotationItemResultDTO.Operation.DELETE, index, id, "Annotation not found"));
+            }
+        }
+    }
+    
+    /**
+     * Fold bulk creations into the annotations they conflict with
+     * 
+     * A creation conflicting with an earlier creation of the same request widens
+     * that one; otherwise the committed annotation is widened and written as an
+     * update, once however many creations are merged into it.
+     */
+    private void applyBulkMerges(List<PendingMerge> merges, List<PendingAnnotation> pending,
+                                 BulkAnnotationResultDTO result) {
+        Map<UUID, PendingAnnotation> targets = new HashMap<>(); // Annotation ID -> pending write
+        pending.stream()
+                .filter(item -> item.insert)
+                .forEach(item -> targets.put(item.annotation.getId(), item));
+        
+        Map<UUID, AnnotationRepository.Span> committed = new HashMap<>();
+        for (List<UUID> ids : partition(merges.stream()
+                .map(merge -> merge.target.getId())
+                .filter(id -> id != null && !targets.containsKey(id))
+                .distinct()
+                .collect(Collectors.toList()))) {
+            annotationRepository.findSpansByIds(ids).forEach(span -> committed.put(span.getId(), span));
+        }
+        
+        for (PendingMerge merge : merges) {
+            UUID targetId = merge.target.getId();
+            PendingAnnotation target = targets.get(targetId);
+            if (target != null) {
+                result.addItem(new BulkAnnotationItemResultDTO(BulkAnnotationItemResultDTO.Operation.CREATE,
+                        merge.index, targetId, BulkAnnotationItemResultDTO.Status.MERGED));
+            } else {
+                AnnotationRepository.Span span = committed.get(targetId);
+                if (span == null || !span.getLabelId().equals(merge.annotation.getLabel().getId())) {
+                    // Not committed yet, or changed since it was indexed
+                    result.addItem(BulkAnnotationItemResultDTO.failed(BulkAnnotationItemResultDTO.Operation.CREATE,
+                            merge.index, null, CONCURRENT_CONFLICT_MESSAGE));
+                    continue;
+                }
+                Annotation annotation = new Annotation(merge.annotation.getDocument(), merge.annotation.getLabel(),
+                        span.getStartPosition(), span.getEndPosition(), null);
+                annotation.setId(targetId);
+                target = new PendingAnnotation(BulkAnnotationItemResultDTO.Operation.CREATE, merge.index,
+                        annotation, false);
+                targets.put(targetId, target);
+                pending.add(target);
+            }
+            
+            Annotation annotation = target.annotation;
+            annotation.setStartPosition(Math.min(annotation.getStartPosition(), merge.annotation.getStartPosition()));
+            annotation.setEndPosition(Math.max(annotation.getEndPosition(), merge.annotation.getEndPosition()));
+        }
+    }
+    
+    /**
+     * Validate a bulk creation or update and build its annotation without text
+     */
+    private PendingAnnotation prepare(BulkAnnotationItemResultDTO.Operation operation, int index, UUID id,
+                                      Document document, AnnotationDTO dto, Map<UUID, Label> labels) {
+        if (document == null) {
+            throw new IllegalArgumentException("Document not found");
+        }
+        Label label = dto.getLabelId() != null ? labels.get(dto.getLabelId()) : null;
+        if (label == null) {
+            throw new IllegalArgumentException("Label not found");
+        }
+        validatePositions(document, dto.getStartPosition(), dto.getEndPosition());
+        
+        Annotation annotation = new Annotation(document, label, dto.getStartPosition(), dto.getEndPosition(),
+                null);
+        annotation.setId(id);
+        return new PendingAnnotation(operation, index, annotation,
+                operation == BulkAnnotationItemResultDTO.Operation.CREATE);
+    }
+    
+    /**
+     * Fill in the selected text of annotations of one document
+     * 
+     * The annotations are visited in position order and the text is read in as
+     * few windows as possible.
+     */
+    private void readSelections(List<PendingAnnotation> items) {
+        items.sort(Comparator.comparing(item -> item.annotation.getStartPosition()));
+        int[] starts = items.stream().mapToInt(item -> item.annotation.getStartPosition()).toArray();
+        int[] ends = items.stream().mapToInt(item -> item.annotation.getEndPosition()).toArray();
+        
+        documentContentService.readAround(items.get(0).annotation.getDocument().getId(), starts, ends, 0,
+                (range, window, windowOffset) -> items.get(range).annotation.setSelectedText(
+                        window.substring(starts[range] - windowOffset, ends[range] - windowOffset)));
+    }
+    
+    /**
+     * Run an annotation listing from the cursor position and fill in the context of the page
+     */
+    private CursorPageDTO<AnnotationDTO> findListingPage(AnnotationRepositoryCustom.ListingQuery query,
+                                                         String cursor, Integer limit, String sort,
+                                                         String direction, Integer contextLength) {
+        query.setSortField(AnnotationDTO.SortField.fromProperty(sort));
+        if ("asc".equalsIgnoreCase(direction)) {
+            query.setAscending(true);
+        } else if (!"desc".equalsIgnoreCase(direction)) {
+            throw new IllegalArgumentException("Unsupported sort direction: " + direction);
+        }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        int pageSize = Math.min(limit != null ? limit : defaultPageSize, maxPageSize);
+        if (cursor != null) {
+            decodeCursor(cursor, query);
+        }
+        
+        // One extra row tells whether another page follows
+        List<AnnotationDTO> items = annotationRepository.findListing(query, pageSize + 1);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = new ArrayList<>(items.subList(0, pageSize));
+            nextCursor = encodeCursor(query, items.get(pageSize - 1));
+        }
+        
+        return new CursorPageDTO<>(annotationContextService.withContext(items, contextLength), nextCursor);
+    }
+    
+    /**
+     * Encode the keyset position after an annotation, together with the sort order it belongs to
+     */
+    private String encodeCursor(AnnotationRepositoryCustom.ListingQuery query, AnnotationDTO last) {
+        Object value = switch (query.getSortField()) {
+            case CREATED_AT -> last.getCreatedAt();
+            case START_POSITION -> last.getStartPosition();
+        };
+        String raw = query.getSortField().name() + "|" + (query.isAscending() ? "asc" : "desc") + "|"
+                + last.getId() + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private void decodeCursor(String cursor, AnnotationRepositoryCustom.ListingQuery query) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4
+                    || !parts[0].equals(query.getSortField().name())
+                    || !parts[1].equals(query.isAscending() ? "asc" : "desc")) {
+                throw new IllegalArgumentException("it does not match the requested sort order");
+            }
+            Object value = query.getSortField() == AnnotationDTO.SortField.CREATED_AT
+                    ? LocalDateTime.parse(parts[3])
+                    : Integer.valueOf(parts[3]);
+            query.setAfter(value, UUID.fromString(parts[2]));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        }
+    }
+    
+    private AnnotationDTO.OverlapPolicy resolveOverlapPolicy(String overlapPolicy) {
+        return AnnotationDTO.OverlapPolicy.fromName(overlapPolicy != null ? overlapPolicy : defaultOverlapPolicy);
+    }
+    
+    /**
+     * Whether a new span duplicates an existing span with the same label, or
+     * overlaps it by at least the configured share of the shorter of the two
+     */
+    private boolean conflicts(AnnotationIntervalIndex.Entry existing, AnnotationIntervalIndex.Entry span) {
+        if (!existing.getLabelId().equals(span.getLabelId())) {
+            return false;
+        }
+        if (existing.getStart() == span.getStart() && existing.getEnd() == span.getEnd()) {
+            return true;
+        }
+        int overlap = Math.min(existing.getEnd(), span.getEnd()) - Math.max(existing.getStart(), span.getStart());
+        int shorter = Math.min(existing.getEnd() - existing.getStart(), span.getEnd() - span.getStart());
+        return overlap > 0 && overlap >= overlapMinRatio * shorter;
+    }
+    
+    private String conflictMessage(AnnotationIntervalIndex.Entry existing, AnnotationIntervalIndex.Entry span) {
+        String conflict = existing.getStart() == span.getStart() && existing.getEnd() == span.getEnd()
+                ? "duplicates" : "overlaps";
+        return existing.getId() != null
+                ? "Annotation " + conflict + " annotation " + existing.getId() + " with the same label"
+                : CONCURRENT_CONFLICT_MESSAGE;
+    }
+    
+    /**
+     * Widen the annotation of a conflicting span to also cover a new span
      */
-    public void deleteAnnotationsByDocumentId(UUID documentId) {
-        List<Annotation> annotations = annotationRepository.findByDocumentId(documentId);
-        annotationRepository.deleteAll(annotations);
+    private Annotation mergeInto(AnnotationIntervalIndex.Entry existing, AnnotationIntervalIndex.Entry span) {
+        Annotation annotation = Optional.ofNullable(existing.getId())
+                .flatMap(annotationRepository::findById)
+                .orElseThrow(() -> new IllegalArgumentException(CONCURRENT_CONFLICT_MESSAGE));
+        
+        int startPosition = Math.min(annotation.getStartPosition(), span.getStart());
+        int endPosition = Math.max(annotation.getEndPosition(), span.getEnd());
+        if (startPosition == annotation.getStartPosition() && endPosition == annotation.getEndPosition()) {
+            return annotation;
+        }
+        String selectedText = readSelection(annotation.getDocument(), startPosition, endPosition);
+        annotation.setStartPosition(startPosition);
+        annotation.setEndPosition(endPosition);
+        annotation.setSelectedText(selectedText);
+        
+        Annotation savedAnnotation = annotationRepository.save(annotation);
+        annotationIndexService.applyAfterCommit(savedAnnotation.getDocument().getId(), List.of(),
+                List.of(toIndexEntry(savedAnnotation)));
+        return savedAnnotation;
+    }
+    
+    private AnnotationIntervalIndex.Entry toIndexEntry(Annotation annotation) {
+        return new AnnotationIntervalIndex.Entry(annotation.getId(), annotation.getLabel().getId(),
+                annotation.getStartPosition(), annotation.getEndPosition());
+    }
+    
+    private static <T> List<List<T>> partition(Collection<T> values) {
+        List<T> list = new ArrayList<>(values);
+        List<List<T>> batches = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += ID_BATCH_SIZE) {
+            batches.add(list.subList(from, Math.min(list.size(), from + ID_BATCH_SIZE)));
+        }
+        return batches;
     }
     
     /**
-     * Delete all annotations with a specific label
+     * Validate annotation positions and read the selected text
+     * 
+     * Only the selection is read from the document content.
      */
-    public void deleteAnnotationsByLabelId(UUID labelId) {
-        List<Annotation> annotations = annotationRepository.findByLabelId(labelId);
-        annotationRepository.deleteAll(annotations);
+    private String readSelection(Document document, int startPosition, int endPosition) {
+        validatePositions(document, startPosition, endPosition);
+        return documentContentService.readContent(document.getId(), startPosition, endPosition - startPosition);
+    }
+    
+    private void validatePositions(Document document, Integer startPosition, Integer endPosition) {
+        Integer contentLength = document.getContentLength();
+        if (contentLength == null || startPosition == null || endPosition == null
+                || startPosition < 0 || endPosition < startPosition || endPosition > contentLength) {
+            throw new IllegalArgumentException("Invalid annotation positions");
+        }
+    }
+    
+    /**
+     * Annotation of a bulk request waiting for its text to be read
+     */
+    private static final class PendingAnnotation {
+        
+        private final BulkAnnotationItemResultDTO.Operation operation;
+        private final int index;
+        private final Annotation annotation;
+        private final boolean insert; // False for updates and creations merged into a stored annotation
+        
+        private PendingAnnotation(BulkAnnotationItemResultDTO.Operation operation, int index, Annotation annotation,
+                                  boolean insert) {
+            this.operation = operation;
+            this.index = index;
+            this.annotation = annotation;
+            this.insert = insert;
+        }
+    }
+    
+    /**
+     * Creation of a bulk request to be merged into the annotation it conflicts with
+     */
+    private static final class PendingMerge {
+        
+        private final int index;
+        private final Annotation annotation;
+        private final AnnotationIntervalIndex.Entry target;
+        
+        private PendingMerge(int index, Annotation annotation, AnnotationIntervalIndex.Entry target) {
+            this.index = index;
+            this.annotation = annotation;
+            this.target = target;
+        }
     }
 }
@@ -0,0 +1,363 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.dto.ArchiveEntryResultDTO;
+import com.annotation.tool.dto.ArchiveUploadResultDTO;
+import com.annotation.tool.entity.Document;
+import com.annotation.tool.repository.DocumentRepository;
+import com.annotation.tool.storage.FileStore;
+import com.annotation.tool.util.FileProcessingUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Service class for bulk corpus uploads
+ *
+ * Streams the entries of a ZIP or tar archive to the upload store one at a
+ * time, extracts their text in parallel on a bounded pool and inserts the
+ * resulting documents in JDBC batches, each batch in its own transaction.
+ * Entries with the same bytes as an earlier entry of the archive are not
+ * extracted again: they wait for that entry and copy its text.
+ *
+ * A batch that fails to insert is reported as failed entry by entry and the
+ * rest of the archive is still processed. If the archive cannot be read to the
+ * end, extractions still running are cancelled. Files stored for entries that
+ * end up without a document are left to store reconciliation, as identical
+ * uploads may share them.
+ */
+@Service
+public class DocumentArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentArchiveService.class);
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private FileStore fileStore;
+
+    @Autowired
+    private FileProcessingUtil fileProcessingUtil;
+
+    @Autowired
+    @Qualifier("archiveExtractionExecutor")
+    private ThreadPoolTaskExecutor archiveExtractionExecutor;
+
+    @Autowired
+    private IngestionAdmissionService admissionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.servlet.multipart.max-file-size:50MB}")
+    private DataSize maxFileSize;
+
+    @Value("${app.extraction.archive.batch-size:50}")
+    private int batchSize;
+
+    /**
+     * A stored archive entry and the outcome of its extraction
+     */
+    private static final class ExtractedEntry {
+
+        private final String entryName;
+        private final String filename;
+        private final String fileType;
+        private final FileStore.StoredFile storedFile;
+        private final List<ExtractedEntry> duplicates = new ArrayList<>(); // Later entries with the same bytes
+        private ExtractedEntry source; // Earlier entry with the same bytes, whose document the text is copied from
+        private CharSequence content;
+        private UUID sourceDocumentId;
+        private UUID documentId;
+        private Integer contentLength;
+        private String error;
+
+        private ExtractedEntry(String entryName, String filename, String fileType, FileStore.StoredFile storedFile) {
+            this.entryName = entryName;
+            this.filename = filename;
+            this.fileType = fileType;
+            this.storedFile = storedFile;
+        }
+    }
+
+    /**
+     * Upload every .txt, .docx and .pdf entry of a .zip, .tar, .tar.gz or .tgz archive as a document
+     */
+    public ArchiveUploadResultDTO uploadArchive(MultipartFile archive) {
+        String archiveName = archive.getOriginalFilename();
+        String lowerName = archiveName != null ? archiveName.toLowerCase() : "";
+        if (!lowerName.endsWith(".zip") && !lowerName.endsWith(".tar") && !lowerName.endsWith(".tar.gz")
+                && !lowerName.endsWith(".tgz")) {
+            throw new IllegalArgumentException(
+                    "Unsupported archive type. Only .zip, .tar, .tar.gz and .tgz archives are supported.");
+        }
+
+        ArchiveUploadResultDTO result = new ArchiveUploadResultDTO(archiveName);
+        CompletionService<ExtractedEntry> extractions = new ExecutorCompletionService<>(archiveExtractionExecutor);
+        Set<Future<ExtractedEntry>> inFlight = new HashSet<>();
+        Map<String, ExtractedEntry> firstByContent = new HashMap<>(); // Hash and file type -> first entry
+        List<ExtractedEntry> batch = new ArrayList<>();
+
+        try {
+            try (ArchiveInputStream entries = openArchive(lowerName, archive.getInputStream())) {
+                ArchiveEntry entry;
+                while ((entry = entries.getNextEntry()) != null) {
+                    if (entry.isDirectory() || (entry instanceof TarArchiveEntry tarEntry
+                            && (!tarEntry.isFile() || tarEntry.isSymbolicLink() || tarEntry.isLink()))) {
+                        continue;
+                    }
+
+                    ExtractedEntry stored = storeEntry(entry, entries, result);
+                    if (stored != null) {
+                        ExtractedEntry first = firstByContent.putIfAbsent(
+                                stored.storedFile.getSha256() + "." + stored.fileType, stored);
+                        if (first != null) {
+                            // Collected together with the first entry once it is extracted
+                            stored.source = first;
+                            first.duplicates.add(stored);
+                        } else {
+                            long queuedAtNanos = System.nanoTime();
+                            inFlight.add(extractions.submit(() -> extract(stored, queuedAtNanos)));
+                        }
+                    }
+
+                    // Insert whatever has finished extracting meanwhile
+                    Future<ExtractedEntry> done;
+                    while ((done = extractions.poll()) != null) {
+                        inFlight.remove(done);
+                        collect(done, batch, result);
+                    }
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                Future<ExtractedEntry> done = extractions.take();
+                inFlight.remove(done);
+                collect(done, batch, result);
+            }
+            insertBatch(batch, result);
+        } catch (EOFException e) {
+            throw new RuntimeException("Failed to read archive: unexpected end of archive", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read archive: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Archive upload was interrupted", e);
+        } finally {
+            // Only left over when the upload is aborted
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        return result;
+    }
+
+    private ArchiveInputStream openArchive(String lowerName, InputStream input) throws IOException {
+        if (lowerName.endsWith(".zip")) {
+            // Also accept stored entries whose sizes only follow their data
+            return new ZipArchiveInputStream(input, StandardCharsets.UTF_8.name(), true, true);
+        }
+        return new TarArchiveInputStream(lowerName.endsWith(".tar") ? input : new GZIPInputStream(input));
+    }
+
+    /**
+     * Stream a supported entry to the upload store; unsupported or invalid entries
+     * are recorded in the manifest straight away
+     */
+    private ExtractedEntry storeEntry(ArchiveEntry entry, ArchiveInputStream entries, ArchiveUploadResultDTO result) {
+        String entryName = entry.getName();
+        String filename = entryName.substring(entryName.lastIndexOf('/') + 1);
+        int lastDotIndex = filename.lastIndexOf('.');
+        String fileType = lastDotIndex == -1 ? "" : filename.substring(lastDotIndex + 1).toLowerCase();
+
+        if (!fileType.matches("txt|docx|pdf")) {
+            ArchiveEntryResultDTO skipped = new ArchiveEntryResultDTO(entryName, ArchiveEntryResultDTO.Status.SKIPPED);
+            skipped.setError("Unsupported file type");
+            result.addEntry(skipped);
+            return null;
+        }
+
+        if (!entries.canReadEntryData(entry)) {
+            ArchiveEntryResultDTO failed = new ArchiveEntryResultDTO(entryName, ArchiveEntryResultDTO.Status.FAILED);
+            failed.setError("Unsupported compression or encryption of archive entry");
+            result.addEntry(failed);
+            return null;
+        }
+
+        try {
+            FileStore.StoredFile storedFile = fileStore.store(
+                    StreamUtils.nonClosing(entries), fileType, maxFileSize.toBytes());
+            return new ExtractedEntry(entryName, filename, fileType, storedFile);
+        } catch (IOException | IllegalArgumentException e) {
+            ArchiveEntryResultDTO failed = new ArchiveEntryResultDTO(entryName, ArchiveEntryResultDTO.Status.FAILED);
+            failed.setError(e.getMessage());
+            result.addEntry(failed);
+            return null;
+        }
+    }
+
+    /**
+     * Extract the text of a stored entry, reusing text already extracted from identical bytes
+     */
+    private ExtractedEntry extract(ExtractedEntry entry, long queuedAtNanos) throws InterruptedException {
+        try {
+            Optional<Document> existing = documentRepository
+                    .findFirstByContentHashAndFileTypeIgnoreCaseAndContentLengthIsNotNull(entry.storedFile.getSha256(), entry.fileType);
+            if (existing.isPresent()) {
+                entry.sourceDocumentId = existing.get().getId();
+                entry.contentLength = existing.get().getContentLength();
+                return entry;
+            }
+
+            admissionService.acquireExtractionPermit(queuedAtNanos);
+            try (FileStore.LocalFile file = fileStore.fetch(entry.storedFile.getKey())) {
+                entry.content = fileProcessingUtil.extractTextContent(file.getPath().toString(), entry.fileType,
+                        entry.storedFile.getSha256(), fileProcessingUtil.newExtractionContext(null));
+                entry.contentLength = entry.content.length();
+            } finally {
+                admissionService.releaseExtractionPermit();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to extract archive entry {}: {}", entry.entryName, e.getMessage());
+            entry.error = e.getMessage();
+        }
+        return entry;
+    }
+
+    private void collect(Future<ExtractedEntry> done, List<ExtractedEntry> batch, ArchiveUploadResultDTO result)
+            throws InterruptedException {
+        ExtractedEntry entry;
+        try {
+            entry = done.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Archive entry extraction failed unexpectedly", e.getCause());
+        }
+
+        if (entry.error != null) {
+            for (ExtractedEntry failedEntry : withDuplicates(entry)) {
+                ArchiveEntryResultDTO failed =
+                        new ArchiveEntryResultDTO(failedEntry.entryName, ArchiveEntryResultDTO.Status.FAILED);
+                failed.setError(entry.error);
+                result.addEntry(failed);
+            }
+            return;
+        }
+
+        // Duplicates follow their source in the batch, so it is inserted first
+        for (ExtractedEntry duplicate : entry.duplicates) {
+            duplicate.contentLength = entry.contentLength;
+        }
+        batch.addAll(withDuplicates(entry));
+        if (batch.size() >= batchSize) {
+            insertBatch(batch, result);
+        }
+    }
+
+    private static List<ExtractedEntry> withDuplicates(ExtractedEntry entry) {
+        List<ExtractedEntry> entries = new ArrayList<>(1 + entry.duplicates.size());
+        entries.add(entry);
+        entries.addAll(entry.duplicates);
+        return entries;
+    }
+
+    /**
+     * Insert a batch of documents in one transaction and clear them from the persistence context
+     *
+     * If the transaction fails, every entry of the batch is reported as failed.
+     */
+    private void insertBatch(List<ExtractedEntry> batch, ArchiveUploadResultDTO result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Document> documents = new ArrayList<>(batch.size());
+        for (ExtractedEntry entry : batch) {
+            Document document = new Document(
+                    entry.filename,
+                    entry.filename,
+                    entry.fileType,
+                    entry.storedFile.getKey(),
+                    entry.storedFile.getSize()
+            );
+            document.setContentHash(entry.storedFile.getSha256());
+            document.setContentLength(entry.contentLength);
+            documents.add(document);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                documentRepository.saveAll(documents);
+                documentRepository.flush();
+                for (int i = 0; i < batch.size(); i++) {
+                    ExtractedEntry entry = batch.get(i);
+                    entry.documentId = documents.get(i).getId();
+                    if (entry.source != null) {
+                        documentContentService.copyContent(entry.source.documentId, entry.documentId);
+                    } else if (entry.sourceDocumentId != null) {
+                        documentContentService.copyContent(entry.sourceDocumentId, documents.get(i).getId());
+                    } else {
+                        documentContentService.writeContent(documents.get(i).getId(), entry.content);
+                    }
+                }
+                entityManager.flush();
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to insert a batch of {} archive entries: {}", batch.size(), e.getMessage());
+            for (ExtractedEntry entry : batch) {
+                ArchiveEntryResultDTO failed = new ArchiveEntryResultDTO(entry.entryName, ArchiveEntryResultDTO.Status.FAILED);
+                failed.setError("Failed to save document");
+                result.addEntry(failed);
+            }
+            batch.clear();
+            return;
+        } finally {
+            entityManager.clear();
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            ArchiveEntryResultDTO created = new ArchiveEntryResultDTO(batch.get(i).entryName, ArchiveEntryResultDTO.Status.CREATED);
+            created.setDocumentId(documents.get(i).getId());
+            created.setFileSize(documents.get(i).getFileSize());
+            result.addEntry(created);
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,485 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.entity.DocumentContentChunk;
+import com.annotation.tool.entity.DocumentOffsetIndex;
+import com.annotation.tool.repository.DocumentContentChunkRepository;
+import com.annotation.tool.repository.DocumentOffsetIndexRepository;
+import com.annotation.tool.repository.DocumentRepository;
+import com.annotation.tool.util.TextOffsetIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Service class for the extracted text of documents
+ *
+ * Text is stored in fixed-length chunks of CHUNK_LENGTH characters, each
+ * deflate-compressed on its own, so reading a window of a large document
+ * only fetches and decompresses the chunks the window touches. Chunks hold
+ * the characters as modified UTF-8, which round-trips every char (including
+ * a surrogate split across a chunk boundary) and keeps chunk boundaries at
+ * exact character offsets.
+ *
+ * Writing text also stores its line, paragraph and page offset index.
+ *
+ * Recently read chunks are kept decompressed in a bounded LRU cache shared by
+ * all readers, so many small windows of the same stretch of text, such as
+ * the contexts of nearby annotations, decompress each chunk once.
+ *
+ * Documents created before chunked storage keep their text in the legacy
+ * documents.content column until a background pass moves it into chunks;
+ * reads fall back to that column in the meantime.
+ */
+@Service
+public class DocumentContentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentContentService.class);
+
+    /**
+     * Characters per chunk; at most 3 bytes per char in modified UTF-8 keeps a
+     * chunk within the 64 KB limit of DataOutputStream.writeUTF
+     */
+    public static final int CHUNK_LENGTH = 16384;
+
+    /**
+     * Longest window read at once by readAround
+     */
+    public static final int MAX_WINDOW_LENGTH = 1 << 20;
+
+    /**
+     * Receives the text window holding one of the ranges given to readAround
+     */
+    @FunctionalInterface
+    public interface WindowVisitor {
+
+        /**
+         * @param range the position of the range in the arrays given to readAround
+         * @param window the text starting at windowOffset, cut short at the end of the text
+         */
+        void visit(int range, String window, int windowOffset);
+    }
+
+    @Autowired
+    private DocumentContentChunkRepository chunkRepository;
+
+    @Autowired
+    private DocumentOffsetIndexRepository offsetIndexRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("documentExtractionExecutor")
+    private ThreadPoolTaskExecutor backgroundExecutor;
+
+    @Value("${app.content.compression-level:6}")
+    private int compressionLevel;
+
+    @Value("${app.content.migration-batch-size:20}")
+    private int migrationBatchSize;
+
+    @Value("${app.content.chunk-cache-size:256}")
+    private int chunkCacheSize;
+
+    @Value("${app.content.search.batch-size:64}")
+    private int searchBatchSize;
+
+    @Value("${app.content.search.max-results:1000}")
+    private int searchMaxResults;
+
+    // Chunk ID -> decompressed chunk text, in least recently used order
+    private final LinkedHashMap<DocumentContentChunk.ChunkId, String> chunkCache =
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<DocumentContentChunk.ChunkId, String> eldest) {
+                    return size() > chunkCacheSize;
+                }
+            };
+
+    /**
+     * Store the text and offset index of a new document whose content length is already set
+     *
+     * Only one chunk of the text is copied into a String at a time.
+     */
+    @Transactional
+    public void writeContent(UUID documentId, CharSequence content) {
+        List<DocumentContentChunk> chunks = new ArrayList<>(chunkCount(content.length()));
+        for (int index = 0; index * CHUNK_LENGTH < content.length(); index++) {
+            int start = index * CHUNK_LENGTH;
+            int end = Math.min(content.length(), start + CHUNK_LENGTH);
+            chunks.add(new DocumentContentChunk(documentId, index, compress(content.subSequence(start, end).toString())));
+        }
+        chunkRepository.saveAll(chunks);
+        offsetIndexRepository.save(toEntity(documentId, TextOffsetIndex.build(content)));
+    }
+
+    /**
+     * Replace the text of a document
+     *
+     * @return false if the document no longer exists
+     */
+    @Transactional
+    public boolean replaceContent(UUID documentId, CharSequence content) {
+        if (documentRepository.updateContentLength(documentId, content.length()) == 0) {
+            return false;
+        }
+        deleteContent(documentId);
+        writeContent(documentId, content);
+        return true;
+    }
+
+    /**
+     * Give a new document the text of an existing document with identical bytes
+     *
+     * Chunks and the offset index are copied as they are; text still in the
+     * legacy column is chunked.
+     */
+    @Transactional
+    public void copyContent(UUID sourceDocumentId, UUID targetDocumentId) {
+        if (chunkRepository.copyChunks(sourceDocumentId, targetDocumentId) > 0) {
+            offsetIndexRepository.copyIndex(sourceDocumentId, targetDocumentId);
+        } else {
+            String legacyContent = documentRepository.findLegacyContent(sourceDocumentId);
+            if (legacyContent != null) {
+                writeContent(targetDocumentId, legacyContent);
+            }
+        }
+    }
+
+    /**
+     * Read the full text of a document
+     */
+    @Transactional(readOnly = true)
+    public String readContent(UUID documentId) {
+        List<DocumentContentChunk> chunks = chunkRepository.findByDocumentIdOrderByChunkIndex(documentId);
+        if (chunks.isEmpty()) {
+            String legacyContent = documentRepository.findLegacyContent(documentId);
+            return legacyContent != null ? legacyContent : "";
+        }
+
+        StringBuilder content = new StringBuilder(chunks.size() * CHUNK_LENGTH);
+        for (DocumentContentChunk chunk : chunks) {
+            content.append(decompress(chunk.getData()));
+        }
+        return content.toString();
+    }
+
+    /**
+     * Read a window of a document's text, decompressing only the chunks it touches
+     * that are not cached
+     *
+     * The window is cut short at the end of the text.
+     */
+    @Transactional(readOnly = true)
+    public String readContent(UUID documentId, int offset, int length) {
+        if (length <= 0) {
+            return "";
+        }
+
+        int firstChunk = offset / CHUNK_LENGTH;
+        int lastChunk = (int) (((long) offset + length - 1) / CHUNK_LENGTH);
+        String[] chunks = readChunks(documentId, firstChunk, lastChunk);
+        if (chunks[0] == null) {
+            if (firstChunk > 0 && chunkRepository.existsByDocumentId(documentId)) {
+                return "";
+            }
+            String legacyWindow = documentRepository.findLegacyContentWindow(documentId, offset + 1, length);
+            return legacyWindow != null ? legacyWindow : "";
+        }
+
+        long windowEnd = (long) offset + length;
+        StringBuilder window = new StringBuilder((int) Math.min(length, (long) chunks.length * CHUNK_LENGTH));
+        for (int i = 0; i < chunks.length && chunks[i] != null; i++) {
+            long chunkStart = (long) (firstChunk + i) * CHUNK_LENGTH;
+            int start = (int) Math.max(0, offset - chunkStart);
+            int end = (int) Math.min(chunks[i].length(), windowEnd - chunkStart);
+            if (start < end) {
+                window.append(chunks[i], start, end);
+            }
+        }
+        return window.toString();
+    }
+
+    /**
+     * Read the text around many ranges of a document in as few windows as possible
+     *
+     * The ranges, given by their start and end offsets in ascending start order,
+     * are widened by padding on both sides. A window is extended while the next
+     * widened range starts within a chunk of its end, up to MAX_WINDOW_LENGTH
+     * characters, and each range is passed to the visitor with its window.
+     */
+    @Transactional(readOnly = true)
+    public void readAround(UUID documentId, int[] starts, int[] ends, int padding, WindowVisitor visitor) {
+        int from = 0;
+        while (from < starts.length) {
+            int windowStart = Math.max(0, starts[from] - padding);
+            long windowEnd = (long) ends[from] + padding;
+            int to = from + 1;
+            while (to < starts.length) {
+                int nextStart = Math.max(0, starts[to] - padding);
+                long nextEnd = Math.max(windowEnd, (long) ends[to] + padding);
+                if (nextStart > windowEnd + CHUNK_LENGTH || nextEnd - windowStart > MAX_WINDOW_LENGTH) {
+                    break;
+                }
+                windowEnd = nextEnd;
+                to++;
+            }
+
+            String window = readContent(documentId, windowStart,
+                    (int) Math.min(Integer.MAX_VALUE, windowEnd - windowStart));
+            for (int range = from; range < to; range++) {
+                visitor.visit(range, window, windowStart);
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * Find documents whose text contains the given text, ignoring case
+     *
+     * Chunks are read app.content.search.batch-size at a time in (document, chunk)
+     * order, each batch by its own short query, and decompressed in the JVM, so
+     * neither memory nor a database snapshot grows with the corpus. The tail of
+     * each chunk is carried over so matches across chunk boundaries are found,
+     * and the remaining chunks of a matching document are skipped. Every chunk of
+     * a non-matching document is still read, so the cost of a search grows with
+     * the stored text; nothing beyond the compressed chunks is stored for it.
+     *
+     * @return at most app.content.search.max-results document IDs
+     */
+    public Set<UUID> findDocumentIdsContaining(String searchText) {
+        String needle = searchText.toLowerCase(Locale.ROOT);
+        Set<UUID> matches = new LinkedHashSet<>();
+        if (needle.isEmpty()) {
+            return matches;
+        }
+
+        UUID afterDocumentId = new UUID(0, 0);
+        int afterChunkIndex = -1;
+        String carry = "";
+        List<Object[]> rows;
+        while (matches.size() < searchMaxResults
+                && !(rows = chunkRepository.findChunkDataAfter(afterDocumentId, afterChunkIndex, searchBatchSize)).isEmpty()) {
+            for (Object[] row : rows) {
+                UUID documentId = UUID.fromString((String) row[0]);
+                if (!documentId.equals(afterDocumentId)) {
+                    carry = "";
+                }
+                afterDocumentId = documentId;
+                afterChunkIndex = ((Number) row[1]).intValue();
+                if (matches.contains(documentId)) {
+                    continue;
+                }
+
+                String text = carry + decompress((byte[]) row[2]).toLowerCase(Locale.ROOT);
+                if (text.contains(needle)) {
+                    matches.add(documentId);
+                    if (matches.size() == searchMaxResults) {
+                        break;
+                    }
+                }
+                carry = text.substring(Math.max(0, text.length() - needle.length() + 1));
+            }
+            if (matches.contains(afterDocumentId)) {
+                // Skip the chunks of the last matching document not read yet
+                afterChunkIndex = Integer.MAX_VALUE;
+            }
+        }
+
+        if (matches.size() < searchMaxResults) {
+            documentRepository.findIdsWithLegacyContentContaining(searchText).stream()
+                    .limit(searchMaxResults - matches.size())
+                    .forEach(id -> matches.add(UUID.fromString(id)));
+        }
+        return matches;
+    }
+
+    /**
+     * Delete the text and offset index of a document
+     */
+    @Transactional
+    public void deleteContent(UUID documentId) {
+        chunkRepository.deleteByDocumentId(documentId);
+        offsetIndexRepository.deleteByDocumentId(documentId);
+        evictChunks(documentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Again once committed, in case a reader cached the old chunks meanwhile
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictChunks(documentId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the stored offset index of a document
+     */
+    @Transactional(readOnly = true)
+    public Optional<TextOffsetIndex> findOffsetIndex(UUID documentId) {
+        return offsetIndexRepository.findById(documentId)
+                .map(index -> new TextOffsetIndex(
+                        index.getTextLength(),
+                        TextOffsetIndex.decode(index.getLineStarts()),
+                        TextOffsetIndex.decode(index.getParagraphStarts()),
+                        TextOffsetIndex.decode(index.getPageStarts())));
+    }
+
+    /**
+     * Build and store the offset index of a document from its stored text
+     */
+    @Transactional
+    public TextOffsetIndex buildOffsetIndex(UUID documentId) {
+        TextOffsetIndex index = TextOffsetIndex.build(readContent(documentId));
+        offsetIndexRepository.save(toEntity(documentId, index));
+        return index;
+    }
+
+    /**
+     * Move legacy uncompressed text into chunks in the background after startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyContentInBackground() {
+        backgroundExecutor.execute(this::migrateLegacyContent);
+    }
+
+    /**
+     * Move legacy uncompressed text into chunks, one document per transaction
+     */
+    public void migrateLegacyContent() {
+        int migrated = 0;
+        try {
+            List<String> ids;
+            while (!(ids = documentRepository.findIdsWithLegacyContent(migrationBatchSize)).isEmpty()) {
+                for (String legacyId : ids) {
+                    UUID id = UUID.fromString(legacyId);
+                    transactionTemplate.executeWithoutResult(status -> {
+                        String legacyContent = documentRepository.findLegacyContent(id);
+                        deleteContent(id);
+                        writeContent(id, legacyContent);
+                        documentRepository.updateContentLength(id, legacyContent.length());
+                        documentRepository.clearLegacyContent(id);
+                    });
+                    migrated++;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Moving legacy document content into chunks stopped after {} documents: {}",
+                    migrated, e.getMessage(), e);
+            return;
+        }
+
+        if (migrated > 0) {
+            logger.info("Moved the content of {} documents into compressed chunks", migrated);
+        }
+    }
+
+    /**
+     * Get chunks firstChunk to lastChunk of a document, taking the cached ones
+     * from the cache and loading the others in one query
+     *
+     * @return the chunk texts, null for chunks past the end of the text
+     */
+    private String[] readChunks(UUID documentId, int firstChunk, int lastChunk) {
+        String[] chunks = new String[lastChunk - firstChunk + 1];
+        int firstMissing = -1;
+        int lastMissing = -1;
+        synchronized (chunkCache) {
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = chunkCache.get(new DocumentContentChunk.ChunkId(documentId, firstChunk + i));
+                if (chunks[i] == null) {
+                    firstMissing = firstMissing < 0 ? i : firstMissing;
+                    lastMissing = i;
+                }
+            }
+        }
+        if (firstMissing < 0) {
+            return chunks;
+        }
+
+        List<DocumentContentChunk> loaded = chunkRepository.findByDocumentIdAndChunkIndexBetweenOrderByChunkIndex(
+                documentId, firstChunk + firstMissing, firstChunk + lastMissing);
+        for (DocumentContentChunk chunk : loaded) {
+            int i = chunk.getChunkIndex() - firstChunk;
+            if (chunks[i] == null) {
+                chunks[i] = decompress(chunk.getData());
+            }
+        }
+        synchronized (chunkCache) {
+            for (DocumentContentChunk chunk : loaded) {
+                chunkCache.put(new DocumentContentChunk.ChunkId(documentId, chunk.getChunkIndex()),
+                        chunks[chunk.getChunkIndex() - firstChunk]);
+            }
+        }
+        return chunks;
+    }
+
+    private void evictChunks(UUID documentId) {
+        synchronized (chunkCache) {
+            chunkCache.keySet().removeIf(id -> id.getDocumentId().equals(documentId));
+        }
+    }
+
+    private DocumentOffsetIndex toEntity(UUID documentId, TextOffsetIndex index) {
+        return new DocumentOffsetIndex(documentId, index.getTextLength(), index.encodeLineStarts(),
+                index.encodeParagraphStarts(), index.encodePageStarts());
+    }
+
+    private int chunkCount(int length) {
+        return (length + CHUNK_LENGTH - 1) / CHUNK_LENGTH;
+    }
+
+    private byte[] compress(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() / 2 + 64);
+        Deflater deflater = new Deflater(compressionLevel);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeUTF(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress document content", e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private String decompress(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt document content chunk", e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.dto.ExtractionJobDTO;
+import com.annotation.tool.entity.Document;
+import com.annotation.tool.storage.FileStore;
+import com.annotation.tool.util.FileProcessingUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class for background text extraction
+ * 
+ * Uploaded files are persisted first and their text is extracted on a bounded
+ * worker pool. Each extraction runs under a deadline and can be cancelled.
+ * Job state is kept in memory and finished jobs are pruned after a
+ * configurable retention period.
+ */
+@Service
+public class DocumentExtractionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DocumentExtractionService.class);
+    
+    @Autowired
+    private DocumentContentService documentContentService;
+    
+    @Autowired
+    private DocumentPositionService documentPositionService;
+    
+    @Autowired
+    private FileProcessingUtil fileProcessingUtil;
+    
+    @Autowired
+    private FileStore fileStore;
+    
+    @Autowired
+    @Qualifier("documentExtractionExecutor")
+    private ThreadPoolTaskExecutor extractionExecutor;
+    
+    @Autowired
+    private IngestionAdmissionService admissionService;
+    
+    @Value("${app.extraction.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+    
+    private final Map<UUID, ExtractionJob> jobs = new ConcurrentHashMap<>();
+    
+    /**
+     * Queue text extraction for a saved document
+     * 
+     * When called inside a transaction the job is only handed to the worker pool
+     * after commit, so the worker always sees the document row. Documents that
+     * already carry content (e.g. reused from an identical upload) are reported
+     * as done straight away.
+     */
+    public ExtractionJobDTO submit(Document document) {
+        pruneFinishedJobs();
+        
+        ExtractionJob job = new ExtractionJob(document);
+        jobs.put(job.id, job);
+        
+        if (document.getContentLength() != null) {
+            job.complete();
+            return toDTO(job);
+        }
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        enqueue(job);
+                    } else {
+                        job.fail("Upload transaction was rolled back");
+                    }
+                }
+            });
+        } else {
+            enqueue(job);
+        }
+        
+        return toDTO(job);
+    }
+    
+    /**
+     * Get extraction job by ID
+     */
+    public Optional<ExtractionJobDTO> getJob(UUID id) {
+        return Optional.ofNullable(jobs.get(id)).map(this::toDTO);
+    }
+    
+    /**
+     * Cancel a queued or running extraction job
+     * 
+     * Running extractions stop at their next page or glyph check.
+     */
+    public Optional<ExtractionJobDTO> cancelJob(UUID id) {
+        ExtractionJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        
+        job.cancel();
+        return Optional.of(toDTO(job));
+    }
+    
+    /**
+     * Hand a job to the worker pool
+     */
+    private void enqueue(ExtractionJob job) {
+        job.queuedAtNanos = System.nanoTime();
+        try {
+            extractionExecutor.execute(() -> run(job));
+        } catch (TaskRejectedException e) {
+            logger.warn("Extraction queue is full, rejecting job {} for document {}", job.id, job.documentId);
+            job.fail("Extraction queue is full");
+        }
+    }
+    
+    /**
+     * Extract the text of a document under an extraction permit
+     */
+    private void run(ExtractionJob job) {
+        try {
+            admissionService.acquireExtractionPermit(job.queuedAtNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Extraction was interrupted");
+            return;
+        }
+        
+        try {
+            extract(job);
+        } finally {
+            admissionService.releaseExtractionPermit();
+        }
+    }
+    
+    /**
+     * Extract the text of a document and store it in content chunks
+     */
+    private void extract(ExtractionJob job) {
+        FileProcessingUtil.ExtractionContext context = fileProcessingUtil.newExtractionContext(job::reportProgress);
+        if (!job.start(context)) {
+            return;
+        }
+        
+        try {
+            CharSequence content;
+            try (FileStore.LocalFile file = fileStore.fetch(job.filePath)) {
+                content = fileProcessingUtil.extractTextContent(file.getPath().toString(), job.fileType,
+                        job.contentHash, context);
+            }
+            
+            if (!documentContentService.replaceContent(job.documentId, content)) {
+                job.fail("Document was deleted before extraction finished");
+                return;
+            }
+            documentPositionService.evict(job.documentId);
+            
+            job.complete();
+            logger.debug("Extraction job {} finished for document {}", job.id, job.documentId);
+        } catch (CancellationException e) {
+            logger.warn("Extraction job {} stopped for document {}: {}", job.id, job.documentId, e.getMessage());
+            job.fail(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Extraction job {} failed for document {}: {}", job.id, job.documentId, e.getMessage(), e);
+            job.fail(e.getMessage());
+        }
+    }
+    
+    /**
+     * Drop finished jobs older than the retention period
+     */
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.completedAt != null && job.completedAt.isBefore(cutoff));
+    }
+    
+    private ExtractionJobDTO toDTO(ExtractionJob job) {
+        ExtractionJobDTO dto = new ExtractionJobDTO();
+        dto.setId(job.id);
+        dto.setDocumentId(job.documentId);
+        dto.setDocumentName(job.documentName);
+        dto.setStatus(job.status);
+        dto.setError(job.error);
+        dto.setPagesProcessed(job.pagesProcessed);
+        dto.setTotalPages(job.totalPages);
+        dto.setCreatedAt(job.createdAt);
+        dto.setStartedAt(job.startedAt);
+        dto.setCompletedAt(job.completedAt);
+        return dto;
+    }
+    
+    /**
+     * Mutable state of a single extraction job
+     */
+    private static final class ExtractionJob {
+        
+        private final UUID id = UUID.randomUUID();
+        private final UUID documentId;
+        private final String documentName;
+        private final String filePath;
+        private final String fileType;
+        private final String contentHash;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        
+        private volatile ExtractionJobDTO.Status status = ExtractionJobDTO.Status.QUEUED;
+        private volatile String error;
+        private volatile Integer pagesProcessed;
+        private volatile Integer totalPages;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+        private volatile long queuedAtNanos;
+        private FileProcessingUtil.ExtractionContext context;
+        
+        private ExtractionJob(Document document) {
+            this.documentId = document.getId();
+            this.documentName = document.getName();
+            this.filePath = document.getFilePath();
+            this.fileType = document.getFileType();
+            this.contentHash = document.getContentHash();
+        }
+        
+        /**
+         * Move a queued job to running; returns false if it was cancelled meanwhile
+         */
+        private synchronized boolean start(FileProcessingUtil.ExtractionContext context) {
+            if (status != ExtractionJobDTO.Status.QUEUED) {
+                return false;
+            }
+            this.context = context;
+            startedAt = LocalDateTime.now();
+            status = ExtractionJobDTO.Status.RUNNING;
+            return true;
+        }
+        
+        private synchronized void cancel() {
+            if (status == ExtractionJobDTO.Status.QUEUED) {
+                fail("Extraction cancelled");
+            } else if (status == ExtractionJobDTO.Status.RUNNING) {
+                context.cancel();
+            }
+        }
+        
+        private void reportProgress(int pagesProcessed, int totalPages) {
+            this.totalPages = totalPages;
+            this.pagesProcessed = pagesProcessed;
+        }
+        
+        private synchronized void complete() {
+            completedAt = LocalDateTime.now();
+            status = ExtractionJobDTO.Status.DONE;
+        }
+        
+        private synchronized void fail(String message) {
+            error = message;
+            completedAt = LocalDateTime.now();
+            status = ExtractionJobDTO.Status.FAILED;
+        }
+    }
+}
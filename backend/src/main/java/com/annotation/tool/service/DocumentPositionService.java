@@ -0,0 +1,118 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.dto.PageRangeDTO;
+import com.annotation.tool.dto.TextPositionDTO;
+import com.annotation.tool.repository.DocumentRepository;
+import com.annotation.tool.util.TextOffsetIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service class translating character offsets to lines, paragraphs and pages
+ *
+ * Answers from the offset index stored with a document's text. Decoded
+ * indexes are kept in a bounded LRU map, so repeated lookups are a binary
+ * search over int arrays without touching the database. Documents indexed
+ * before the index existed get theirs built on first lookup.
+ */
+@Service
+public class DocumentPositionService {
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Value("${app.content.offset-index.cache-size:256}")
+    private int cacheSize;
+
+    // Document ID -> decoded offset index, in least recently used order
+    private final LinkedHashMap<UUID, TextOffsetIndex> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, TextOffsetIndex> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /**
+     * Locate a character offset by line, column, paragraph and page
+     */
+    public Optional<TextPositionDTO> getPosition(UUID documentId, int offset) {
+        return getIndex(documentId).map(index -> {
+            if (offset < 0 || offset > index.getTextLength()) {
+                throw new IllegalArgumentException("Offset must be between 0 and " + index.getTextLength());
+            }
+
+            int line = index.lineOf(offset);
+            int paragraph = index.paragraphOf(offset);
+            TextPositionDTO position = new TextPositionDTO(documentId, offset, line + 1,
+                    offset - index.lineStart(line) + 1, paragraph >= 0 ? paragraph + 1 : null,
+                    index.pageOf(offset) + 1);
+            position.setLineCount(index.getLineCount());
+            position.setParagraphCount(index.getParagraphCount());
+            position.setPageCount(index.getPageCount());
+            return position;
+        });
+    }
+
+    /**
+     * Get the character offset range of a 1-based page
+     */
+    public Optional<PageRangeDTO> getPageRange(UUID documentId, int page) {
+        return getIndex(documentId).map(index -> {
+            if (page < 1 || page > index.getPageCount()) {
+                throw new IllegalArgumentException("Page must be between 1 and " + index.getPageCount());
+            }
+            return new PageRangeDTO(documentId, page, index.pageStart(page - 1), index.pageEnd(page - 1),
+                    index.getPageCount());
+        });
+    }
+
+    /**
+     * Forget the cached index of a document whose text changed or was deleted
+     */
+    public synchronized void evict(UUID documentId) {
+        cache.remove(documentId);
+    }
+
+    private Optional<TextOffsetIndex> getIndex(UUID documentId) {
+        synchronized (this) {
+            TextOffsetIndex cached = cache.get(documentId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+
+        Optional<TextOffsetIndex> index = documentContentService.findOffsetIndex(documentId);
+        if (index.isEmpty()) {
+            Optional<DocumentRepository.ContentInfo> info = documentRepository.findContentInfo(documentId);
+            if (info.isEmpty()) {
+                return Optional.empty();
+            }
+            if (info.get().getContentLength() == null) {
+                throw new IllegalArgumentException("Document content has not been extracted yet");
+            }
+            try {
+                index = Optional.of(documentContentService.buildOffsetIndex(documentId));
+            } catch (DataIntegrityViolationException e) {
+                // Built concurrently by another request
+                index = documentContentService.findOffsetIndex(documentId);
+            }
+        }
+
+        index.ifPresent(value -> {
+            synchronized (this) {
+                cache.put(documentId, value);
+            }
+        });
+        return index;
+    }
+}
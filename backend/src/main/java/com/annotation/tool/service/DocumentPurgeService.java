@@ -0,0 +1,152 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.repository.AnnotationRepository;
+import com.annotation.tool.repository.DocumentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class purging soft-deleted documents
+ *
+ * A soft-deleted document is hidden as soon as its deletion commits and is
+ * then removed here on a background worker: its annotations in batches, each
+ * in a short transaction of its own, then its content and its row. Its stored
+ * file may be shared with a concurrent upload of the same content and is left
+ * to store reconciliation, which reclaims it once unreferenced. Documents
+ * whose purge was not queued or did not finish, e.g. across a restart, are
+ * picked up by a scheduled sweep.
+ */
+@Service
+public class DocumentPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentPurgeService.class);
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private AnnotationRepository annotationRepository;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("documentPurgeExecutor")
+    private ThreadPoolTaskExecutor purgeExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.documents.purge.batch-size:1000}")
+    private int batchSize;
+
+    private final Set<UUID> purging = ConcurrentHashMap.newKeySet();
+    private Counter purgedDocuments;
+    private Counter purgedAnnotations;
+
+    /**
+     * Register the metrics
+     */
+    @PostConstruct
+    public void init() {
+        purgedDocuments = Counter.builder("documents.purged")
+                .description("Soft-deleted documents purged")
+                .register(meterRegistry);
+        purgedAnnotations = Counter.builder("documents.purged.annotations")
+                .description("Annotations deleted while purging soft-deleted documents")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue the purge of a soft-deleted document once the deleting transaction commits
+     */
+    public void purgeAfterCommit(UUID documentId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(documentId);
+                }
+            });
+        } else {
+            enqueue(documentId);
+        }
+    }
+
+    /**
+     * Purge soft-deleted documents left over from earlier deletions, oldest first
+     */
+    @Scheduled(initialDelayString = "${app.documents.purge.initial-delay:PT1M}",
+            fixedDelayString = "${app.documents.purge.interval:PT5M}")
+    public void purgePending() {
+        List<String> ids = documentRepository.findIdsPendingPurge(batchSize);
+        for (String id : ids) {
+            purge(UUID.fromString(id));
+        }
+    }
+
+    /**
+     * Purge a soft-deleted document; does nothing if it is not soft-deleted or
+     * already being purged
+     */
+    public void purge(UUID documentId) {
+        if (!purging.add(documentId)) {
+            return;
+        }
+        try {
+            if (!documentRepository.isDeleted(documentId)) {
+                return;
+            }
+
+            long annotations = 0;
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(
+                        status -> annotationRepository.deleteBatchByDocumentId(documentId, batchSize));
+                annotations += deleted;
+                purgedAnnotations.increment(deleted);
+            } while (deleted == batchSize);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                documentContentService.deleteContent(documentId);
+                documentRepository.purgeDeleted(documentId);
+            });
+            purgedDocuments.increment();
+            logger.debug("Purged soft-deleted document {} with {} annotations", documentId, annotations);
+        } catch (RuntimeException e) {
+            // Left soft-deleted for the next sweep
+            logger.error("Failed to purge document {}: {}", documentId, e.getMessage(), e);
+        } finally {
+            purging.remove(documentId);
+        }
+    }
+
+    private void enqueue(UUID documentId) {
+        try {
+            purgeExecutor.execute(() -> purge(documentId));
+        } catch (TaskRejectedException e) {
+            logger.debug("Purge queue is full, leaving document {} to the scheduled sweep", documentId);
+        }
+    }
+}
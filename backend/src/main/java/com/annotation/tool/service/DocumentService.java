@@ -1,23 +1,38 @@
 package com.annotation.tool.service;
 
+import com.annotation.tool.dto.AnnotationDTO;
+import com.annotation.tool.dto.CursorPageDTO;
+import com.annotation.tool.dto.DocumentContentDTO;
 import com.annotation.tool.dto.DocumentDTO;
+import com.annotation.tool.dto.DocumentSummaryDTO;
+import com.annotation.tool.dto.ExtractionJobDTO;
 import com.annotation.tool.entity.Document;
+import com.annotation.tool.repository.AnnotationRepository;
 import com.annotation.tool.repository.DocumentRepository;
+import com.annotation.tool.repository.DocumentRepositoryCustom;
+import com.annotation.tool.storage.FileStore;
 import com.annotation.tool.util.DTOMapper;
-import com.annotation.tool.util.FileProcessingUtil;
+import com.annotation.tool.util.FileDownloadUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -31,26 +46,63 @@ import java.util.stream.Collectors;
 @Transactional
 public class DocumentService {
     
+    private static final Logger logger = LoggerFactory.getLogger(DocumentService.class);
+    
     @Autowired
     private DocumentRepository documentRepository;
     
+    @Autowired
+    private AnnotationRepository annotationRepository;
+    
     @Autowired
     private DTOMapper dtoMapper;
     
     @Autowired
-    private FileProcessingUtil fileProcessingUtil;
+    private DocumentExtractionService documentExtractionService;
+    
+    @Autowired
+    private DocumentContentService documentContentService;
+    
+    @Autowired
+    private DocumentPositionService documentPositionService;
+    
+    @Autowired
+    private DocumentPurgeService documentPurgeService;
+    
+    @Autowired
+    private AnnotationIndexService annotationIndexService;
     
-    @Value("${app.file.upload-dir}")
-    private String uploadDir;
+    @Autowired
+    private AnnotationContextService annotationContextService;
+    
+    @Autowired
+    private FileStore fileStore;
+    
+    @Value("${spring.servlet.multipart.max-file-size:50MB}")
+    private DataSize maxFileSize;
+    
+    @Value("${app.documents.delete-mode:hard}")
+    private String deleteMode;
+    
+    @Value("${app.documents.default-page-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${app.documents.max-page-size:500}")
+    private int maxPageSize;
+    
+    @Value("${app.content.default-window-length:65536}")
+    private int defaultWindowLength;
+    
+    @Value("${app.content.max-window-length:1048576}")
+    private int maxWindowLength;
     
     /**
-     * Get all documents
+     * Get a page of document summaries
      */
-    public List<DocumentDTO> getAllDocuments() {
-        return documentRepository.findAll()
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<DocumentSummaryDTO> getDocumentSummaries(String cursor, Integer limit,
+                                                                  String sort, String direction) {
+        return findSummaryPage(new DocumentRepositoryCustom.SummaryQuery(), cursor, limit, sort, direction);
     }
     
     /**
@@ -58,55 +110,124 @@ public class DocumentService {
      */
     public Optional<DocumentDTO> getDocumentById(UUID id) {
         return documentRepository.findById(id)
-                .map(dtoMapper::toDTO);
+                .map(dtoMapper::toDTO)
+                .map(this::withContent);
     }
     
     /**
      * Get document with annotations by ID
+     * 
+     * @param contextLength characters of annotation context on each side, null for the default
      */
-    public Optional<DocumentDTO> getDocumentWithAnnotationsById(UUID id) {
+    public Optional<DocumentDTO> getDocumentWithAnnotationsById(UUID id, Integer contextLength) {
         return documentRepository.findById(id)
-                .map(dtoMapper::toDTOWithAnnotations);
+                .map(document -> {
+                    List<AnnotationDTO> annotations = annotationRepository.findViewsByDocumentId(id)
+                            .stream()
+                            .map(dtoMapper::toDTO)
+                            .collect(Collectors.toList());
+                    annotationContextService.withContext(annotations, contextLength);
+                    return withContent(dtoMapper.toDTOWithAnnotations(document, annotations));
+                });
     }
     
     /**
-     * Upload and process a new document
+     * Get the stored original file of a document
      */
-    public DocumentDTO uploadDocument(MultipartFile file, String documentName) {
+    @Transactional(readOnly = true)
+    public Optional<FileDownloadUtil.DownloadableFile> getOriginalFile(UUID id) {
+        return documentRepository.findById(id)
+                .map(document -> new FileDownloadUtil.DownloadableFile(
+                        document.getFilePath(),
+                        document.getOriginalFilename(),
+                        document.getContentHash()));
+    }
+    
+    /**
+     * Get a window of a document's content
+     * 
+     * Only the content chunks the window touches are read and decompressed. A
+     * missing length selects the default window; longer windows are capped at
+     * the configured maximum.
+     */
+    @Transactional(readOnly = true)
+    public Optional<DocumentContentDTO> getDocumentContent(UUID id, int offset, Integer length) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must be non-negative");
+        }
+        if (length != null && length <= 0) {
+            throw new IllegalArgumentException("Length must be positive");
+        }
+        int windowLength = Math.min(length != null ? length : defaultWindowLength, maxWindowLength);
+        
+        return documentRepository.findContentInfo(id)
+                .map(info -> {
+                    if (info.getContentLength() == null) {
+                        throw new IllegalArgumentException("Document content has not been extracted yet");
+                    }
+                    String content = offset < info.getContentLength()
+                            ? documentContentService.readContent(id, offset, windowLength)
+                            : "";
+                    return new DocumentContentDTO(id, info.getName(), offset, info.getContentLength(), content);
+                });
+    }
+    
+    /**
+     * Get a window of a document's content with the annotations overlapping it
+     */
+    @Transactional(readOnly = true)
+    public Optional<DocumentContentDTO> getDocumentViewport(UUID id, int offset, Integer length, Integer contextLength) {
+        return getDocumentContent(id, offset, length)
+                .map(window -> {
+                    List<AnnotationDTO> annotations = annotationRepository
+                            .findViewsOverlapping(id, offset, offset + window.getLength())
+                            .stream()
+                            .map(dtoMapper::toDTO)
+                            .collect(Collectors.toList());
+                    window.setAnnotations(annotationContextService.withContext(annotations, contextLength));
+                    return window;
+                });
+    }
+    
+    /**
+     * Upload a new document and queue its text extraction
+     * 
+     * The file and document row are persisted immediately; content is filled in
+     * by the returned extraction job once it finishes. Files are stored by content
+     * hash, so re-uploading identical bytes shares the file and its extracted text.
+     */
+    public ExtractionJobDTO uploadDocument(MultipartFile file, String documentName) {
         try {
             // Validate file
             validateFile(file);
             
-            // Create upload directory if it doesn't exist
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            
-            // Generate unique filename
+            // Stream file into the store under its content hash, hashing, sizing and sniffing it in the same pass
             String originalFilename = file.getOriginalFilename();
             String fileExtension = getFileExtension(originalFilename);
-            String uniqueFilename = UUID.randomUUID().toString() + "." + fileExtension;
-            Path filePath = uploadPath.resolve(uniqueFilename);
-            
-            // Save file
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            FileStore.StoredFile storedFile = fileStore.store(
+                    file.getInputStream(), fileExtension, maxFileSize.toBytes());
             
-            // Extract text content based on file type
-            String content = fileProcessingUtil.extractTextContent(filePath.toString(), fileExtension);
+            // Reuse text already extracted from identical bytes, otherwise extract in the background
+            Optional<Document> extracted = documentRepository
+                    .findFirstByContentHashAndFileTypeIgnoreCaseAndContentLengthIsNotNull(storedFile.getSha256(), fileExtension);
             
             // Create document entity
             Document document = new Document(
                 documentName != null ? documentName : originalFilename,
                 originalFilename,
                 fileExtension,
-                filePath.toString(),
-                content,
-                file.getSize()
+                storedFile.getKey(),
+                storedFile.getSize()
             );
+            document.setContentHash(storedFile.getSha256());
+            extracted.ifPresent(source -> document.setContentLength(source.getContentLength()));
             
             Document savedDocument = documentRepository.save(document);
-            return dtoMapper.toDTO(savedDocument);
+            if (extracted.isPresent()) {
+                documentRepository.flush();
+                documentContentService.copyContent(extracted.get().getId(), savedDocument.getId());
+            }
+            return documentExtractionService.submit(savedDocument);
             
         } catch (IOException e) {
             throw new RuntimeException("Failed to upload file: " + e.getMessage(), e);
@@ -122,57 +243,76 @@ public class DocumentService {
         
         document.setName(newName);
         Document savedDocument = documentRepository.save(document);
-        return dtoMapper.toDTO(savedDocument);
+        return withContent(dtoMapper.toDTO(savedDocument));
     }
     
     /**
      * Delete a document
+     * 
+     * Its annotations and content are deleted set-based, without loading them.
+     * In soft delete mode the document is only hidden here and purged in the
+     * background. The physical file is shared by every document with the same
+     * content and is left in place: deleting it here could race an upload of the
+     * same content that reuses it, so store reconciliation reclaims it once it
+     * has been unreferenced for its grace period.
      */
     public void deleteDocument(UUID id) {
-        Document document = documentRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Document not found"));
+        if ("soft".equalsIgnoreCase(deleteMode)) {
+            if (documentRepository.markDeleted(id, LocalDateTime.now()) == 0) {
+                throw new IllegalArgumentException("Document not found");
+            }
+            documentPositionService.evict(id);
+            annotationIndexService.evictAfterCommit(id);
+            documentPurgeService.purgeAfterCommit(id);
+            return;
+        }
         
-        // Delete physical file
-        try {
-            Path filePath = Paths.get(document.getFilePath());
-            Files.deleteIfExists(filePath);
-        } catch (IOException e) {
-            // Log error but continue with database deletion
-            System.err.println("Failed to delete physical file: " + e.getMessage());
+        if (!documentRepository.existsById(id)) {
+            throw new IllegalArgumentException("Document not found");
         }
         
-        // Delete from database (annotations will be deleted via cascade)
-        documentRepository.delete(document);
+        annotationRepository.deleteByDocumentId(id);
+        documentContentService.deleteContent(id);
+        documentRepository.deleteAllByIdInBatch(List.of(id));
+        documentPositionService.evict(id);
+        annotationIndexService.evictAfterCommit(id);
     }
     
     /**
-     * Get documents by file type
+     * Get a page of document summaries by file type
      */
-    public List<DocumentDTO> getDocumentsByFileType(String fileType) {
-        return documentRepository.findByFileType(fileType)
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<DocumentSummaryDTO> getDocumentsByFileType(String fileType, String cursor, Integer limit,
+                                                                    String sort, String direction) {
+        DocumentRepositoryCustom.SummaryQuery query = new DocumentRepositoryCustom.SummaryQuery();
+        query.setFileType(fileType);
+        return findSummaryPage(query, cursor, limit, sort, direction);
     }
     
     /**
-     * Search documents by name
+     * Search document summaries by name
      */
-    public List<DocumentDTO> searchDocumentsByName(String searchTerm) {
-        return documentRepository.findByNameContainingIgnoreCase(searchTerm)
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<DocumentSummaryDTO> searchDocumentsByName(String searchTerm, String cursor, Integer limit,
+                                                                   String sort, String direction) {
+        DocumentRepositoryCustom.SummaryQuery query = new DocumentRepositoryCustom.SummaryQuery();
+        query.setNameContains(searchTerm);
+        return findSummaryPage(query, cursor, limit, sort, direction);
     }
     
     /**
-     * Search documents by content
+     * Search document summaries by content, newest first
+     *
+     * Not transactional, so the content scan holds no snapshot between its batches.
      */
-    public List<DocumentDTO> searchDocumentsByContent(String searchTerm) {
-        return documentRepository.findByContentContaining(searchTerm)
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    public List<DocumentSummaryDTO> searchDocumentsByContent(String searchTerm) {
+        Set<UUID> ids = documentContentService.findDocumentIdsContaining(searchTerm);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<DocumentSummaryDTO> items = documentRepository.findSummariesByIds(ids);
+        fillAnnotationCounts(items);
+        return items;
     }
     
     /**
@@ -192,21 +332,111 @@ public class DocumentService {
     /**
      * Get documents without annotations
      */
-    public List<DocumentDTO> getDocumentsWithoutAnnotations() {
-        return documentRepository.findDocumentsWithoutAnnotations()
-                .stream()
-                .map(dtoMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageDTO<DocumentSummaryDTO> getDocumentsWithoutAnnotations(String cursor, Integer limit,
+                                                                            String sort, String direction) {
+        DocumentRepositoryCustom.SummaryQuery query = new DocumentRepositoryCustom.SummaryQuery();
+        query.setWithoutAnnotations(true);
+        return findSummaryPage(query, cursor, limit, sort, direction);
     }
     
     /**
-     * Validate uploaded file
+     * Run a summary listing from the cursor position and fill in annotation counts
+     * with one aggregate query for the whole page
      */
-    private void validateFile(MultipartFile file) {
-        if (file.isEmpty()) {
-            throw new IllegalArgumentException("File is empty");
+    private CursorPageDTO<DocumentSummaryDTO> findSummaryPage(DocumentRepositoryCustom.SummaryQuery query,
+                                                              String cursor, Integer limit,
+                                                              String sort, String direction) {
+        query.setSortField(DocumentSummaryDTO.SortField.fromProperty(sort));
+        if ("asc".equalsIgnoreCase(direction)) {
+            query.setAscending(true);
+        } else if (!"desc".equalsIgnoreCase(direction)) {
+            throw new IllegalArgumentException("Unsupported sort direction: " + direction);
+        }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        int pageSize = Math.min(limit != null ? limit : defaultPageSize, maxPageSize);
+        if (cursor != null) {
+            decodeCursor(cursor, query);
+        }
+        
+        // One extra row tells whether another page follows
+        List<DocumentSummaryDTO> items = documentRepository.findSummaries(query, pageSize + 1);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = new ArrayList<>(items.subList(0, pageSize));
+            nextCursor = encodeCursor(query, items.get(pageSize - 1));
         }
         
+        fillAnnotationCounts(items);
+        return new CursorPageDTO<>(items, nextCursor);
+    }
+    
+    /**
+     * Fill in the annotation counts of summaries with one aggregate query
+     */
+    private void fillAnnotationCounts(List<DocumentSummaryDTO> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<UUID, Long> annotationCounts = new HashMap<>();
+        List<UUID> ids = items.stream().map(DocumentSummaryDTO::getId).collect(Collectors.toList());
+        for (Object[] row : annotationRepository.countByDocumentIds(ids)) {
+            annotationCounts.put((UUID) row[0], (Long) row[1]);
+        }
+        items.forEach(item -> item.setAnnotationCount(annotationCounts.getOrDefault(item.getId(), 0L)));
+    }
+    
+    /**
+     * Fill in the full extracted text of a document DTO
+     */
+    private DocumentDTO withContent(DocumentDTO dto) {
+        if (dto.getContentLength() != null) {
+            dto.setContent(documentContentService.readContent(dto.getId()));
+        }
+        return dto;
+    }
+    
+    /**
+     * Encode the keyset position after a summary, together with the sort order it belongs to
+     */
+    private String encodeCursor(DocumentRepositoryCustom.SummaryQuery query, DocumentSummaryDTO last) {
+        Object value = switch (query.getSortField()) {
+            case UPLOAD_DATE -> last.getUploadDate();
+            case NAME -> last.getName();
+            case FILE_TYPE -> last.getFileType();
+        };
+        String raw = query.getSortField().name() + "|" + (query.isAscending() ? "asc" : "desc") + "|"
+                + last.getId() + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private void decodeCursor(String cursor, DocumentRepositoryCustom.SummaryQuery query) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4
+                    || !parts[0].equals(query.getSortField().name())
+                    || !parts[1].equals(query.isAscending() ? "asc" : "desc")) {
+                throw new IllegalArgumentException("it does not match the requested sort order");
+            }
+            Object value = query.getSortField() == DocumentSummaryDTO.SortField.UPLOAD_DATE
+                    ? LocalDateTime.parse(parts[3])
+                    : parts[3];
+            query.setAfter(value, UUID.fromString(parts[2]));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Validate uploaded file
+     */
+    private void validateFile(MultipartFile file) {
+        // Size and content are checked while the file is streamed to disk
         String originalFilename = file.getOriginalFilename();
         if (originalFilename == null || originalFilename.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid filename");
@@ -216,11 +446,6 @@ public class DocumentService {
         if (!fileExtension.matches("txt|docx|pdf")) {
             throw new IllegalArgumentException("Unsupported file type. Only .txt, .docx, and .pdf files are supported.");
         }
-        
-        // Check file size (50MB limit is set in application.properties)
-        if (file.getSize() > 50 * 1024 * 1024) {
-            throw new IllegalArgumentException("File size exceeds 50MB limit");
-        }
     }
     
     /**
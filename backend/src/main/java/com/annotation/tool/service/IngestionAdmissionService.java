@@ -0,0 +1,170 @@
+package com.annotation.tool.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service class for admission control of document ingestion
+ *
+ * Bounds the upload bytes being received at once, the backlog of queued
+ * extraction jobs and the number of extractions running at once across the
+ * single upload and archive pools, so ingestion storms cannot starve read
+ * traffic of heap and CPU. Queue depth, wait time and rejections are
+ * published as metrics.
+ */
+@Service
+public class IngestionAdmissionService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("documentExtractionExecutor")
+    private ThreadPoolTaskExecutor extractionExecutor;
+
+    @Value("${app.admission.max-in-flight-upload-bytes:200MB}")
+    private DataSize maxInFlightUploadBytes;
+
+    @Value("${app.admission.max-queued-extractions:50}")
+    private int maxQueuedExtractions;
+
+    @Value("${app.admission.max-concurrent-extractions:0}")
+    private int maxConcurrentExtractions;
+
+    @Value("${app.admission.retry-after:10s}")
+    private Duration retryAfter;
+
+    private final AtomicLong inFlightUploadBytes = new AtomicLong();
+    private Semaphore extractionPermits;
+    private Timer extractionWaitTimer;
+    private Counter uploadBytesRejections;
+    private Counter extractionBacklogRejections;
+
+    /**
+     * Rejection of an ingestion request, mapped to 429 or 503 with Retry-After
+     */
+    public static final class AdmissionRejectedException extends RuntimeException {
+
+        private final int status;
+        private final Duration retryAfter;
+
+        public AdmissionRejectedException(int status, String message, Duration retryAfter) {
+            super(message);
+            this.status = status;
+            this.retryAfter = retryAfter;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+    }
+
+    /**
+     * Create the extraction permits and register the metrics
+     */
+    @PostConstruct
+    public void init() {
+        int permits = maxConcurrentExtractions > 0 ? maxConcurrentExtractions : Runtime.getRuntime().availableProcessors();
+        extractionPermits = new Semaphore(permits, true);
+
+        Gauge.builder("ingestion.uploads.in-flight.bytes", inFlightUploadBytes, AtomicLong::get)
+                .description("Bytes of upload requests currently being received")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("ingestion.extraction.queue.depth", this, IngestionAdmissionService::getExtractionQueueDepth)
+                .description("Extractions waiting for a worker or an extraction permit")
+                .register(meterRegistry);
+        Gauge.builder("ingestion.extraction.active", this, service -> permits - service.extractionPermits.availablePermits())
+                .description("Extractions currently running")
+                .register(meterRegistry);
+        extractionWaitTimer = Timer.builder("ingestion.extraction.wait")
+                .description("Time from queueing an extraction until it starts running")
+                .register(meterRegistry);
+        uploadBytesRejections = Counter.builder("ingestion.admission.rejected")
+                .description("Ingestion requests rejected by admission control")
+                .tag("reason", "upload-bytes")
+                .register(meterRegistry);
+        extractionBacklogRejections = Counter.builder("ingestion.admission.rejected")
+                .description("Ingestion requests rejected by admission control")
+                .tag("reason", "extraction-backlog")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserve budget for an upload request of the given size
+     *
+     * A request larger than the whole budget is still admitted when nothing else
+     * is in flight; the multipart size limit bounds it instead.
+     */
+    public void admitUpload(long bytes) {
+        while (true) {
+            long current = inFlightUploadBytes.get();
+            if (current > 0 && current + bytes > maxInFlightUploadBytes.toBytes()) {
+                uploadBytesRejections.increment();
+                throw new AdmissionRejectedException(503, "Too many uploads in progress, please retry later", retryAfter);
+            }
+            if (inFlightUploadBytes.compareAndSet(current, current + bytes)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Release the budget reserved by admitUpload
+     */
+    public void releaseUpload(long bytes) {
+        inFlightUploadBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Reject a new extraction job while the extraction backlog is full
+     */
+    public void checkExtractionBacklog() {
+        if (extractionExecutor.getThreadPoolExecutor().getQueue().size() >= maxQueuedExtractions) {
+            extractionBacklogRejections.increment();
+            throw new AdmissionRejectedException(429, "Extraction queue is full, please retry later", retryAfter);
+        }
+    }
+
+    /**
+     * Wait for one of the extraction permits shared by all extraction pools
+     *
+     * @param queuedAtNanos System.nanoTime() when the extraction was queued
+     */
+    public void acquireExtractionPermit(long queuedAtNanos) throws InterruptedException {
+        extractionPermits.acquire();
+        extractionWaitTimer.record(System.nanoTime() - queuedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Release a permit taken by acquireExtractionPermit
+     */
+    public void releaseExtractionPermit() {
+        extractionPermits.release();
+    }
+
+    /**
+     * Get the number of extractions waiting for a worker or a permit
+     */
+    public int getExtractionQueueDepth() {
+        return extractionExecutor.getThreadPoolExecutor().getQueue().size() + extractionPermits.getQueueLength();
+    }
+}
@@ -2,6 +2,8 @@ package com.annotation.tool.service;
 
 import com.annotation.tool.dto.LabelDTO;
 import com.annotation.tool.entity.Label;
+import com.annotation.tool.repository.AnnotationRepository;
+import com.annotation.tool.repository.LabelRelationshipRepository;
 import com.annotation.tool.repository.LabelRepository;
 import com.annotation.tool.util.DTOMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +28,12 @@ public class LabelService {
     @Autowired
     private LabelRepository labelRepository;
     
+    @Autowired
+    private AnnotationRepository annotationRepository;
+    
+    @Autowired
+    private LabelRelationshipRepository relationshipRepository;
+    
     @Autowired
     private DTOMapper dtoMapper;
     
@@ -138,20 +146,23 @@ public class LabelService {
      * Delete a label
      */
     public void deleteLabel(UUID id) {
-        Label label = labelRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Label not found"));
+        if (!labelRepository.existsById(id)) {
+            throw new IllegalArgumentException("Label not found");
+        }
         
         // Check if label has annotations
-        if (!label.getAnnotations().isEmpty()) {
+        if (annotationRepository.existsByLabelId(id)) {
             throw new IllegalArgumentException("Cannot delete label that has annotations. Delete annotations first.");
         }
         
         // Check if label has children
-        if (!label.getChildren().isEmpty()) {
+        if (labelRepository.existsByParentId(id)) {
             throw new IllegalArgumentException("Cannot delete label that has child labels. Delete child labels first.");
         }
         
-        labelRepository.delete(label);
+        // Relationships are deleted set-based, without loading them
+        relationshipRepository.deleteAllForLabel(id);
+        labelRepository.deleteAllByIdInBatch(List.of(id));
     }
     
     /**
@@ -0,0 +1,291 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.dto.StorageReconciliationDTO;
+import com.annotation.tool.repository.DocumentRepository;
+import com.annotation.tool.storage.FileStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Service class reconciling the upload store with the documents referencing it
+ *
+ * Walks the store listing and the distinct document file paths side by side,
+ * both in ascending key order, as a merge join: neither side is loaded into
+ * memory, and each key is either matched, an orphaned file (stored but not
+ * referenced) or a dangling path (referenced but not stored). Orphans older
+ * than a grace period are deleted after re-checking that no document took
+ * them up meanwhile; dangling paths are only reported. Scanning and deleting
+ * are rate limited so a pass does not compete with regular traffic.
+ *
+ * No transaction spans the pass, which may take hours at these rates: the
+ * file paths are read in keyset batches, each query in its own short
+ * transaction, so no snapshot is held open that would keep vacuum from
+ * cleaning up behind regular writes.
+ */
+@Service
+public class StorageReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageReconciliationService.class);
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private FileStore fileStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.storage.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.gc.dry-run:false}")
+    private boolean scheduledDryRun;
+
+    @Value("${app.storage.gc.min-age:24h}")
+    private Duration minAge;
+
+    @Value("${app.storage.gc.scan-rate:1000}")
+    private int scanRate;
+
+    @Value("${app.storage.gc.delete-rate:10}")
+    private int deleteRate;
+
+    @Value("${app.storage.gc.max-samples:100}")
+    private int maxSamples;
+
+    @Value("${app.storage.gc.batch-size:1000}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile StorageReconciliationDTO lastReport;
+    private Counter reclaimedFiles;
+    private Counter reclaimedBytes;
+
+    /**
+     * Register the metrics
+     */
+    @PostConstruct
+    public void init() {
+        Gauge.builder("storage.reconciliation.orphaned.files", this,
+                        service -> service.lastReport != null ? service.lastReport.getOrphanedFiles() : 0)
+                .description("Stored files no document referenced in the last reconciliation")
+                .register(meterRegistry);
+        Gauge.builder("storage.reconciliation.dangling.paths", this,
+                        service -> service.lastReport != null ? service.lastReport.getDanglingPaths() : 0)
+                .description("Document file paths without a stored file in the last reconciliation")
+                .register(meterRegistry);
+        reclaimedFiles = Counter.builder("storage.reconciliation.reclaimed.files")
+                .description("Orphaned files deleted from the upload store")
+                .register(meterRegistry);
+        reclaimedBytes = Counter.builder("storage.reconciliation.reclaimed.bytes")
+                .description("Bytes of orphaned files deleted from the upload store")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reconcile on a fixed delay
+     */
+    @Scheduled(initialDelayString = "${app.storage.gc.initial-delay:PT10M}", fixedDelayString = "${app.storage.gc.interval:PT6H}")
+    public void reconcileOnSchedule() {
+        if (enabled) {
+            reconcile(scheduledDryRun);
+        }
+    }
+
+    /**
+     * Run a reconciliation pass; a dry run only reports
+     *
+     * @return empty if a pass is already running
+     */
+    public Optional<StorageReconciliationDTO> reconcile(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+
+        StorageReconciliationDTO report = new StorageReconciliationDTO(dryRun);
+        try (Stream<FileStore.FileInfo> stored = fileStore.list()) {
+            mergeJoin(stored.iterator(), referencedPaths(), report);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.setError("Reconciliation was interrupted");
+        } catch (IOException | RuntimeException e) {
+            logger.error("Upload store reconciliation failed: {}", e.getMessage(), e);
+            report.setError(e.getMessage());
+        } finally {
+            report.setCompletedAt(LocalDateTime.now());
+            lastReport = report;
+            running.set(false);
+        }
+
+        logger.info("Upload store reconciliation{}: {} stored files, {} referenced paths, {} orphaned files "
+                        + "({} bytes, {} within the grace period), {} reclaimed ({} bytes), {} dangling paths",
+                dryRun ? " (dry run)" : "", report.getStoredFiles(), report.getReferencedPaths(),
+                report.getOrphanedFiles(), report.getOrphanedBytes(), report.getRecentOrphansSkipped(),
+                report.getReclaimedFiles(), report.getReclaimedBytes(), report.getDanglingPaths());
+        if (report.getDanglingPaths() > 0) {
+            logger.warn("Documents reference {} missing stored files, e.g. {}",
+                    report.getDanglingPaths(), report.getDanglingPathSamples());
+        }
+        return Optional.of(report);
+    }
+
+    /**
+     * Get the report of the last finished pass
+     */
+    public Optional<StorageReconciliationDTO> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    /**
+     * Iterate over the distinct document file paths in key order, loading the
+     * next batch after the last path only when the previous one is used up
+     */
+    private Iterator<String> referencedPaths() {
+        return Stream.iterate(documentRepository.findFilePathsAfter("", batchSize),
+                        batch -> !batch.isEmpty(),
+                        batch -> batch.size() < batchSize ? List.<String>of()
+                                : documentRepository.findFilePathsAfter(batch.get(batch.size() - 1), batchSize))
+                .flatMap(List::stream)
+                .filter(FileStore::isContentKey)
+                .iterator();
+    }
+
+    private void mergeJoin(Iterator<FileStore.FileInfo> stored, Iterator<String> referenced,
+                           StorageReconciliationDTO report) throws InterruptedException {
+        Throttle scanThrottle = new Throttle(scanRate);
+        Throttle deleteThrottle = new Throttle(deleteRate);
+
+        FileStore.FileInfo file = nextFile(stored, null, report);
+        String path = nextPath(referenced, null, report);
+        while (file != null || path != null) {
+            scanThrottle.acquire();
+            int order = file == null ? 1 : path == null ? -1 : file.getKey().compareTo(path);
+            if (order == 0) {
+                file = nextFile(stored, file, report);
+                path = nextPath(referenced, path, report);
+            } else if (order < 0) {
+                collectOrphan(file, report, deleteThrottle);
+                file = nextFile(stored, file, report);
+            } else {
+                report.setDanglingPaths(report.getDanglingPaths() + 1);
+                if (report.getDanglingPathSamples().size() < maxSamples) {
+                    report.getDanglingPathSamples().add(path);
+                }
+                path = nextPath(referenced, path, report);
+            }
+        }
+    }
+
+    /**
+     * Delete an orphaned file unless it is recent or has been referenced since the listing
+     */
+    private void collectOrphan(FileStore.FileInfo file, StorageReconciliationDTO report, Throttle deleteThrottle)
+            throws InterruptedException {
+        if (documentRepository.countByFilePath(file.getKey()) > 0) {
+            return;
+        }
+
+        report.setOrphanedFiles(report.getOrphanedFiles() + 1);
+        report.setOrphanedBytes(report.getOrphanedBytes() + file.getSize());
+        if (System.currentTimeMillis() - file.getLastModified() < minAge.toMillis()) {
+            // May belong to an upload whose document is not committed yet
+            report.setRecentOrphansSkipped(report.getRecentOrphansSkipped() + 1);
+            return;
+        }
+        if (report.isDryRun()) {
+            return;
+        }
+
+        deleteThrottle.acquire();
+        try {
+            // The listing may be stale: an upload reusing the file renews its timestamp
+            Optional<FileStore.FileInfo> current = fileStore.stat(file.getKey());
+            if (current.isEmpty()) {
+                return;
+            }
+            if (System.currentTimeMillis() - current.get().getLastModified() < minAge.toMillis()) {
+                report.setRecentOrphansSkipped(report.getRecentOrphansSkipped() + 1);
+                return;
+            }
+            fileStore.delete(file.getKey());
+        } catch (IOException e) {
+            logger.warn("Failed to delete orphaned file {}: {}", file.getKey(), e.getMessage());
+            return;
+        }
+        logger.debug("Deleted orphaned file {} ({} bytes)", file.getKey(), file.getSize());
+        report.setReclaimedFiles(report.getReclaimedFiles() + 1);
+        report.setReclaimedBytes(report.getReclaimedBytes() + file.getSize());
+        reclaimedFiles.increment();
+        reclaimedBytes.increment(file.getSize());
+    }
+
+    private FileStore.FileInfo nextFile(Iterator<FileStore.FileInfo> stored, FileStore.FileInfo previous,
+                                        StorageReconciliationDTO report) {
+        if (!stored.hasNext()) {
+            return null;
+        }
+        FileStore.FileInfo next = stored.next();
+        if (previous != null && next.getKey().compareTo(previous.getKey()) <= 0) {
+            throw new IllegalStateException("Stored files are not listed in key order at " + next.getKey());
+        }
+        report.setStoredFiles(report.getStoredFiles() + 1);
+        return next;
+    }
+
+    private String nextPath(Iterator<String> referenced, String previous, StorageReconciliationDTO report) {
+        if (!referenced.hasNext()) {
+            return null;
+        }
+        String next = referenced.next();
+        if (previous != null && next.compareTo(previous) <= 0) {
+            // A linguistic collation on documents.file_path may order keys differently
+            throw new IllegalStateException("Document file paths are not in key order at " + next);
+        }
+        report.setReferencedPaths(report.getReferencedPaths() + 1);
+        return next;
+    }
+
+    /**
+     * Spaces out operations to at most the given rate; 0 disables the limit
+     */
+    private static final class Throttle {
+
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        private Throttle(int perSecond) {
+            this.intervalNanos = perSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / perSecond : 0;
+        }
+
+        private void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (next > now) {
+                TimeUnit.NANOSECONDS.sleep(next - now);
+            }
+            next = Math.max(next, now) + intervalNanos;
+        }
+    }
+}
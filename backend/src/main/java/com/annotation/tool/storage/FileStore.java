@@ -0,0 +1,151 @@
+package com.annotation.tool.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Storage backend for uploaded files
+ *
+ * Files are stored content-addressed under a key derived from their SHA-256
+ * and sharded by its leading hex digits ({@code ab/cd/abcd....pdf}), so no
+ * directory or listing prefix grows with the whole corpus. A file only becomes
+ * visible under its key once it has been written completely. Documents keep
+ * the key in their file path.
+ */
+public interface FileStore {
+
+    Pattern CONTENT_KEY = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.[a-z]+");
+
+    /**
+     * Result of storing an upload
+     */
+    final class StoredFile {
+
+        private final String key;
+        private final String sha256;
+        private final long size;
+
+        public StoredFile(String key, String sha256, long size) {
+            this.key = key;
+            this.sha256 = sha256;
+            this.size = size;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Key, size and modification time of a stored file
+     */
+    final class FileInfo {
+
+        private final String key;
+        private final long size;
+        private final long lastModified;
+
+        public FileInfo(String key, long size, long lastModified) {
+            this.key = key;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * A stored file available on the local file system until closed
+     */
+    interface LocalFile extends AutoCloseable {
+
+        Path getPath();
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Stream an upload into the store under its content key
+     *
+     * The upload is hashed, sized and checked against the declared file type
+     * in the same pass. If the key already exists the stored file is reused
+     * and its modification time renewed.
+     */
+    StoredFile store(InputStream input, String fileType, long maxBytes) throws IOException;
+
+    /**
+     * Get the size and modification time of a stored file
+     */
+    Optional<FileInfo> stat(String key) throws IOException;
+
+    /**
+     * Open a stored file for reading
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Open count bytes of a stored file starting at the given position
+     */
+    InputStream open(String key, long position, long count) throws IOException;
+
+    /**
+     * Make a stored file available as a local file, e.g. for text extraction
+     */
+    LocalFile fetch(String key) throws IOException;
+
+    /**
+     * Get the local path of a stored file if the store keeps it on this machine
+     */
+    Optional<Path> localPath(String key);
+
+    /**
+     * Delete a stored file if it exists
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * List the files stored under content keys in ascending key order
+     *
+     * Entries are read lazily, a directory or listing page at a time; the
+     * stream must be closed.
+     */
+    Stream<FileInfo> list() throws IOException;
+
+    /**
+     * Get the sharded key of a file with the given SHA-256 and type
+     */
+    static String contentKey(String sha256, String fileType) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + "." + fileType.toLowerCase();
+    }
+
+    /**
+     * Check whether a key is in the sharded content layout, as opposed to a file
+     * path recorded before it
+     */
+    static boolean isContentKey(String key) {
+        return CONTENT_KEY.matcher(key).matches();
+    }
+}
@@ -0,0 +1,272 @@
+package com.annotation.tool.storage;
+
+import com.annotation.tool.util.FileStorageUtil;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * File store on the local file system, rooted at the upload directory
+ *
+ * Uploads are written to a temporary file in the root and atomically renamed
+ * into their shard directory, so a stored file is never seen half written.
+ * Keys that are not in the sharded layout are file paths recorded before it
+ * and are resolved as they were.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalFileStore implements FileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileStore.class);
+
+    private static final String TEMP_SUFFIX = ".upload";
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+
+    @Autowired
+    private FileStorageUtil fileStorageUtil;
+
+    @Value("${app.file.upload-dir}")
+    private String uploadDir;
+
+    private Path root;
+
+    /**
+     * Create the root directory and remove leftovers of interrupted uploads
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(uploadDir);
+        Files.createDirectories(root);
+
+        try (Stream<Path> stream = Files.list(root)) {
+            stream.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX)).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete interrupted upload {}: {}", path, e.getMessage());
+                }
+            });
+        }
+    }
+
+    @Override
+    public StoredFile store(InputStream input, String fileType, long maxBytes) throws IOException {
+        Path tempPath = root.resolve(UUID.randomUUID() + TEMP_SUFFIX);
+        FileStorageUtil.StoredFile tempFile = fileStorageUtil.store(input, tempPath, fileType, maxBytes);
+        String key = FileStore.contentKey(tempFile.getSha256(), fileType);
+        Path target = root.resolve(key);
+
+        try {
+            if (renew(target)) {
+                Files.delete(tempPath);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(tempPath, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // Same content was stored concurrently
+            Files.deleteIfExists(tempPath);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+
+        return new StoredFile(key, tempFile.getSha256(), tempFile.getSize());
+    }
+
+    /**
+     * Renew the modification time of an existing file, so the orphan collector's
+     * grace period covers a file that is about to be referenced again
+     *
+     * @return false if the file does not exist
+     */
+    private boolean renew(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<FileInfo> stat(String key) throws IOException {
+        Path path = resolve(key);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new FileInfo(key, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream open(String key, long position, long count) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key));
+        try {
+            channel.position(position);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BoundedInputStream(Channels.newInputStream(channel), count);
+    }
+
+    @Override
+    public LocalFile fetch(String key) {
+        Path path = resolve(key);
+        return new LocalFile() {
+            @Override
+            public Path getPath() {
+                return path;
+            }
+
+            @Override
+            public void close() {
+                // Stored locally already, nothing to release
+            }
+        };
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    /**
+     * Walk the two shard levels and their files in name order, which is key order
+     */
+    @Override
+    public Stream<FileInfo> list() throws IOException {
+        return sortedChildren(root, SHARD).stream()
+                .flatMap(first -> uncheckedSortedChildren(first, SHARD).stream())
+                .flatMap(second -> uncheckedSortedChildren(second, null).stream())
+                .map(file -> file.getParent().getParent().getFileName() + "/" + file.getParent().getFileName()
+                        + "/" + file.getFileName())
+                .filter(FileStore::isContentKey)
+                .map(key -> {
+                    try {
+                        return stat(key);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .flatMap(Optional::stream);
+    }
+
+    private List<Path> uncheckedSortedChildren(Path directory, Pattern namePattern) {
+        try {
+            return sortedChildren(directory, namePattern);
+        } catch (NoSuchFileException e) {
+            // Removed since its parent was listed
+            return List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Path> sortedChildren(Path directory, Pattern namePattern) throws IOException {
+        try (Stream<Path> children = Files.list(directory)) {
+            return children
+                    .filter(path -> namePattern == null || namePattern.matcher(path.getFileName().toString()).matches())
+                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path resolve(String key) {
+        if (FileStore.isContentKey(key)) {
+            return root.resolve(key);
+        }
+        // File path recorded before the sharded layout
+        return Paths.get(key);
+    }
+
+    /**
+     * Input stream that ends after a fixed number of bytes
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private BoundedInputStream(InputStream in, long count) {
+            super(in);
+            this.remaining = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.annotation.tool.storage;
+
+import com.annotation.tool.util.FileStorageUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * File store in an S3-compatible object store (AWS S3, MinIO, ...)
+ *
+ * Uploads are spooled to a local temporary file to learn their content key
+ * and then put in a single request; S3 only makes an object visible once it
+ * has been written completely. Reads use ranged GETs, and extraction works
+ * on a temporary local copy. Listings come back in key order, as S3 returns
+ * keys in ascending UTF-8 byte order.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+public class S3FileStore implements FileStore {
+
+    private static final int NOT_FOUND = 404;
+
+    @Autowired
+    private FileStorageUtil fileStorageUtil;
+
+    @Value("${app.storage.s3.bucket}")
+    private String bucket;
+
+    @Value("${app.storage.s3.prefix:}")
+    private String prefix;
+
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.storage.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    @Value("${app.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.storage.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${app.storage.s3.temp-dir:${java.io.tmpdir}}")
+    private String tempDir;
+
+    private S3Client client;
+    private Path tempPath;
+
+    @PostConstruct
+    public void init() throws IOException {
+        tempPath = Paths.get(tempDir);
+        Files.createDirectories(tempPath);
+        if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+            prefix = prefix + "/";
+        }
+
+        AwsCredentialsProvider credentials = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .forcePathStyle(pathStyleAccess);
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        client = builder.build();
+    }
+
+    @PreDestroy
+    public void close() {
+        client.close();
+    }
+
+    @Override
+    public StoredFile store(InputStream input, String fileType, long maxBytes) throws IOException {
+        Path spool = tempPath.resolve(UUID.randomUUID() + ".upload");
+        try {
+            FileStorageUtil.StoredFile spooled = fileStorageUtil.store(input, spool, fileType, maxBytes);
+            String key = FileStore.contentKey(spooled.getSha256(), fileType);
+
+            if (stat(key).isPresent()) {
+                renew(key);
+            } else {
+                call(() -> client.putObject(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(objectKey(key))
+                        .contentLength(spooled.getSize())
+                        .build(), RequestBody.fromFile(spool)));
+            }
+            return new StoredFile(key, spooled.getSha256(), spooled.getSize());
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    /**
+     * Renew the modification time of an existing object by copying it onto itself,
+     * so the orphan collector's grace period covers an object that is about to be
+     * referenced again
+     */
+    private void renew(String key) throws IOException {
+        call(() -> client.copyObject(CopyObjectRequest.builder()
+                .sourceBucket(bucket)
+                .sourceKey(objectKey(key))
+                .destinationBucket(bucket)
+                .destinationKey(objectKey(key))
+                .metadataDirective(MetadataDirective.REPLACE)
+                .build()));
+    }
+
+    @Override
+    public Optional<FileInfo> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey(key))
+                    .build());
+            return Optional.of(new FileInfo(key, head.contentLength(), head.lastModified().toEpochMilli()));
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_FOUND) {
+                return Optional.empty();
+            }
+            throw new IOException("Failed to look up stored file " + key + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to look up stored file " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return get(key, GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+    }
+
+    @Override
+    public InputStream open(String key, long position, long count) throws IOException {
+        if (count <= 0) {
+            return InputStream.nullInputStream();
+        }
+        return get(key, GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey(key))
+                .range("bytes=" + position + "-" + (position + count - 1))
+                .build());
+    }
+
+    @Override
+    public LocalFile fetch(String key) throws IOException {
+        Path copy = tempPath.resolve(UUID.randomUUID() + "-" + key.substring(key.lastIndexOf('/') + 1));
+        try (InputStream in = open(key)) {
+            Files.copy(in, copy);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(copy);
+            throw e;
+        }
+
+        return new LocalFile() {
+            @Override
+            public Path getPath() {
+                return copy;
+            }
+
+            @Override
+            public void close() throws IOException {
+                Files.deleteIfExists(copy);
+            }
+        };
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        call(() -> client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey(key))
+                .build()));
+    }
+
+    @Override
+    public Stream<FileInfo> list() throws IOException {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(bucket)
+                .prefix(prefix)
+                .build();
+        try {
+            return client.listObjectsV2Paginator(request).contents().stream()
+                    .map(object -> new FileInfo(object.key().substring(prefix.length()), object.size(),
+                            object.lastModified().toEpochMilli()))
+                    .filter(info -> FileStore.isContentKey(info.getKey()));
+        } catch (SdkException e) {
+            throw new IOException("Failed to list stored files: " + e.getMessage(), e);
+        }
+    }
+
+    private InputStream get(String key, GetObjectRequest request) throws IOException {
+        try {
+            return client.getObject(request);
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_FOUND) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Failed to read stored file " + key + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read stored file " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void call(Runnable request) throws IOException {
+        try {
+            request.run();
+        } catch (SdkException e) {
+            throw new IOException("Object store request failed: " + e.getMessage(), e);
+        }
+    }
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+}
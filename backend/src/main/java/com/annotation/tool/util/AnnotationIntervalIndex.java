@@ -0,0 +1,350 @@
+package com.annotation.tool.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Interval index over the annotation spans of one document
+ *
+ * Spans are half-open [start, end) character ranges, as in the annotations
+ * table, kept in primitive arrays sorted by start. The sorted array is read as
+ * an implicit balanced search tree, the middle of each range being its root,
+ * and every node also stores the largest end in its subtree. Overlap and
+ * stabbing queries skip every subtree that ends too early, so they take
+ * O(log n) steps per match. A second order by end serves nearest-neighbour
+ * queries. The index is immutable: changes are merged into a new index in
+ * O(n), so readers never lock.
+ */
+public final class AnnotationIntervalIndex {
+
+    private static final Comparator<Entry> START_ORDER = Comparator.comparingInt(Entry::getStart)
+            .thenComparingInt(Entry::getEnd)
+            .thenComparing(Entry::getId);
+
+    /**
+     * An annotation span with its label
+     */
+    public static final class Entry {
+
+        private final UUID id;
+        private final UUID labelId;
+        private final int start;
+        private final int end;
+
+        public Entry(UUID id, UUID labelId, int start, int end) {
+            this.id = id;
+            this.labelId = labelId;
+            this.start = start;
+            this.end = end;
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public UUID getLabelId() {
+            return labelId;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+    }
+
+    private final UUID[] ids;
+    private final UUID[] labelIds;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds; // Largest end in the subtree rooted at each position
+    private final int[] byEnd; // Positions in (end, start, id) order
+
+    private AnnotationIntervalIndex(UUID[] ids, UUID[] labelIds, int[] starts, int[] ends, int[] byEnd) {
+        this.ids = ids;
+        this.labelIds = labelIds;
+        this.starts = starts;
+        this.ends = ends;
+        this.byEnd = byEnd;
+        this.maxEnds = new int[starts.length];
+        computeMaxEnds(0, starts.length);
+    }
+
+    /**
+     * Build the index of a document's spans
+     */
+    public static AnnotationIntervalIndex build(Collection<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(START_ORDER);
+        int size = sorted.size();
+        UUID[] ids = new UUID[size];
+        UUID[] labelIds = new UUID[size];
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        for (int i = 0; i < size; i++) {
+            Entry entry = sorted.get(i);
+            ids[i] = entry.getId();
+            labelIds[i] = entry.getLabelId();
+            starts[i] = entry.getStart();
+            ends[i] = entry.getEnd();
+        }
+
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareByEnd(ends[a], starts[a], ids[a], ends[b], starts[b], ids[b]));
+        int[] byEnd = new int[size];
+        for (int i = 0; i < size; i++) {
+            byEnd[i] = order[i];
+        }
+        return new AnnotationIntervalIndex(ids, labelIds, starts, ends, byEnd);
+    }
+
+    /**
+     * Get a new index with the given spans removed and the given spans added
+     *
+     * An added span replaces the span with the same ID, so updates are added
+     * only, and applying the same change twice has no further effect.
+     */
+    public AnnotationIntervalIndex withChanges(Collection<UUID> removedIds, Collection<Entry> added) {
+        Set<UUID> dropped = new HashSet<>(removedIds);
+        added.forEach(entry -> dropped.add(entry.getId()));
+        List<Entry> addedByStart = new ArrayList<>(added);
+        addedByStart.sort(START_ORDER);
+
+        int kept = 0;
+        for (UUID id : ids) {
+            if (!dropped.contains(id)) {
+                kept++;
+            }
+        }
+        int size = kept + addedByStart.size();
+        UUID[] newIds = new UUID[size];
+        UUID[] newLabelIds = new UUID[size];
+        int[] newStarts = new int[size];
+        int[] newEnds = new int[size];
+        int[] moved = new int[ids.length]; // Old position -> new position, -1 if dropped
+        boolean[] isAdded = new boolean[size];
+
+        // Merge the kept spans and the added spans by start
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            while (i < ids.length && dropped.contains(ids[i])) {
+                moved[i++] = -1;
+            }
+            boolean takeAdded = i == ids.length || (j < addedByStart.size()
+                    && compareByStart(addedByStart.get(j), i) < 0);
+            if (takeAdded) {
+                Entry entry = addedByStart.get(j++);
+                newIds[k] = entry.getId();
+                newLabelIds[k] = entry.getLabelId();
+                newStarts[k] = entry.getStart();
+                newEnds[k] = entry.getEnd();
+                isAdded[k] = true;
+            } else {
+                newIds[k] = ids[i];
+                newLabelIds[k] = labelIds[i];
+                newStarts[k] = starts[i];
+                newEnds[k] = ends[i];
+                moved[i++] = k;
+            }
+        }
+        while (i < ids.length) {
+            moved[i++] = -1;
+        }
+
+        // Merge the kept spans' end order with the added spans' end order
+        List<Integer> addedPositions = new ArrayList<>(addedByStart.size());
+        for (int k = 0; k < size; k++) {
+            if (isAdded[k]) {
+                addedPositions.add(k);
+            }
+        }
+        addedPositions.sort((a, b) -> compareByEnd(newEnds[a], newStarts[a], newIds[a],
+                newEnds[b], newStarts[b], newIds[b]));
+        int[] newByEnd = new int[size];
+        int oldIndex = 0;
+        int addedIndex = 0;
+        for (int k = 0; k < size; k++) {
+            while (oldIndex < byEnd.length && moved[byEnd[oldIndex]] < 0) {
+                oldIndex++;
+            }
+            int oldPosition = oldIndex < byEnd.length ? moved[byEnd[oldIndex]] : -1;
+            int addedPosition = addedIndex < addedPositions.size() ? addedPositions.get(addedIndex) : -1;
+            boolean takeAdded = oldPosition < 0 || (addedPosition >= 0
+                    && compareByEnd(newEnds[addedPosition], newStarts[addedPosition], newIds[addedPosition],
+                    newEnds[oldPosition], newStarts[oldPosition], newIds[oldPosition]) < 0);
+            if (takeAdded) {
+                newByEnd[k] = addedPosition;
+                addedIndex++;
+            } else {
+                newByEnd[k] = oldPosition;
+                oldIndex++;
+            }
+        }
+
+        return new AnnotationIntervalIndex(newIds, newLabelIds, newStarts, newEnds, newByEnd);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Find the spans overlapping [start, end), in start order
+     */
+    public List<Entry> overlapping(int start, int end) {
+        List<Entry> result = new ArrayList<>();
+        collectOverlapping(0, ids.length, start, end, result);
+        return result;
+    }
+
+    /**
+     * Find the spans covering the character at a position, in start order
+     */
+    public List<Entry> at(int position) {
+        return overlapping(position, position + 1);
+    }
+
+    /**
+     * Find the spans lying within [start, end], in start order
+     */
+    public List<Entry> containedIn(int start, int end) {
+        List<Entry> result = new ArrayList<>();
+        for (int i = firstStartingAtOrAfter(start); i < ids.length && starts[i] <= end; i++) {
+            if (ends[i] <= end) {
+                result.add(entry(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the spans covering exactly [start, end), also when it is empty
+     */
+    public List<Entry> matching(int start, int end) {
+        List<Entry> result = new ArrayList<>();
+        for (int i = firstStartingAtOrAfter(start); i < ids.length && starts[i] == start && ends[i] <= end; i++) {
+            if (ends[i] == end) {
+                result.add(entry(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find up to limit spans closest to a position: the spans covering it first,
+     * then the others by their distance to it, nearer start or end
+     */
+    public List<Entry> nearest(int position, int limit) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : at(position)) {
+            if (result.size() == limit) {
+                return result;
+            }
+            result.add(entry);
+        }
+
+        int left = lastEndingAtOrBefore(position); // Index into byEnd, walking down
+        int right = firstStartingAtOrAfter(position + 1); // Position, walking up
+        while (result.size() < limit && (left >= 0 || right < ids.length)) {
+            long leftDistance = left >= 0 ? position - ends[byEnd[left]] : Long.MAX_VALUE;
+            long rightDistance = right < ids.length ? starts[right] - position : Long.MAX_VALUE;
+            if (leftDistance <= rightDistance) {
+                result.add(entry(byEnd[left--]));
+            } else {
+                result.add(entry(right++));
+            }
+        }
+        return result;
+    }
+
+    private void collectOverlapping(int lo, int hi, int start, int end, List<Entry> result) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxEnds[mid] <= start) {
+                return;
+            }
+            collectOverlapping(lo, mid, start, end, result);
+            if (starts[mid] >= end) {
+                return;
+            }
+            if (ends[mid] > start) {
+                result.add(entry(mid));
+            }
+            lo = mid + 1;
+        }
+    }
+
+    private int computeMaxEnds(int lo, int hi) {
+        if (lo >= hi) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        int max = Math.max(ends[mid], Math.max(computeMaxEnds(lo, mid), computeMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    private int firstStartingAtOrAfter(int position) {
+        int lo = 0;
+        int hi = starts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < position) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int lastEndingAtOrBefore(int position) {
+        int lo = 0;
+        int hi = byEnd.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[byEnd[mid]] <= position) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    private Entry entry(int position) {
+        return new Entry(ids[position], labelIds[position], starts[position], ends[position]);
+    }
+
+    private int compareByStart(Entry entry, int position) {
+        if (entry.getStart() != starts[position]) {
+            return Integer.compare(entry.getStart(), starts[position]);
+        }
+        if (entry.getEnd() != ends[position]) {
+            return Integer.compare(entry.getEnd(), ends[position]);
+        }
+        return entry.getId().compareTo(ids[position]);
+    }
+
+    private static int compareByEnd(int endA, int startA, UUID idA, int endB, int startB, UUID idB) {
+        if (endA != endB) {
+            return Integer.compare(endA, endB);
+        }
+        if (startA != startB) {
+            return Integer.compare(startA, startB);
+        }
+        return idA.compareTo(idB);
+    }
+}
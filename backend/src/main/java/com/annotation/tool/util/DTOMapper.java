@@ -2,8 +2,10 @@ package com.annotation.tool.util;
 
 import com.annotation.tool.dto.*;
 import com.annotation.tool.entity.*;
+import com.annotation.tool.repository.AnnotationRepository;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -116,14 +118,7 @@ public class DTOMapper {
     public DocumentDTO toDTO(Document document) {
         if (document == null) return null;
         
-        DocumentDTO dto = new DocumentDTO();
-        dto.setId(document.getId());
-        dto.setName(document.getName());
-        dto.setOriginalFilename(document.getOriginalFilename());
-        dto.setFileType(document.getFileType());
-        dto.setContent(document.getContent());
-        dto.setFileSize(document.getFileSize());
-        dto.setUploadDate(document.getUploadDate());
+        DocumentDTO dto = toDTOWithoutAnnotations(document);
         
         // Count annotations
         if (document.getAnnotations() != null) {
@@ -133,17 +128,29 @@ public class DTOMapper {
         return dto;
     }
     
-    public DocumentDTO toDTOWithAnnotations(Document document) {
+    /**
+     * Map a document with annotations the caller has already mapped, without
+     * initializing the lazy annotation collection
+     */
+    public DocumentDTO toDTOWithAnnotations(Document document, List<AnnotationDTO> annotations) {
         if (document == null) return null;
         
-        DocumentDTO dto = toDTO(document);
+        DocumentDTO dto = toDTOWithoutAnnotations(document);
+        dto.setAnnotations(annotations);
+        dto.setAnnotationCount((long) annotations.size());
         
-        // Map annotations
-        if (document.getAnnotations() != null) {
-            dto.setAnnotations(document.getAnnotations().stream()
-                    .map(this::toDTO)
-                    .collect(Collectors.toList()));
-        }
+        return dto;
+    }
+    
+    private DocumentDTO toDTOWithoutAnnotations(Document document) {
+        DocumentDTO dto = new DocumentDTO();
+        dto.setId(document.getId());
+        dto.setName(document.getName());
+        dto.setOriginalFilename(document.getOriginalFilename());
+        dto.setFileType(document.getFileType());
+        dto.setContentLength(document.getContentLength());
+        dto.setFileSize(document.getFileSize());
+        dto.setUploadDate(document.getUploadDate());
         
         return dto;
     }
@@ -156,7 +163,6 @@ public class DTOMapper {
         document.setName(dto.getName());
         document.setOriginalFilename(dto.getOriginalFilename());
         document.setFileType(dto.getFileType());
-        document.setContent(dto.getContent());
         document.setFileSize(dto.getFileSize());
         
         return document;
@@ -166,21 +172,47 @@ public class DTOMapper {
     public AnnotationDTO toDTO(Annotation annotation) {
         if (annotation == null) return null;
         
+        AnnotationDTO dto = toDTOWithoutDocument(annotation);
+        
+        if (annotation.getDocument() != null) {
+            dto.setDocumentId(annotation.getDocument().getId());
+            dto.setDocumentName(annotation.getDocument().getName());
+        }
+        
+        return dto;
+    }
+    
+    /**
+     * Map an annotation view, which already carries its document's name and its label
+     */
+    public AnnotationDTO toDTO(AnnotationRepository.View view) {
+        if (view == null) return null;
+        
+        AnnotationDTO dto = new AnnotationDTO();
+        dto.setId(view.getId());
+        dto.setDocumentId(view.getDocumentId());
+        dto.setDocumentName(view.getDocumentName());
+        dto.setLabelId(view.getLabelId());
+        dto.setLabelName(view.getLabelName());
+        dto.setLabelColor(view.getLabelColor());
+        dto.setStartPosition(view.getStartPosition());
+        dto.setEndPosition(view.getEndPosition());
+        dto.setSelectedText(view.getSelectedText());
+        dto.setCreatedAt(view.getCreatedAt());
+        dto.setUpdatedAt(view.getUpdatedAt());
+        
+        return dto;
+    }
+    
+    private AnnotationDTO toDTOWithoutDocument(Annotation annotation) {
         AnnotationDTO dto = new AnnotationDTO();
         dto.setId(annotation.getId());
         dto.setStartPosition(annotation.getStartPosition());
         dto.setEndPosition(annotation.getEndPosition());
         dto.setSelectedText(annotation.getSelectedText());
-        dto.setContextBefore(annotation.getContextBefore());
-        dto.setContextAfter(annotation.getContextAfter());
         dto.setCreatedAt(annotation.getCreatedAt());
         dto.setUpdatedAt(annotation.getUpdatedAt());
         
-        if (annotation.getDocument() != null) {
-            dto.setDocumentId(annotation.getDocument().getId());
-            dto.setDocumentName(annotation.getDocument().getName());
-        }
-        
         if (annotation.getLabel() != null) {
             dto.setLabelId(annotation.getLabel().getId());
             dto.setLabelName(annotation.getLabel().getName());
@@ -198,8 +230,6 @@ public class DTOMapper {
         annotation.setStartPosition(dto.getStartPosition());
         annotation.setEndPosition(dto.getEndPosition());
         annotation.setSelectedText(dto.getSelectedText());
-        annotation.setContextBefore(dto.getContextBefore());
-        annotation.setContextAfter(dto.getContextAfter());
         
         return annotation;
     }
@@ -0,0 +1,305 @@
+package com.annotation.tool.util;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.util.XMLHelper;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming text extractor for .docx files
+ *
+ * Reads word/document.xml with StAX straight from the OOXML package instead of
+ * building the XWPFDocument object model. The output matches concatenating
+ * {@code XWPFParagraph.getText()} plus a newline for every body paragraph.
+ * Constructs whose text POI assembles from other parts or from deep subtrees
+ * (footnotes, content controls, ruby, text boxes, form checkboxes) are not
+ * modelled; when one is met an {@link UnsupportedContentException} is thrown
+ * so the caller can fall back to the object model.
+ */
+final class DocxStreamingTextExtractor {
+
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    /**
+     * Signals that the document uses a construct the streaming extractor does not model
+     */
+    static final class UnsupportedContentException extends Exception {
+
+        UnsupportedContentException(String message) {
+            super(message);
+        }
+    }
+
+    private final FileProcessingUtil.ExtractionContext context;
+    private XMLStreamReader reader;
+
+    private DocxStreamingTextExtractor(FileProcessingUtil.ExtractionContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Extract the body paragraph text of a .docx file
+     */
+    static String extract(File file, FileProcessingUtil.ExtractionContext context)
+            throws IOException, UnsupportedContentException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            PackageRelationshipCollection relationships =
+                    pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+            if (relationships.size() != 1) {
+                throw new UnsupportedContentException("Package has no single main document part");
+            }
+
+            PackagePart mainPart = pkg.getPart(relationships.getRelationship(0));
+            if (mainPart == null) {
+                throw new UnsupportedContentException("Main document part is missing");
+            }
+
+            try (InputStream in = mainPart.getInputStream()) {
+                return new DocxStreamingTextExtractor(context).readDocument(in);
+            }
+        } catch (InvalidFormatException e) {
+            throw new IOException("Invalid .docx package: " + e.getMessage(), e);
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid document.xml: " + e.getMessage(), e);
+        }
+    }
+
+    private String readDocument(InputStream in) throws XMLStreamException, UnsupportedContentException {
+        reader = XMLHelper.newXMLInputFactory().createXMLStreamReader(in);
+        try {
+            while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                // skip prolog
+            }
+            if (!isW("document")) {
+                throw new UnsupportedContentException("Unexpected root element " + reader.getName());
+            }
+
+            StringBuilder text = new StringBuilder();
+            while (nextChild()) {
+                if (isW("body")) {
+                    readBody(text);
+                } else {
+                    skipElement();
+                }
+            }
+            return text.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Body level paragraphs only; tables and content controls are not paragraphs
+     */
+    private void readBody(StringBuilder text) throws XMLStreamException, UnsupportedContentException {
+        while (nextChild()) {
+            if (isW("p")) {
+                context.checkCancelled();
+                readParagraphContent(text);
+                text.append('\n');
+            } else {
+                skipElement();
+            }
+        }
+    }
+
+    /**
+     * Mirrors XWPFParagraph.buildRunsInOrderFromXml
+     */
+    private void readParagraphContent(StringBuilder text) throws XMLStreamException, UnsupportedContentException {
+        while (nextChild()) {
+            if (isW("r")) {
+                readRun(text);
+            } else if (isW("hyperlink") || isW("fldSimple")) {
+                readDirectRuns(text, false);
+            } else if (isW("ins") || isW("del") || isW("moveFrom") || isW("moveTo")) {
+                readDirectRuns(text, true);
+            } else if (isW("smartTag")) {
+                readParagraphContent(text);
+            } else if (isW("sdt")) {
+                throw new UnsupportedContentException("Content control in paragraph");
+            } else {
+                skipElement();
+            }
+        }
+    }
+
+    private void readDirectRuns(StringBuilder text, boolean trackChange) throws XMLStreamException, UnsupportedContentException {
+        while (nextChild()) {
+            if (isW("r")) {
+                readRun(text);
+            } else if (trackChange && isW("ins")) {
+                throw new UnsupportedContentException("Nested insertion");
+            } else {
+                skipElement();
+            }
+        }
+    }
+
+    /**
+     * Mirrors XWPFRun.toString for runs without phonetic or picture text
+     */
+    private void readRun(StringBuilder text) throws XMLStreamException, UnsupportedContentException {
+        StringBuilder runText = new StringBuilder();
+        boolean upperCase = false;
+        boolean deleted = false;
+        boolean seenContent = false;
+
+        while (nextChild()) {
+            if (isW("rPr")) {
+                if (seenContent) {
+                    throw new UnsupportedContentException("Run properties after run content");
+                }
+                upperCase = readUpperCase();
+                continue;
+            }
+            seenContent = true;
+
+            if (isW("t")) {
+                String value = readElementText();
+                runText.append(upperCase ? value.toUpperCase(LocaleUtil.getUserLocale()) : value);
+            } else if (isW("delText")) {
+                deleted = true;
+                skipElement();
+            } else if (isW("tab") || isW("ptab")) {
+                runText.append('\t');
+                skipElement();
+            } else if (isW("br") || isW("cr")) {
+                runText.append('\n');
+                skipElement();
+            } else if (isW("fldChar")) {
+                if (containsW("checkBox")) {
+                    throw new UnsupportedContentException("Form checkbox");
+                }
+            } else if (isW("pict") || isW("drawing")) {
+                if (containsW("t")) {
+                    throw new UnsupportedContentException("Text inside a picture or drawing");
+                }
+            } else if (isW("footnoteReference") || isW("endnoteReference")) {
+                throw new UnsupportedContentException("Footnote or endnote reference");
+            } else if (isW("ruby")) {
+                throw new UnsupportedContentException("Phonetic guide");
+            } else {
+                skipElement();
+            }
+        }
+
+        // Deleted runs are left out, as in XWPFParagraph.getText
+        if (!deleted) {
+            text.append(runText);
+        }
+    }
+
+    /**
+     * Whether the first caps or smallCaps property of the run is switched on
+     */
+    private boolean readUpperCase() throws XMLStreamException {
+        Boolean caps = null;
+        Boolean smallCaps = null;
+
+        while (nextChild()) {
+            if (isW("caps") && caps == null) {
+                caps = isOn(reader.getAttributeValue(W_NS, "val"));
+            } else if (isW("smallCaps") && smallCaps == null) {
+                smallCaps = isOn(reader.getAttributeValue(W_NS, "val"));
+            }
+            skipElement();
+        }
+
+        return Boolean.TRUE.equals(caps) || Boolean.TRUE.equals(smallCaps);
+    }
+
+    private boolean isOn(String value) {
+        return value == null
+                || "true".equalsIgnoreCase(value)
+                || "on".equalsIgnoreCase(value)
+                || "x".equalsIgnoreCase(value)
+                || "1".equals(value);
+    }
+
+    /**
+     * Move to the next child start element of the current element; returns false
+     * after consuming the current element's end tag
+     */
+    private boolean nextChild() throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Consume the current element including its subtree
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Consume the current element and report whether its subtree has a w: element with the given name
+     */
+    private boolean containsW(String localName) throws XMLStreamException {
+        boolean found = false;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                found |= isW(localName);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Read the character content of the current element, consuming its end tag
+     */
+    private String readElementText() throws XMLStreamException {
+        StringBuilder value = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS
+                    || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE)) {
+                value.append(reader.getText());
+            }
+        }
+        return value.toString();
+    }
+
+    private boolean isW(String localName) {
+        return W_NS.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+    }
+}
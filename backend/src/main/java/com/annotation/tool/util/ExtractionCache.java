@@ -0,0 +1,212 @@
+package com.annotation.tool.util;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Local disk cache of extracted document text
+ *
+ * Entries are keyed by the SHA-256 of the source file, its type and the
+ * extractor version, so upgrading an extractor never serves stale text. The
+ * cache is bounded in total size and evicts the least recently used entries;
+ * recency survives restarts through the entry files' modification times.
+ */
+@Component
+public class ExtractionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionCache.class);
+
+    private static final String ENTRY_SUFFIX = ".txt";
+    private static final int WRITE_WINDOW = 16384;
+
+    @Value("${app.extraction.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.extraction.cache.dir:./extraction-cache}")
+    private String cacheDir;
+
+    @Value("${app.extraction.cache.max-size:1GB}")
+    private DataSize maxSize;
+
+    // Entry file name -> size in bytes, in least recently used order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalSize;
+    private Path cachePath;
+
+    /**
+     * Load the index of existing entries, oldest first
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        cachePath = Paths.get(cacheDir);
+        Files.createDirectories(cachePath);
+
+        // Leftovers of interrupted writes
+        try (Stream<Path> stream = Files.list(cachePath)) {
+            stream.filter(path -> path.getFileName().toString().endsWith(".tmp")).forEach(this::deleteQuietly);
+        }
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(cachePath)) {
+            files = stream
+                    .filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                    .sorted(Comparator.comparing(this::lastModified))
+                    .collect(Collectors.toList());
+        }
+
+        synchronized (this) {
+            for (Path file : files) {
+                long size = Files.size(file);
+                entries.put(file.getFileName().toString(), size);
+                totalSize += size;
+            }
+            evict();
+        }
+
+        logger.info("Extraction cache at {} holds {} entries ({} bytes)", cachePath, entries.size(), totalSize);
+    }
+
+    /**
+     * Get cached text for a file
+     */
+    public Optional<String> get(String contentHash, String fileType, String extractorVersion) {
+        if (!enabled || contentHash == null) {
+            return Optional.empty();
+        }
+
+        String name = entryName(contentHash, fileType, extractorVersion);
+        synchronized (this) {
+            if (entries.get(name) == null) {
+                return Optional.empty();
+            }
+        }
+
+        Path file = cachePath.resolve(name);
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(content);
+        } catch (NoSuchFileException e) {
+            remove(name);
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn("Dropping unreadable extraction cache entry {}: {}", name, e.getMessage());
+            remove(name);
+            deleteQuietly(file);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store extracted text for a file, evicting least recently used entries as needed
+     */
+    public void put(String contentHash, String fileType, String extractorVersion, CharSequence content) {
+        if (!enabled || contentHash == null || content == null) {
+            return;
+        }
+
+        String name = entryName(contentHash, fileType, extractorVersion);
+        Path file = cachePath.resolve(name);
+        Path tempFile = cachePath.resolve(UUID.randomUUID() + ".tmp");
+
+        try {
+            writeText(tempFile, content);
+            long size = Files.size(tempFile);
+            if (size > maxSize.toBytes()) {
+                deleteQuietly(tempFile);
+                return;
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (this) {
+                Long previous = entries.put(name, size);
+                totalSize += size - (previous != null ? previous : 0);
+                evict();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write extraction cache entry {}: {}", name, e.getMessage());
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Drop least recently used entries until the cache fits its size bound
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalSize > maxSize.toBytes() && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalSize -= eldest.getValue();
+            deleteQuietly(cachePath.resolve(eldest.getKey()));
+        }
+    }
+
+    private synchronized void remove(String name) {
+        Long size = entries.remove(name);
+        if (size != null) {
+            totalSize -= size;
+        }
+    }
+
+    /**
+     * Write text as UTF-8 a window at a time, never copying all of it into one String
+     */
+    private void writeText(Path file, CharSequence content) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int start = 0; start < content.length(); start += WRITE_WINDOW) {
+                writer.append(content, start, Math.min(content.length(), start + WRITE_WINDOW));
+            }
+        }
+    }
+
+    private String entryName(String contentHash, String fileType, String extractorVersion) {
+        if (!contentHash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid content hash");
+        }
+        return contentHash + "." + fileType.toLowerCase() + "." + extractorVersion + ENTRY_SUFFIX;
+    }
+
+    private FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete extraction cache file {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.annotation.tool.util;
+
+import com.annotation.tool.storage.FileStore;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Utility class for serving stored files over HTTP
+ *
+ * Supports conditional requests against a strong ETag, single and multiple
+ * byte ranges and If-Range. When the file is on local disk and the servlet
+ * container offers sendfile (Tomcat over plain HTTP), whole files and single
+ * ranges are handed to the kernel and never pass through the heap; otherwise
+ * Spring streams the file, or the resource regions of the requested ranges, in
+ * small buffers. Single ranges of remote files are read with a ranged request.
+ */
+@Component
+public class FileDownloadUtil {
+
+    // Tomcat request attributes for sendfile, see org.apache.catalina.Globals
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private FileStore fileStore;
+
+    @Value("${app.download.sendfile-min-size:48KB}")
+    private DataSize sendfileMinSize;
+
+    /**
+     * A stored file to serve
+     */
+    public static final class DownloadableFile {
+
+        private final String key;
+        private final String filename;
+        private final String contentHash;
+
+        public DownloadableFile(String key, String filename, String contentHash) {
+            this.key = key;
+            this.filename = filename;
+            this.contentHash = contentHash;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+    }
+
+    /**
+     * Serve a file inline, honouring conditional and range headers
+     *
+     * @return null when the request was answered as not modified
+     */
+    public ResponseEntity<?> download(DownloadableFile file, ServletWebRequest request) throws IOException {
+        Optional<FileStore.FileInfo> info = fileStore.stat(file.getKey());
+        if (info.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Original file is missing"));
+        }
+
+        long length = info.get().getSize();
+        long lastModified = info.get().getLastModified();
+        String eTag = file.getContentHash() != null ? "\"" + file.getContentHash() + "\"" : null;
+        boolean notModified = eTag != null
+                ? request.checkNotModified(eTag, lastModified)
+                : request.checkNotModified(lastModified);
+        if (notModified) {
+            return null;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentType(MediaTypeFactory.getMediaType(file.getFilename())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM));
+        headers.setContentDisposition(ContentDisposition.inline()
+                .filename(file.getFilename(), StandardCharsets.UTF_8)
+                .build());
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        if (eTag != null) {
+            headers.setETag(eTag);
+        }
+        headers.setLastModified(lastModified);
+
+        List<HttpRange> ranges;
+        try {
+            ranges = requestedRanges(request, eTag, lastModified);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                    .build();
+        }
+
+        HttpServletRequest servletRequest = request.getRequest();
+        Optional<Path> localPath = fileStore.localPath(file.getKey());
+        Resource resource = localPath.<Resource>map(FileSystemResource::new)
+                .orElseGet(() -> new StoredFileResource(file.getKey(), length));
+        if (ranges.isEmpty()) {
+            headers.setContentLength(length);
+            if (localPath.isPresent() && useSendfile(servletRequest, length)) {
+                sendfile(servletRequest, localPath.get(), 0, length);
+                return new ResponseEntity<>(headers, HttpStatus.OK);
+            }
+            // Not a plain resource, so Spring does not apply a Range header that If-Range voided
+            return new ResponseEntity<>(new InputStreamResource(resource.getInputStream()), headers, HttpStatus.OK);
+        }
+
+        if (ranges.size() == 1) {
+            ResourceRegion region;
+            try {
+                region = ranges.get(0).toResourceRegion(resource);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            long end = region.getPosition() + region.getCount();
+            if (localPath.isPresent() && useSendfile(servletRequest, region.getCount())) {
+                headers.setContentLength(region.getCount());
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + region.getPosition() + "-" + (end - 1) + "/" + length);
+                sendfile(servletRequest, localPath.get(), region.getPosition(), end);
+                return new ResponseEntity<>(headers, HttpStatus.PARTIAL_CONTENT);
+            }
+            if (localPath.isEmpty()) {
+                // Fetch only the range instead of skipping through the whole remote file
+                headers.setContentLength(region.getCount());
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + region.getPosition() + "-" + (end - 1) + "/" + length);
+                InputStream range = fileStore.open(file.getKey(), region.getPosition(), region.getCount());
+                return new ResponseEntity<>(new InputStreamResource(range), headers, HttpStatus.PARTIAL_CONTENT);
+            }
+        }
+
+        // Spring answers the Range header of a resource body with 206 regions or 416
+        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Parse the Range header, ignoring it when If-Range names another version of the file
+     */
+    private List<HttpRange> requestedRanges(ServletWebRequest request, String eTag, long lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            boolean current;
+            if (ifRange.startsWith("\"")) {
+                current = ifRange.equals(eTag);
+            } else {
+                long ifRangeDate = request.getRequest().getDateHeader(HttpHeaders.IF_RANGE);
+                current = ifRangeDate != -1 && lastModified / 1000 == ifRangeDate / 1000;
+            }
+            if (!current) {
+                return List.of();
+            }
+        }
+
+        return HttpRange.parseRanges(range);
+    }
+
+    private boolean useSendfile(HttpServletRequest request, long count) {
+        return Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR)) && count >= sendfileMinSize.toBytes();
+    }
+
+    /**
+     * Ask the container to send [start, end) of the file after the headers
+     */
+    private void sendfile(HttpServletRequest request, Path path, long start, long end) throws IOException {
+        request.setAttribute(SENDFILE_FILENAME_ATTR, path.toRealPath().toString());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        request.setAttribute(SENDFILE_END_ATTR, end);
+    }
+
+    /**
+     * A stored file without a local path, read from the file store on demand
+     */
+    private final class StoredFileResource extends AbstractResource {
+
+        private final String key;
+        private final long length;
+
+        private StoredFileResource(String key, long length) {
+            this.key = key;
+            this.length = length;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return fileStore.open(key);
+        }
+
+        @Override
+        public String getDescription() {
+            return "stored file [" + key + "]";
+        }
+    }
+}
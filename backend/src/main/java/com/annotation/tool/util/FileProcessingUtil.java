@@ -1,17 +1,41 @@
 package com.annotation.tool.util;
 
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utility class for processing different file formats
@@ -21,18 +45,171 @@ import java.util.List;
 @Component
 public class FileProcessingUtil {
     
+    private static final Logger logger = LoggerFactory.getLogger(FileProcessingUtil.class);
+    
+    @Value("${app.extraction.timeout:5m}")
+    private Duration extractionTimeout;
+    
+    @Value("${app.extraction.txt.fallback-charsets:windows-1251,ISO-8859-1}")
+    private List<Charset> txtFallbackCharsets;
+    
+    @Value("${app.extraction.docx.streaming:true}")
+    private boolean docxStreaming;
+    
+    @Value("${app.extraction.pdf.max-main-memory:64MB}")
+    private DataSize pdfMaxMainMemory;
+    
+    @Value("${app.extraction.pdf.pages-per-chunk:10}")
+    private int pdfPagesPerChunk;
+    
+    @Value("${app.extraction.pdf.parallel-threshold:100}")
+    private int pdfParallelThreshold;
+    
+    @Autowired
+    @Qualifier("pdfExtractionPool")
+    private ForkJoinPool pdfExtractionPool;
+    
+    @Autowired
+    private ExtractionCache extractionCache;
+    
+    /**
+     * Revision of our own extraction code; bump whenever its output changes
+     */
+    private static final int EXTRACTOR_REVISION = 2;
+    
+    /**
+     * Character ending every page of extracted PDF text, as in pdftotext output
+     */
+    public static final char PAGE_BREAK = '\f';
+    
+    private final Map<String, String> extractorVersions = new HashMap<>();
+    
+    /**
+     * Receives page progress while a document is being extracted
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int pagesProcessed, int totalPages);
+    }
+    
+    /**
+     * Deadline, cancellation flag and progress listener of a single extraction
+     */
+    public static final class ExtractionContext {
+        
+        private final Duration timeout;
+        private final long deadline;
+        private final ProgressListener progressListener;
+        private volatile boolean cancelled;
+        
+        public ExtractionContext(Duration timeout, ProgressListener progressListener) {
+            this.timeout = timeout;
+            this.deadline = System.nanoTime() + timeout.toNanos();
+            this.progressListener = progressListener;
+        }
+        
+        public void cancel() {
+            cancelled = true;
+        }
+        
+        /**
+         * Abort the extraction if it was cancelled or ran past its deadline
+         */
+        public void checkCancelled() {
+            if (cancelled) {
+                throw new CancellationException("Extraction cancelled");
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new CancellationException("Extraction exceeded the " + timeout.toSeconds() + "s deadline");
+            }
+        }
+        
+        public void reportProgress(int pagesProcessed, int totalPages) {
+            if (progressListener != null) {
+                progressListener.onProgress(pagesProcessed, totalPages);
+            }
+        }
+    }
+    
+    /**
+     * Compute the extractor version of every file type from our revision,
+     * the library versions and the settings that affect extracted text
+     */
+    @PostConstruct
+    public void initExtractorVersions() {
+        extractorVersions.put("txt", shortHash("txt:" + EXTRACTOR_REVISION + ":" + txtFallbackCharsets));
+        extractorVersions.put("docx", shortHash("docx:" + EXTRACTOR_REVISION + ":poi-" + org.apache.poi.Version.getVersion()));
+        extractorVersions.put("pdf", shortHash("pdf:" + EXTRACTOR_REVISION + ":pdfbox-" + org.apache.pdfbox.util.Version.getVersion()));
+    }
+    
+    /**
+     * Get the extractor version used to key cached text of a file type
+     */
+    public String getExtractorVersion(String fileType) {
+        String version = extractorVersions.get(fileType.toLowerCase());
+        if (version == null) {
+            throw new IllegalArgumentException("Unsupported file type: " + fileType);
+        }
+        return version;
+    }
+    
+    private String shortHash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    /**
+     * Create an extraction context with the configured deadline
+     */
+    public ExtractionContext newExtractionContext(ProgressListener progressListener) {
+        return new ExtractionContext(extractionTimeout, progressListener);
+    }
+    
     /**
      * Extract text content from a file based on its type
      */
-    public String extractTextContent(String filePath, String fileType) {
+    public CharSequence extractTextContent(String filePath, String fileType) {
+        return extractTextContent(filePath, fileType, newExtractionContext(null));
+    }
+    
+    /**
+     * Extract text content from a file whose SHA-256 is known, serving it from
+     * the extraction cache when the same bytes were extracted before
+     */
+    public CharSequence extractTextContent(String filePath, String fileType, String contentHash,
+                                           ExtractionContext context) {
+        if (contentHash == null) {
+            return extractTextContent(filePath, fileType, context);
+        }
+        
+        String extractorVersion = getExtractorVersion(fileType);
+        Optional<String> cached = extractionCache.get(contentHash, fileType, extractorVersion);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        
+        CharSequence content = extractTextContent(filePath, fileType, context);
+        extractionCache.put(contentHash, fileType, extractorVersion, content);
+        return content;
+    }
+    
+    /**
+     * Extract text content from a file based on its type, honouring the
+     * deadline and cancellation of the given context
+     */
+    public CharSequence extractTextContent(String filePath, String fileType, ExtractionContext context) {
         try {
             switch (fileType.toLowerCase()) {
                 case "txt":
-                    return extractTextFromTxt(filePath);
+                    return extractTextFromTxt(filePath, context);
                 case "docx":
-                    return extractTextFromDocx(filePath);
+                    return extractTextFromDocx(filePath, context);
                 case "pdf":
-                    return extractTextFromPdf(filePath);
+                    return extractTextFromPdf(filePath, context);
                 default:
                     throw new IllegalArgumentException("Unsupported file type: " + fileType);
             }
@@ -43,16 +220,36 @@ public class FileProcessingUtil {
     
     /**
      * Extract text from .txt file
+     * 
+     * The file is memory-mapped and its encoding detected from the BOM, UTF-8
+     * validity or the configured legacy fallback charsets.
+     */
+    private CharSequence extractTextFromTxt(String filePath, ExtractionContext context) throws IOException {
+        return MappedTextFileDecoder.decode(Paths.get(filePath), txtFallbackCharsets, context);
+    }
+    
+    /**
+     * Extract text from .docx file
+     * 
+     * Uses the streaming StAX extractor and falls back to the POI object model
+     * for documents with constructs the streaming extractor does not model.
      */
-    private String extractTextFromTxt(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        return Files.readString(path);
+    private String extractTextFromDocx(String filePath, ExtractionContext context) throws IOException {
+        if (docxStreaming) {
+            try {
+                return DocxStreamingTextExtractor.extract(new File(filePath), context);
+            } catch (DocxStreamingTextExtractor.UnsupportedContentException e) {
+                logger.debug("Falling back to POI object model for {}: {}", filePath, e.getMessage());
+            }
+        }
+        
+        return extractTextFromDocxUsermodel(filePath, context);
     }
     
     /**
-     * Extract text from .docx file using Apache POI
+     * Extract text from .docx file using the Apache POI object model
      */
-    private String extractTextFromDocx(String filePath) throws IOException {
+    private String extractTextFromDocxUsermodel(String filePath, ExtractionContext context) throws IOException {
         StringBuilder text = new StringBuilder();
         
         try (FileInputStream fis = new FileInputStream(filePath);
@@ -60,6 +257,7 @@ public class FileProcessingUtil {
             
             List<XWPFParagraph> paragraphs = document.getParagraphs();
             for (XWPFParagraph paragraph : paragraphs) {
+                context.checkCancelled();
                 text.append(paragraph.getText()).append("\n");
             }
         }
@@ -69,11 +267,162 @@ public class FileProcessingUtil {
     
     /**
      * Extract text from .pdf file using Apache PDFBox
+     * 
+     * The document is parsed with a bounded heap budget backed by a scratch file
+     * and stripped in page ranges, reporting progress after each range. Every page
+     * ends with PAGE_BREAK, so page offsets can be recovered from the text. PDFs with
+     * at least app.extraction.pdf.parallel-threshold pages are stripped in parallel.
+     * Either way the output is identical to a single getText call over the whole
+     * document, since the stripper output is the concatenation of its pages.
      */
-    private String extractTextFromPdf(String filePath) throws IOException {
-        try (PDDocument document = PDDocument.load(new java.io.File(filePath))) {
-            PDFTextStripper textStripper = new PDFTextStripper();
-            return textStripper.getText(document);
+    private String extractTextFromPdf(String filePath, ExtractionContext context) throws IOException {
+        MemoryUsageSetting memoryUsage = MemoryUsageSetting.setupMixed(pdfMaxMainMemory.toBytes());
+        
+        int totalPages;
+        try (PDDocument document = PDDocument.load(new File(filePath), memoryUsage)) {
+            totalPages = document.getNumberOfPages();
+            if (totalPages < pdfParallelThreshold || pdfExtractionPool.getParallelism() <= 1) {
+                return stripPdfSequentially(document, totalPages, context);
+            }
+        }
+        
+        return extractTextFromPdfInParallel(filePath, totalPages, context);
+    }
+    
+    /**
+     * Strip a PDF on the calling thread, one page range at a time
+     */
+    private String stripPdfSequentially(PDDocument document, int totalPages, ExtractionContext context) throws IOException {
+        PDFTextStripper textStripper = new CancellablePdfTextStripper(context);
+        StringWriter text = new StringWriter();
+        
+        context.reportProgress(0, totalPages);
+        for (int startPage = 1; startPage <= totalPages; startPage += pdfPagesPerChunk) {
+            int endPage = Math.min(totalPages, startPage + pdfPagesPerChunk - 1);
+            context.checkCancelled();
+            
+            textStripper.setStartPage(startPage);
+            textStripper.setEndPage(endPage);
+            textStripper.writeText(document, text);
+            
+            context.reportProgress(endPage, totalPages);
+        }
+        
+        return text.toString();
+    }
+    
+    /**
+     * Strip page ranges of a PDF on the fork-join pool
+     * 
+     * PDDocument is not thread-safe, so every range opens its own handle with an
+     * equal share of the heap budget. Range texts are stitched back in page order.
+     */
+    private String extractTextFromPdfInParallel(String filePath, int totalPages, ExtractionContext context) throws IOException {
+        int parallelism = pdfExtractionPool.getParallelism();
+        int pagesPerRange = Math.max(pdfPagesPerChunk, (totalPages + parallelism * 2 - 1) / (parallelism * 2));
+        int rangeCount = (totalPages + pagesPerRange - 1) / pagesPerRange;
+        
+        String[] rangeTexts = new String[rangeCount];
+        AtomicInteger pagesProcessed = new AtomicInteger();
+        long memoryPerHandle = Math.max(1, pdfMaxMainMemory.toBytes() / parallelism);
+        
+        context.reportProgress(0, totalPages);
+        try {
+            pdfExtractionPool.invoke(new PageRangeTask(filePath, totalPages, pagesPerRange, 0, rangeCount,
+                    rangeTexts, pagesProcessed, memoryPerHandle, context));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        StringBuilder text = new StringBuilder();
+        for (String rangeText : rangeTexts) {
+            text.append(rangeText);
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Fork-join task stripping a run of page ranges into their slots
+     */
+    private static final class PageRangeTask extends RecursiveAction {
+        
+        private final String filePath;
+        private final int totalPages;
+        private final int pagesPerRange;
+        private final int fromRange;
+        private final int toRange;
+        private final String[] rangeTexts;
+        private final AtomicInteger pagesProcessed;
+        private final long memoryPerHandle;
+        private final ExtractionContext context;
+        
+        private PageRangeTask(String filePath, int totalPages, int pagesPerRange, int fromRange, int toRange,
+                              String[] rangeTexts, AtomicInteger pagesProcessed, long memoryPerHandle,
+                              ExtractionContext context) {
+            this.filePath = filePath;
+            this.totalPages = totalPages;
+            this.pagesPerRange = pagesPerRange;
+            this.fromRange = fromRange;
+            this.toRange = toRange;
+            this.rangeTexts = rangeTexts;
+            this.pagesProcessed = pagesProcessed;
+            this.memoryPerHandle = memoryPerHandle;
+            this.context = context;
+        }
+        
+        @Override
+        protected void compute() {
+            if (toRange - fromRange > 1) {
+                int middle = (fromRange + toRange) >>> 1;
+                invokeAll(
+                        new PageRangeTask(filePath, totalPages, pagesPerRange, fromRange, middle,
+                                rangeTexts, pagesProcessed, memoryPerHandle, context),
+                        new PageRangeTask(filePath, totalPages, pagesPerRange, middle, toRange,
+                                rangeTexts, pagesProcessed, memoryPerHandle, context));
+                return;
+            }
+            
+            context.checkCancelled();
+            int startPage = fromRange * pagesPerRange + 1;
+            int endPage = Math.min(totalPages, startPage + pagesPerRange - 1);
+            
+            MemoryUsageSetting memoryUsage = MemoryUsageSetting.setupMixed(memoryPerHandle);
+            try (PDDocument document = PDDocument.load(new File(filePath), memoryUsage)) {
+                PDFTextStripper textStripper = new CancellablePdfTextStripper(context);
+                textStripper.setStartPage(startPage);
+                textStripper.setEndPage(endPage);
+                rangeTexts[fromRange] = textStripper.getText(document);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            
+            context.reportProgress(pagesProcessed.addAndGet(endPage - startPage + 1), totalPages);
+        }
+    }
+    
+    /**
+     * Text stripper that checks the extraction deadline for every page and glyph,
+     * so a pathological page cannot hold the worker thread indefinitely
+     */
+    private static final class CancellablePdfTextStripper extends PDFTextStripper {
+        
+        private final ExtractionContext context;
+        
+        private CancellablePdfTextStripper(ExtractionContext context) throws IOException {
+            this.context = context;
+            setPageEnd(String.valueOf(PAGE_BREAK));
+        }
+        
+        @Override
+        public void processPage(PDPage page) throws IOException {
+            context.checkCancelled();
+            super.processPage(page);
+        }
+        
+        @Override
+        protected void processTextPosition(TextPosition text) {
+            context.checkCancelled();
+            super.processTextPosition(text);
         }
     }
     
@@ -0,0 +1,162 @@
+package com.annotation.tool.util;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Utility class for writing uploaded files to disk
+ * 
+ * Streams an upload to its target file in a single pass while computing
+ * its SHA-256 digest, counting bytes and checking the leading magic bytes.
+ * File stores use it to learn the content key of an upload.
+ */
+@Component
+public class FileStorageUtil {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HEADER_LENGTH = 8;
+    
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F', '-'};
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 0x03, 0x04};
+    
+    /**
+     * Result of streaming an upload to disk
+     */
+    public static final class StoredFile {
+        
+        private final Path path;
+        private final String sha256;
+        private final long size;
+        
+        public StoredFile(Path path, String sha256, long size) {
+            this.path = path;
+            this.sha256 = sha256;
+            this.size = size;
+        }
+        
+        public Path getPath() {
+            return path;
+        }
+        
+        public String getSha256() {
+            return sha256;
+        }
+        
+        public long getSize() {
+            return size;
+        }
+    }
+    
+    /**
+     * Stream an upload to the target path
+     * 
+     * The target is removed again if the upload is empty, exceeds maxBytes,
+     * does not look like the declared file type, or fails to write.
+     */
+    public StoredFile store(InputStream input, Path target, String fileType, long maxBytes) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        byte[] header = new byte[HEADER_LENGTH];
+        int headerLength = 0;
+        boolean sniffed = false;
+        long size = 0;
+        
+        try (InputStream in = input;
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw new IllegalArgumentException("File size exceeds " + (maxBytes / (1024 * 1024)) + "MB limit");
+                }
+                
+                if (!sniffed) {
+                    int copied = Math.min(read, HEADER_LENGTH - headerLength);
+                    System.arraycopy(buffer, 0, header, headerLength, copied);
+                    headerLength += copied;
+                    if (headerLength == HEADER_LENGTH) {
+                        checkMagicBytes(header, headerLength, fileType);
+                        sniffed = true;
+                    }
+                }
+                
+                digest.update(buffer, 0, read);
+                byteBuffer.clear().limit(read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+            }
+            
+            if (size == 0) {
+                throw new IllegalArgumentException("File is empty");
+            }
+            if (!sniffed) {
+                checkMagicBytes(header, headerLength, fileType);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        
+        return new StoredFile(target, HexFormat.of().formatHex(digest.digest()), size);
+    }
+    
+    /**
+     * Verify that the leading bytes match the declared file type
+     */
+    private void checkMagicBytes(byte[] header, int length, String fileType) {
+        boolean pdf = startsWith(header, length, PDF_MAGIC);
+        boolean zip = startsWith(header, length, ZIP_MAGIC);
+        
+        boolean matches;
+        switch (fileType.toLowerCase()) {
+            case "pdf":
+                matches = pdf;
+                break;
+            case "docx":
+                matches = zip;
+                break;
+            case "txt":
+                matches = !pdf && !zip;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported file type: " + fileType);
+        }
+        
+        if (!matches) {
+            throw new IllegalArgumentException("File content does not match the ." + fileType.toLowerCase() + " extension");
+        }
+    }
+    
+    private boolean startsWith(byte[] header, int length, byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.annotation.tool.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Decoder for plain text files
+ *
+ * Memory-maps the file so the raw bytes never live on the heap, detects the
+ * encoding (byte order mark, then UTF-8 validity, then the configured legacy
+ * charsets) and decodes chunk by chunk into a single output buffer sized up
+ * front from the byte count. That buffer is returned as it is rather than
+ * copied into a String, which would briefly need twice the heap.
+ */
+final class MappedTextFileDecoder {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_CHARS = Integer.MAX_VALUE - 8;
+
+    private static final Charset UTF_32BE = Charset.forName("UTF-32BE");
+    private static final Charset UTF_32LE = Charset.forName("UTF-32LE");
+
+    private MappedTextFileDecoder() {
+    }
+
+    /**
+     * Decode a text file, trying the fallback charsets in order when it is
+     * neither marked by a BOM nor valid UTF-8; the last fallback never fails
+     *
+     * @return the decoded text, backed by the output buffer
+     */
+    static CharSequence decode(Path path, List<Charset> fallbackCharsets, FileProcessingUtil.ExtractionContext context)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Text file is too large to decode: " + size + " bytes");
+            }
+
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int length = (int) size;
+
+            // Byte order mark
+            if (startsWith(bytes, 0x00, 0x00, 0xFE, 0xFF)) {
+                return decode(bytes, 4, UTF_32BE, CodingErrorAction.REPLACE, length / 2 + 1, context);
+            }
+            if (startsWith(bytes, 0xFF, 0xFE, 0x00, 0x00)) {
+                return decode(bytes, 4, UTF_32LE, CodingErrorAction.REPLACE, length / 2 + 1, context);
+            }
+            if (startsWith(bytes, 0xEF, 0xBB, 0xBF)) {
+                return decodeUtf8OrFallback(bytes, 3, fallbackCharsets, context);
+            }
+            if (startsWith(bytes, 0xFE, 0xFF)) {
+                return decode(bytes, 2, StandardCharsets.UTF_16BE, CodingErrorAction.REPLACE, length / 2, context);
+            }
+            if (startsWith(bytes, 0xFF, 0xFE)) {
+                return decode(bytes, 2, StandardCharsets.UTF_16LE, CodingErrorAction.REPLACE, length / 2, context);
+            }
+
+            return decodeUtf8OrFallback(bytes, 0, fallbackCharsets, context);
+        }
+    }
+
+    private static CharSequence decodeUtf8OrFallback(ByteBuffer bytes, int offset, List<Charset> fallbackCharsets,
+                                               FileProcessingUtil.ExtractionContext context) throws IOException {
+        long utf8Length = countUtf8Chars(bytes, offset, context);
+        if (utf8Length > MAX_CHARS) {
+            throw new IOException("Text file is too large to decode: " + utf8Length + " characters");
+        }
+        if (utf8Length >= 0 || fallbackCharsets.isEmpty()) {
+            CodingErrorAction action = utf8Length >= 0 ? CodingErrorAction.REPORT : CodingErrorAction.REPLACE;
+            int capacity = utf8Length >= 0 ? (int) utf8Length : bytes.limit() - offset;
+            return decode(bytes, offset, StandardCharsets.UTF_8, action, capacity, context);
+        }
+
+        for (int i = 0; i < fallbackCharsets.size(); i++) {
+            Charset charset = fallbackCharsets.get(i);
+            boolean last = i == fallbackCharsets.size() - 1;
+            int capacity = (int) Math.min(MAX_CHARS,
+                    (long) Math.ceil((bytes.limit() - offset) * (double) charset.newDecoder().maxCharsPerByte()));
+            try {
+                return decode(bytes, offset, charset,
+                        last ? CodingErrorAction.REPLACE : CodingErrorAction.REPORT, capacity, context);
+            } catch (CharacterCodingException e) {
+                // try the next fallback charset
+            }
+        }
+        throw new IllegalStateException("Last fallback charset must not fail");
+    }
+
+    /**
+     * Decode bytes from offset to the end into a buffer of the given capacity
+     */
+    private static CharSequence decode(ByteBuffer bytes, int offset, Charset charset, CodingErrorAction errorAction,
+                                 int capacity, FileProcessingUtil.ExtractionContext context)
+            throws CharacterCodingException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(errorAction)
+                .onUnmappableCharacter(errorAction);
+
+        CharBuffer out = CharBuffer.allocate(capacity);
+        ByteBuffer in = bytes.duplicate();
+        in.position(offset);
+        int end = in.limit();
+
+        while (true) {
+            context.checkCancelled();
+            int chunkEnd = (int) Math.min(end, (long) in.position() + CHUNK_SIZE);
+            boolean endOfInput = chunkEnd == end;
+            in.limit(chunkEnd);
+
+            CoderResult result = decoder.decode(in, out, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isOverflow()) {
+                throw new IllegalStateException("Decoded text exceeds the computed buffer size");
+            }
+            if (endOfInput) {
+                break;
+            }
+        }
+
+        CoderResult result = decoder.flush(out);
+        if (result.isOverflow()) {
+            throw new IllegalStateException("Decoded text exceeds the computed buffer size");
+        }
+
+        return out.flip();
+    }
+
+    /**
+     * Validate UTF-8 and count the UTF-16 chars it decodes to
+     *
+     * @return the char count, or -1 if the bytes are not well-formed UTF-8
+     */
+    private static long countUtf8Chars(ByteBuffer bytes, int offset, FileProcessingUtil.ExtractionContext context) {
+        int end = bytes.limit();
+        long chars = 0;
+        int i = offset;
+
+        while (i < end) {
+            if ((i & (CHUNK_SIZE - 1)) == 0) {
+                context.checkCancelled();
+            }
+
+            int b = bytes.get(i) & 0xFF;
+            if (b < 0x80) {
+                i++;
+                chars++;
+                continue;
+            }
+
+            int continuationBytes;
+            int min = 0x80;
+            int max = 0xBF;
+            if (b >= 0xC2 && b <= 0xDF) {
+                continuationBytes = 1;
+            } else if (b == 0xE0) {
+                continuationBytes = 2;
+                min = 0xA0;
+            } else if (b == 0xED) {
+                continuationBytes = 2;
+                max = 0x9F;
+            } else if (b >= 0xE1 && b <= 0xEF) {
+                continuationBytes = 2;
+            } else if (b == 0xF0) {
+                continuationBytes = 3;
+                min = 0x90;
+            } else if (b == 0xF4) {
+                continuationBytes = 3;
+                max = 0x8F;
+            } else if (b >= 0xF1 && b <= 0xF3) {
+                continuationBytes = 3;
+            } else {
+                return -1;
+            }
+
+            if (i + continuationBytes >= end) {
+                return -1;
+            }
+            int second = bytes.get(i + 1) & 0xFF;
+            if (second < min || second > max) {
+                return -1;
+            }
+            for (int k = 2; k <= continuationBytes; k++) {
+                int next = bytes.get(i + k) & 0xFF;
+                if (next < 0x80 || next > 0xBF) {
+                    return -1;
+                }
+            }
+
+            i += continuationBytes + 1;
+            chars += continuationBytes == 3 ? 2 : 1;
+        }
+
+        return chars;
+    }
+
+    private static boolean startsWith(ByteBuffer bytes, int... prefix) {
+        if (bytes.limit() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes.get(i) & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
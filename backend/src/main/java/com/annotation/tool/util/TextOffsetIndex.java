@@ -0,0 +1,205 @@
+package com.annotation.tool.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Sorted start offsets of the lines, paragraphs and pages of a document's text
+ *
+ * Lines end at \n, \r\n, a lone \r or a page break. A paragraph starts at the
+ * first non-blank line after a blank line or a page break. Pages end at
+ * FileProcessingUtil.PAGE_BREAK; text without page breaks is a single page.
+ * Offsets are mapped to line, paragraph and page numbers by binary search.
+ */
+public final class TextOffsetIndex {
+
+    private final int textLength;
+    private final int[] lineStarts;
+    private final int[] paragraphStarts;
+    private final int[] pageStarts;
+
+    public TextOffsetIndex(int textLength, int[] lineStarts, int[] paragraphStarts, int[] pageStarts) {
+        this.textLength = textLength;
+        this.lineStarts = lineStarts;
+        this.paragraphStarts = paragraphStarts;
+        this.pageStarts = pageStarts;
+    }
+
+    /**
+     * Build the index of a text in one pass
+     */
+    public static TextOffsetIndex build(CharSequence text) {
+        int length = text.length();
+        IntList lines = new IntList();
+        IntList paragraphs = new IntList();
+        IntList pages = new IntList();
+        lines.add(0);
+        pages.add(0);
+
+        int lineStart = 0;
+        boolean lineBlank = true;
+        boolean previousLineBlank = true;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            boolean lineBreak = c == '\n' || c == FileProcessingUtil.PAGE_BREAK
+                    || (c == '\r' && (i + 1 == length || text.charAt(i + 1) != '\n'));
+
+            if (!lineBreak && !Character.isWhitespace(c)) {
+                if (lineBlank && previousLineBlank) {
+                    paragraphs.add(lineStart);
+                }
+                lineBlank = false;
+            }
+
+            if (lineBreak) {
+                previousLineBlank = lineBlank || c == FileProcessingUtil.PAGE_BREAK;
+                lineBlank = true;
+                if (i + 1 < length) {
+                    lineStart = i + 1;
+                    lines.add(lineStart);
+                    if (c == FileProcessingUtil.PAGE_BREAK) {
+                        pages.add(lineStart);
+                    }
+                }
+            }
+        }
+
+        return new TextOffsetIndex(length, lines.toArray(), paragraphs.toArray(), pages.toArray());
+    }
+
+    public int getTextLength() {
+        return textLength;
+    }
+
+    public int getLineCount() {
+        return lineStarts.length;
+    }
+
+    public int getParagraphCount() {
+        return paragraphStarts.length;
+    }
+
+    public int getPageCount() {
+        return pageStarts.length;
+    }
+
+    /**
+     * Get the 0-based line containing an offset
+     */
+    public int lineOf(int offset) {
+        return floorIndex(lineStarts, offset);
+    }
+
+    /**
+     * Get the start offset of a 0-based line
+     */
+    public int lineStart(int line) {
+        return lineStarts[line];
+    }
+
+    /**
+     * Get the 0-based paragraph containing an offset; blank lines belong to the
+     * paragraph before them, or -1 before the first paragraph
+     */
+    public int paragraphOf(int offset) {
+        return floorIndex(paragraphStarts, offset);
+    }
+
+    /**
+     * Get the 0-based page containing an offset
+     */
+    public int pageOf(int offset) {
+        return floorIndex(pageStarts, offset);
+    }
+
+    /**
+     * Get the start offset of a 0-based page
+     */
+    public int pageStart(int page) {
+        return pageStarts[page];
+    }
+
+    /**
+     * Get the end offset (exclusive) of a 0-based page, including its page break
+     */
+    public int pageEnd(int page) {
+        return page + 1 < pageStarts.length ? pageStarts[page + 1] : textLength;
+    }
+
+    public byte[] encodeLineStarts() {
+        return encode(lineStarts);
+    }
+
+    public byte[] encodeParagraphStarts() {
+        return encode(paragraphStarts);
+    }
+
+    public byte[] encodePageStarts() {
+        return encode(pageStarts);
+    }
+
+    /**
+     * Encode ascending offsets as varint deltas, mostly one or two bytes each
+     */
+    public static byte[] encode(int[] offsets) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(offsets.length * 2 + 8);
+        int previous = 0;
+        for (int offset : offsets) {
+            int delta = offset - previous;
+            while ((delta & ~0x7F) != 0) {
+                bytes.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes.write(delta);
+            previous = offset;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode offsets written by encode
+     */
+    public static int[] decode(byte[] data) {
+        IntList offsets = new IntList();
+        int previous = 0;
+        int delta = 0;
+        int shift = 0;
+        for (byte b : data) {
+            delta |= (b & 0x7F) << shift;
+            if ((b & 0x80) != 0) {
+                shift += 7;
+                continue;
+            }
+            previous += delta;
+            offsets.add(previous);
+            delta = 0;
+            shift = 0;
+        }
+        return offsets.toArray();
+    }
+
+    private static int floorIndex(int[] starts, int offset) {
+        int index = Arrays.binarySearch(starts, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Growable array of primitive ints
+     */
+    private static final class IntList {
+
+        private int[] values = new int[64];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.annotation.tool.repository;
+
+import com.annotation.tool.dto.AnnotationDTO;
+import com.annotation.tool.dto.BulkAnnotationItemResultDTO;
+import com.annotation.tool.dto.BulkAnnotationRequestDTO;
+import com.annotation.tool.dto.BulkAnnotationResultDTO;
+import com.annotation.tool.entity.Annotation;
+import com.annotation.tool.entity.Document;
+import com.annotation.tool.entity.Label;
+import com.annotation.tool.service.AnnotationContextService;
+import com.annotation.tool.service.AnnotationIndexService;
+import com.annotation.tool.service.AnnotationService;
+import com.annotation.tool.service.DocumentContentService;
+import com.annotation.tool.util.DTOMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that bulk annotation requests report every operation on its own and
+ * write exactly the valid ones in JDBC batches
+ */
+@DataJpaTest
+@Import({AnnotationService.class, AnnotationIndexService.class, AnnotationContextService.class,
+        DocumentContentService.class, DTOMapper.class, AnnotationBulkWriteTest.Executors.class})
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.annotations.bulk.batch-size=2"
+})
+class AnnotationBulkWriteTest {
+
+    private static final String TEXT = "Alice Liddell met Bob Smith in Paris in the spring of 1862.";
+
+    @TestConfiguration
+    static class Executors {
+
+        @Bean(name = "documentExtractionExecutor")
+        ThreadPoolTaskExecutor documentExtractionExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.initialize();
+            return executor;
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AnnotationRepository annotationRepository;
+
+    @Autowired
+    private AnnotationService annotationService;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    private Document document;
+    private Label person;
+    private Label place;
+    private Annotation alice;
+    private Annotation bob;
+    private Annotation paris;
+
+    @BeforeEach
+    void setUp() {
+        Document unsaved = new Document("a.txt", "a.txt", "txt", "ab/cd/abcd", (long) TEXT.length());
+        unsaved.setContentLength(TEXT.length());
+        document = entityManager.persist(unsaved);
+        documentContentService.writeContent(document.getId(), TEXT);
+        person = entityManager.persist(new Label("Person", "#ff0000", null));
+        place = entityManager.persist(new Label("Place", "#00ff00", null));
+        alice = entityManager.persist(new Annotation(document, person, 0, 13, "Alice Liddell"));
+        bob = entityManager.persist(new Annotation(document, person, 18, 21, "Bob"));
+        paris = entityManager.persist(new Annotation(document, place, 31, 36, "Paris"));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void insertAllAndUpdateAllWriteEveryRowAcrossBatches() {
+        List<Annotation> inserts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Annotation annotation = new Annotation(document, place, 40 + i, 41 + i, TEXT.substring(40 + i, 41 + i));
+            annotation.setId(UUID.randomUUID());
+            inserts.add(annotation);
+        }
+        Annotation moved = new Annotation(document, place, 22, 27, "Smith");
+        moved.setId(bob.getId());
+
+        annotationRepository.insertAll(inserts);
+        annotationRepository.updateAll(List.of(moved));
+
+        Map<UUID, Annotation> rows = rows();
+        assertEquals(8, rows.size());
+        for (Annotation insert : inserts) {
+            Annotation row = rows.get(insert.getId());
+            assertEquals(insert.getStartPosition(), row.getStartPosition());
+            assertEquals(insert.getSelectedText(), row.getSelectedText());
+            assertNotNull(row.getCreatedAt());
+        }
+        Annotation row = rows.get(bob.getId());
+        assertEquals(place.getId(), row.getLabel().getId());
+        assertEquals(22, row.getStartPosition());
+        assertEquals(27, row.getEndPosition());
+        assertEquals("Smith", row.getSelectedText());
+    }
+
+    @Test
+    void reportsEachOperationAndWritesOnlyTheValidOnes() {
+        BulkAnnotationRequestDTO request = new BulkAnnotationRequestDTO();
+        request.setOverlapPolicy("allow");
+        request.setCreate(List.of(
+                new AnnotationDTO(document.getId(), place.getId(), 44, 50),
+                new AnnotationDTO(UUID.randomUUID(), place.getId(), 44, 50),
+                new AnnotationDTO(document.getId(), UUID.randomUUID(), 44, 50),
+                new AnnotationDTO(document.getId(), place.getId(), 54, TEXT.length() + 1),
+                new AnnotationDTO(document.getId(), person.getId(), 0, 5)));
+        request.setUpdate(List.of(
+                update(bob.getId(), person, 18, 27),
+                update(UUID.randomUUID(), person, 0, 5),
+                update(bob.getId(), person, 18, 21),
+                update(alice.getId(), person, 10, 5)));
+        request.setDelete(Arrays.asList(paris.getId(), UUID.randomUUID(), null));
+
+        BulkAnnotationResultDTO result = annotationService.applyBulk(request);
+
+        List<BulkAnnotationItemResultDTO> items = result.getItems();
+        assertEquals(List.of(
+                        "CREATE 0 CREATED null", "CREATE 1 FAILED Document not found",
+                        "CREATE 2 FAILED Label not found", "CREATE 3 FAILED Invalid annotation positions",
+                        "CREATE 4 CREATED null",
+                        "UPDATE 0 UPDATED null", "UPDATE 1 FAILED Annotation not found",
+                        "UPDATE 2 FAILED Annotation is updated more than once",
+                        "UPDATE 3 FAILED Invalid annotation positions",
+                        "DELETE 0 DELETED null", "DELETE 1 FAILED Annotation not found",
+                        "DELETE 2 FAILED Annotation not found"),
+                items.stream()
+                        .map(item -> item.getOperation() + " " + item.getIndex() + " " + item.getStatus() + " " + item.getError())
+                        .collect(Collectors.toList()));
+        assertEquals(2, result.getCreatedCount());
+        assertEquals(1, result.getUpdatedCount());
+        assertEquals(1, result.getDeletedCount());
+        assertEquals(8, result.getFailedCount());
+        assertEquals(bob.getId(), items.get(5).getId());
+        assertEquals(paris.getId(), items.get(9).getId());
+
+        Map<UUID, Annotation> rows = rows();
+        assertEquals(4, rows.size());
+        assertEquals("spring", rows.get(items.get(0).getId()).getSelectedText());
+        assertEquals("Alice", rows.get(items.get(4).getId()).getSelectedText());
+        assertEquals("Bob Smith", rows.get(bob.getId()).getSelectedText());
+        assertEquals("Alice Liddell", rows.get(alice.getId()).getSelectedText());
+    }
+
+    @Test
+    void rejectsOrMergesConflictingCreationsPerOperation() {
+        BulkAnnotationRequestDTO reject = new BulkAnnotationRequestDTO();
+        reject.setOverlapPolicy("reject");
+        reject.setCreate(List.of(
+                new AnnotationDTO(document.getId(), person.getId(), 0, 13),
+                new AnnotationDTO(document.getId(), place.getId(), 0, 13)));
+
+        BulkAnnotationResultDTO rejected = annotationService.applyBulk(reject);
+        assertEquals(BulkAnnotationItemResultDTO.Status.FAILED, rejected.getItems().get(0).getStatus());
+        assertEquals("Annotation duplicates annotation " + alice.getId() + " with the same label",
+                rejected.getItems().get(0).getError());
+        assertEquals(BulkAnnotationItemResultDTO.Status.CREATED, rejected.getItems().get(1).getStatus());
+
+        BulkAnnotationRequestDTO merge = new BulkAnnotationRequestDTO();
+        merge.setOverlapPolicy("merge");
+        merge.setCreate(List.of(
+                new AnnotationDTO(document.getId(), person.getId(), 18, 27),
+                new AnnotationDTO(document.getId(), place.getId(), 44, 50),
+                new AnnotationDTO(document.getId(), place.getId(), 40, 50)));
+
+        BulkAnnotationResultDTO merged = annotationService.applyBulk(merge);
+        List<BulkAnnotationItemResultDTO> items = merged.getItems();
+        assertEquals(2, merged.getMergedCount());
+        // Merged into the stored annotation, and into a creation earlier in the same request
+        assertEquals(bob.getId(), items.get(0).getId());
+        assertEquals(BulkAnnotationItemResultDTO.Status.CREATED, items.get(1).getStatus());
+        assertEquals(items.get(1).getId(), items.get(2).getId());
+        assertEquals(BulkAnnotationItemResultDTO.Status.MERGED, items.get(2).getStatus());
+
+        Map<UUID, Annotation> rows = rows();
+        assertEquals(5, rows.size());
+        assertEquals("Bob Smith", rows.get(bob.getId()).getSelectedText());
+        assertEquals("the spring", rows.get(items.get(1).getId()).getSelectedText());
+        assertTrue(rows.values().stream().noneMatch(row -> row.getSelectedText() == null));
+    }
+
+    private static AnnotationDTO update(UUID id, Label label, int start, int end) {
+        AnnotationDTO dto = new AnnotationDTO(null, label.getId(), start, end);
+        dto.setId(id);
+        return dto;
+    }
+
+    /**
+     * Read the stored rows past the persistence context, which the JDBC batches bypass
+     */
+    private Map<UUID, Annotation> rows() {
+        entityManager.clear();
+        return annotationRepository.findAll().stream()
+                .collect(Collectors.toMap(Annotation::getId, Function.identity()));
+    }
+}
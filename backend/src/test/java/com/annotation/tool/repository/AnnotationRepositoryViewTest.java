@@ -0,0 +1,100 @@
+package com.annotation.tool.repository;
+
+import com.annotation.tool.entity.Annotation;
+import com.annotation.tool.entity.Document;
+import com.annotation.tool.entity.Label;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that annotation views are read in a single statement without loading
+ * any entity
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class AnnotationRepositoryViewTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AnnotationRepository annotationRepository;
+
+    private Statistics statistics;
+    private UUID documentId;
+    private UUID annotationId;
+
+    @BeforeEach
+    void setUp() {
+        Document document = entityManager.persist(new Document("a.txt", "a.txt", "txt", "ab/cd/abcd", 100L));
+        Label person = entityManager.persist(new Label("Person", "#ff0000", null));
+        Label place = entityManager.persist(new Label("Place", "#00ff00", null));
+        for (int i = 0; i < 10; i++) {
+            Annotation annotation = entityManager.persist(
+                    new Annotation(document, i % 2 == 0 ? person : place, i * 10, i * 10 + 5, "text" + i));
+            if (i == 3) {
+                annotationId = annotation.getId();
+            }
+        }
+        documentId = document.getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findViewByIdUsesOneStatementAndNoEntities() {
+        AnnotationRepository.View view = measure(() -> annotationRepository.findViewById(annotationId).orElseThrow());
+
+        assertEquals("a.txt", view.getDocumentName());
+        assertEquals("Place", view.getLabelName());
+        assertEquals(30, view.getStartPosition());
+    }
+
+    @Test
+    void findViewsByDocumentIdUsesOneStatementAndNoEntities() {
+        List<AnnotationRepository.View> views = measure(() -> annotationRepository.findViewsByDocumentId(documentId));
+
+        assertEquals(10, views.size());
+        assertTrue(views.stream().allMatch(view -> view.getLabelColor() != null && view.getDocumentId() != null));
+    }
+
+    @Test
+    void findViewsOverlappingUsesOneStatementAndNoEntities() {
+        List<AnnotationRepository.View> views = measure(
+                () -> annotationRepository.findViewsOverlapping(documentId, 12, 33));
+
+        assertEquals(List.of(10, 20, 30), views.stream().map(AnnotationRepository.View::getStartPosition).toList());
+    }
+
+    private <T> T measure(Supplier<T> query) {
+        T result = query.get();
+        assertEquals(1, statistics.getPrepareStatementCount(), "prepared statements");
+        assertEquals(0, statistics.getEntityLoadCount(), "entity loads");
+        assertEquals(0, statistics.getEntityFetchCount(), "entity fetches");
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.entity.Annotation;
+import com.annotation.tool.entity.Document;
+import com.annotation.tool.entity.Label;
+import com.annotation.tool.repository.AnnotationRepository;
+import com.annotation.tool.repository.DocumentRepository;
+import com.annotation.tool.repository.LabelRepository;
+import com.annotation.tool.util.AnnotationIntervalIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the annotation index cache, the snapshots read by writing transactions
+ * and the spans reserved by uncommitted writes
+ *
+ * Runs without a test transaction, so commits and rollbacks are real.
+ */
+@DataJpaTest
+@Import(AnnotationIndexService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class AnnotationIndexServiceTest {
+
+    @Autowired
+    private AnnotationIndexService annotationIndexService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private LabelRepository labelRepository;
+
+    @Autowired
+    private AnnotationRepository annotationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private Document document;
+    private Label label;
+
+    @BeforeEach
+    void setUp() {
+        document = documentRepository.save(new Document("a.txt", "a.txt", "txt", "ab/cd/abcd", 100L));
+        label = labelRepository.save(new Label("Person", "#ff0000", null));
+        for (int i = 0; i < 3; i++) {
+            insert(i * 10, i * 10 + 5);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        annotationRepository.deleteAll();
+        documentRepository.deleteAll();
+        labelRepository.deleteAll();
+    }
+
+    @Test
+    void servesCachedIndexUntilACommittedChangeIsApplied() {
+        assertEquals(3, index().size());
+
+        // Written without telling the index, so the cached index does not see it
+        Annotation unannounced = insert(50, 55);
+        assertEquals(3, index().size());
+
+        transactionTemplate.executeWithoutResult(status ->
+                annotationIndexService.applyAfterCommit(document.getId(), List.of(), List.of(entry(unannounced))));
+        assertEquals(4, index().size());
+        assertEquals(1, index().at(52).size());
+
+        // Changes of a rolled back transaction are never applied
+        transactionTemplate.executeWithoutResult(status -> {
+            annotationIndexService.applyAfterCommit(document.getId(), List.of(unannounced.getId()), List.of());
+            status.setRollbackOnly();
+        });
+        assertEquals(4, index().size());
+
+        annotationIndexService.evictAllAfterCommit();
+        assertEquals(4, index().size());
+    }
+
+    @Test
+    void readsUncommittedSpansInTransactionWithoutCachingThem() {
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(60, 65);
+            assertEquals(4, index().size());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(3, index().size());
+    }
+
+    @Test
+    void rereadsTransactionSnapshotAfterAnotherWriteCompletes() {
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(3, index().size());
+
+            // Committed by another transaction that reports its change
+            await(executor.submit(() -> transactionTemplate.executeWithoutResult(other -> {
+                Annotation added = insert(70, 75);
+                annotationIndexService.applyAfterCommit(document.getId(), List.of(), List.of(entry(added)));
+            })));
+
+            assertEquals(4, index().size());
+        });
+    }
+
+    @Test
+    void reservesSpanUntilItsTransactionCompletes() {
+        AnnotationIntervalIndex.Entry span = new AnnotationIntervalIndex.Entry(UUID.randomUUID(), label.getId(), 100, 110);
+        AnnotationIntervalIndex.Entry overlapping = new AnnotationIntervalIndex.Entry(UUID.randomUUID(), label.getId(), 105, 120);
+        AnnotationIntervalIndex.Entry elsewhere = new AnnotationIntervalIndex.Entry(UUID.randomUUID(), label.getId(), 110, 120);
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch checked = new CountDownLatch(1);
+
+        Future<?> holder = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(annotationIndexService.reserveUnlessConflicting(document.getId(), span, entry -> true).isEmpty());
+            reserved.countDown();
+            await(checked);
+            status.setRollbackOnly();
+        }));
+        await(reserved);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<AnnotationIntervalIndex.Entry> conflicts =
+                    annotationIndexService.reserveUnlessConflicting(document.getId(), overlapping, entry -> true);
+            assertEquals(List.of(span), conflicts);
+            // Spans only touching it do not overlap
+            assertTrue(annotationIndexService.reserveUnlessConflicting(document.getId(), elsewhere, entry -> true).isEmpty());
+        });
+        checked.countDown();
+        await(holder);
+
+        transactionTemplate.executeWithoutResult(status -> assertTrue(
+                annotationIndexService.reserveUnlessConflicting(document.getId(), overlapping, entry -> true).isEmpty()));
+    }
+
+    @Test
+    void reservesEmptySpanAgainstEqualSpansOnly() {
+        AnnotationIntervalIndex.Entry empty = new AnnotationIntervalIndex.Entry(UUID.randomUUID(), label.getId(), 2, 2);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(annotationIndexService.reserveUnlessConflicting(document.getId(), empty, entry -> true).isEmpty());
+            AnnotationIntervalIndex.Entry same = new AnnotationIntervalIndex.Entry(UUID.randomUUID(), label.getId(), 2, 2);
+            assertEquals(List.of(empty), annotationIndexService.reserveUnlessConflicting(document.getId(), same, entry -> true));
+        });
+    }
+
+    private AnnotationIntervalIndex index() {
+        return annotationIndexService.getIndex(document.getId()).orElseThrow();
+    }
+
+    private Annotation insert(int start, int end) {
+        return annotationRepository.save(new Annotation(document, label, start, end, "x".repeat(end - start)));
+    }
+
+    private AnnotationIntervalIndex.Entry entry(Annotation annotation) {
+        return new AnnotationIntervalIndex.Entry(annotation.getId(), label.getId(),
+                annotation.getStartPosition(), annotation.getEndPosition());
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.annotation.tool.service;
+
+import com.annotation.tool.dto.AnnotationDTO;
+import com.annotation.tool.entity.Annotation;
+import com.annotation.tool.entity.Document;
+import com.annotation.tool.entity.Label;
+import com.annotation.tool.repository.AnnotationRepository;
+import com.annotation.tool.repository.DocumentContentChunkRepository;
+import com.annotation.tool.repository.DocumentOffsetIndexRepository;
+import com.annotation.tool.repository.DocumentRepository;
+import com.annotation.tool.repository.LabelRepository;
+import com.annotation.tool.util.DTOMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests how created annotations duplicating or heavily overlapping an
+ * annotation with the same label are rejected, merged or allowed, also while
+ * the other annotation is still being saved
+ *
+ * Runs without a test transaction, so commits and rollbacks are real.
+ */
+@DataJpaTest
+@Import({AnnotationService.class, AnnotationIndexService.class, AnnotationContextService.class,
+        DocumentContentService.class, DTOMapper.class, AnnotationServiceOverlapTest.Executors.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.annotations.overlap.policy=allow",
+        "app.annotations.overlap.min-ratio=0.5"
+})
+class AnnotationServiceOverlapTest {
+
+    private static final String TEXT = "Alice Liddell met Bob Smith in Paris in the spring of 1862.";
+
+    @TestConfiguration
+    static class Executors {
+
+        @Bean(name = "documentExtractionExecutor")
+        ThreadPoolTaskExecutor documentExtractionExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.initialize();
+            return executor;
+        }
+    }
+
+    @Autowired
+    private AnnotationService annotationService;
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private LabelRepository labelRepository;
+
+    @Autowired
+    private AnnotationRepository annotationRepository;
+
+    @Autowired
+    private DocumentContentChunkRepository chunkRepository;
+
+    @Autowired
+    private DocumentOffsetIndexRepository offsetIndexRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = java.util.concurrent.Executors.newSingleThreadExecutor();
+
+    private Document document;
+    private Label person;
+    private Label place;
+
+    @BeforeEach
+    void setUp() {
+        Document unsaved = new Document("a.txt", "a.txt", "txt", "ab/cd/abcd", (long) TEXT.length());
+        unsaved.setContentLength(TEXT.length());
+        document = documentRepository.save(unsaved);
+        documentContentService.writeContent(document.getId(), TEXT);
+        person = labelRepository.save(new Label("Person", "#ff0000", null));
+        place = labelRepository.save(new Label("Place", "#00ff00", null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        annotationRepository.deleteAll();
+        chunkRepository.deleteAll();
+        offsetIndexRepository.deleteAll();
+        documentRepository.deleteAll();
+        labelRepository.deleteAll();
+    }
+
+    @Test
+    void rejectsDuplicatesAndHeavyOverlapsOfTheSameLabel() {
+        AnnotationDTO alice = create(person, 0, 13, "reject");
+
+        IllegalArgumentException duplicate = assertThrows(IllegalArgumentException.class,
+                () -> create(person, 0, 13, "reject"));
+        assertEquals("Annotation duplicates annotation " + alice.getId() + " with the same label", duplicate.getMessage());
+        // Seven of the eight characters of the shorter span overlap
+        IllegalArgumentException overlap = assertThrows(IllegalArgumentException.class,
+                () -> create(person, 6, 14, "reject"));
+        assertEquals("Annotation overlaps annotation " + alice.getId() + " with the same label", overlap.getMessage());
+
+        assertEquals(List.of("Alice Liddell"), selections());
+    }
+
+    @Test
+    void acceptsOtherLabelsLightOverlapsAndTouchingSpans() {
+        create(person, 0, 13, "reject");
+
+        create(place, 0, 13, "reject");
+        // Two of the nine characters of the shorter span overlap
+        create(person, 11, 20, "reject");
+        create(person, 20, 22, "reject");
+
+        assertEquals(4, annotationRepository.count());
+    }
+
+    @Test
+    void mergesConflictingSpanIntoExistingAnnotation() {
+        AnnotationDTO bob = create(person, 18, 21, "merge");
+
+        AnnotationDTO merged = create(person, 18, 27, "merge");
+        assertEquals(bob.getId(), merged.getId());
+        assertEquals(18, merged.getStartPosition());
+        assertEquals(27, merged.getEndPosition());
+        assertEquals("Bob Smith", merged.getSelectedText());
+
+        // A span already covered leaves the annotation as it is
+        AnnotationDTO covered = create(person, 18, 21, "merge");
+        assertEquals(bob.getId(), covered.getId());
+        assertEquals(27, covered.getEndPosition());
+
+        assertEquals(List.of("Bob Smith"), selections());
+        // The index sees the widened span, so a later overlap with its new end conflicts too
+        assertThrows(IllegalArgumentException.class, () -> create(person, 22, 27, "reject"));
+    }
+
+    @Test
+    void allowsDuplicatesUnderAllowPolicy() {
+        create(person, 31, 36, null);
+        create(person, 31, 36, "allow");
+
+        assertEquals(List.of("Paris", "Paris"), selections());
+    }
+
+    @Test
+    void refusesSameSpanWhileAnotherTransactionSavesIt() {
+        CountDownLatch saved = new CountDownLatch(1);
+        CountDownLatch checked = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            create(place, 31, 36, "reject");
+            saved.countDown();
+            await(checked);
+        }));
+        await(saved);
+
+        try {
+            // The row is not committed yet, so only the reservation of its span stands in the way
+            IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                    () -> create(place, 31, 36, "reject"));
+            assertTrue(rejected.getMessage().contains("being saved concurrently"), rejected.getMessage());
+            // Nor can it be merged into an annotation without an ID yet
+            assertThrows(IllegalArgumentException.class, () -> create(place, 31, 37, "merge"));
+        } finally {
+            checked.countDown();
+        }
+        await(first);
+
+        assertEquals(List.of("Paris"), selections());
+        assertThrows(IllegalArgumentException.class, () -> create(place, 31, 36, "reject"));
+    }
+
+    private AnnotationDTO create(Label label, int start, int end, String overlapPolicy) {
+        return annotationService.createAnnotation(new AnnotationDTO(document.getId(), label.getId(), start, end),
+                overlapPolicy);
+    }
+
+    private List<String> selections() {
+        return annotationRepository.findAll().stream()
+                .sorted(Comparator.comparing(Annotation::getStartPosition))
+                .map(Annotation::getSelectedText)
+                .collect(Collectors.toList());
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
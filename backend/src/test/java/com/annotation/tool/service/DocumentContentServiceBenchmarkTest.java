@@ -0,0 +1,129 @@
+package com.annotation.tool.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the stored size of chunked document text, the latency of writing
+ * it and of reading it whole or in windows, and of a content search scanning it
+ *
+ * Run with -Pbenchmarks. H2 is used in place of PostgreSQL, so latencies
+ * show the cost of compression and chunking rather than of the network.
+ */
+@DataJpaTest
+@Import({DocumentContentService.class, DocumentContentServiceBenchmarkTest.Executors.class})
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class DocumentContentServiceBenchmarkTest {
+
+    private static final String[] WORDS = {
+            "the", "annotation", "of", "a", "document", "and", "its", "labels", "is", "stored",
+            "in", "chunks", "which", "are", "compressed", "separately", "so", "windows", "read", "fast",
+            "Müller", "Straße", "naïve", "résumé", "東京", "数据", "Ελληνικά", "данные"
+    };
+
+    @TestConfiguration
+    static class Executors {
+
+        @Bean(name = "documentExtractionExecutor")
+        ThreadPoolTaskExecutor documentExtractionExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.initialize();
+            return executor;
+        }
+    }
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void addLegacyContentColumn() {
+        // Created by the migrations rather than mapped by the entity
+        jdbcTemplate.execute("ALTER TABLE documents ADD COLUMN IF NOT EXISTS content TEXT");
+    }
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void benchmarkSizeAndLatency() {
+        long totalLength = 0;
+        for (int length : new int[] {100_000, 1_000_000, 10_000_000}) {
+            String text = generateText(length, new Random(length));
+            UUID documentId = UUID.randomUUID();
+
+            long started = System.nanoTime();
+            documentContentService.writeContent(documentId, text);
+            entityManager.flush();
+            long writeNanos = System.nanoTime() - started;
+            entityManager.clear();
+
+            long storedBytes = ((Number) entityManager.createNativeQuery(
+                            "SELECT COALESCE(SUM(LENGTH(data)), 0) FROM document_content_chunks WHERE document_id = :id")
+                    .setParameter("id", documentId)
+                    .getSingleResult()).longValue();
+            long utf8Bytes = text.getBytes(StandardCharsets.UTF_8).length;
+
+            started = System.nanoTime();
+            String read = documentContentService.readContent(documentId);
+            long readNanos = System.nanoTime() - started;
+            assertEquals(text, read);
+
+            Random random = new Random(1);
+            int windows = 1000;
+            started = System.nanoTime();
+            for (int i = 0; i < windows; i++) {
+                int offset = random.nextInt(length - 2000);
+                assertEquals(text.substring(offset, offset + 2000), documentContentService.readContent(documentId, offset, 2000));
+                // As in separate requests, loaded chunks do not pile up in the persistence context
+                entityManager.clear();
+            }
+            long windowNanos = (System.nanoTime() - started) / windows;
+
+            System.out.printf("%,11d chars: UTF-8 %,12d B, stored %,11d B (%.1f%%), write %5d ms, "
+                            + "full read %5d ms, 2000-char window %5d us%n",
+                    length, utf8Bytes, storedBytes, 100.0 * storedBytes / utf8Bytes,
+                    writeNanos / 1_000_000, readNanos / 1_000_000, windowNanos / 1_000);
+            totalLength += length;
+        }
+
+        // A term found nowhere makes the search read every chunk
+        long started = System.nanoTime();
+        assertEquals(0, documentContentService.findDocumentIdsContaining("not in any document").size());
+        System.out.printf("%,11d chars: content search scanning everything %5d ms%n",
+                totalLength, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static String generateText(int length, Random random) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            int separator = random.nextInt(20);
+            text.append(separator == 0 ? ".\n" : separator == 1 ? ", " : " ");
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+}
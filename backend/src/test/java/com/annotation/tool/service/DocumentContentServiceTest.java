@@ -0,0 +1,114 @@
+package com.annotation.tool.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests writing chunked content and searching it in small batches
+ */
+@DataJpaTest
+@Import({DocumentContentService.class, DocumentContentServiceTest.Executors.class})
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.content.search.batch-size=2",
+        "app.content.search.max-results=3"
+})
+class DocumentContentServiceTest {
+
+    private static final int CHUNK = DocumentContentService.CHUNK_LENGTH;
+
+    @TestConfiguration
+    static class Executors {
+
+        @Bean(name = "documentExtractionExecutor")
+        ThreadPoolTaskExecutor documentExtractionExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.initialize();
+            return executor;
+        }
+    }
+
+    @Autowired
+    private DocumentContentService documentContentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void addLegacyContentColumn() {
+        // Created by the migrations rather than mapped by the entity
+        jdbcTemplate.execute("ALTER TABLE documents ADD COLUMN IF NOT EXISTS content TEXT");
+    }
+
+    @Test
+    void writesChunksAndOffsetIndexWithoutSelectingThemFirst() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        UUID document = write("w".repeat(3 * CHUNK + 1));
+        entityManager.flush();
+
+        // One batched insert of the four chunks and one of the offset index
+        assertEquals(2, statistics.getPrepareStatementCount());
+        entityManager.clear();
+        assertEquals("w".repeat(3 * CHUNK + 1), documentContentService.readContent(document));
+    }
+
+    @Test
+    void findsTermsInAnyChunkAndAcrossChunkBoundaries() {
+        UUID spanning = write("x".repeat(CHUNK - 3) + "NeedleHay" + "y".repeat(3 * CHUNK));
+        UUID lastChunk = write("z".repeat(4 * CHUNK) + "needle");
+        UUID shortText = write("a needle");
+        write("x".repeat(3 * CHUNK) + "needl");
+
+        assertEquals(Set.of(spanning, lastChunk, shortText), documentContentService.findDocumentIdsContaining("NEEDLE"));
+        assertEquals(Set.of(spanning), documentContentService.findDocumentIdsContaining("xneedleh"));
+        assertTrue(documentContentService.findDocumentIdsContaining("needle!").isEmpty());
+    }
+
+    @Test
+    void findsShortTerms() {
+        UUID document = write("q".repeat(CHUNK - 1) + "Ab");
+
+        assertEquals(Set.of(document), documentContentService.findDocumentIdsContaining("ab"));
+        assertEquals(Set.of(document), documentContentService.findDocumentIdsContaining("qa"));
+        assertTrue(documentContentService.findDocumentIdsContaining("").isEmpty());
+    }
+
+    @Test
+    void stopsAtMaxResults() {
+        for (int i = 0; i < 5; i++) {
+            write("match " + "w".repeat(2 * CHUNK));
+        }
+
+        assertEquals(3, documentContentService.findDocumentIdsContaining("match").size());
+    }
+
+    private UUID write(String text) {
+        UUID documentId = UUID.randomUUID();
+        documentContentService.writeContent(documentId, text);
+        return documentId;
+    }
+}
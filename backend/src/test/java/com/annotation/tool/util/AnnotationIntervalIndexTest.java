@@ -0,0 +1,188 @@
+package com.annotation.tool.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests every query of the annotation interval index against a scan of all
+ * spans, on random spans and after random changes
+ */
+class AnnotationIntervalIndexTest {
+
+    private static final int TEXT_LENGTH = 300;
+
+    private static final Comparator<AnnotationIntervalIndex.Entry> START_ORDER =
+            Comparator.comparingInt(AnnotationIntervalIndex.Entry::getStart)
+                    .thenComparingInt(AnnotationIntervalIndex.Entry::getEnd)
+                    .thenComparing(AnnotationIntervalIndex.Entry::getId);
+
+    private static final Comparator<AnnotationIntervalIndex.Entry> END_ORDER =
+            Comparator.comparingInt(AnnotationIntervalIndex.Entry::getEnd)
+                    .thenComparingInt(AnnotationIntervalIndex.Entry::getStart)
+                    .thenComparing(AnnotationIntervalIndex.Entry::getId);
+
+    private final UUID[] labels = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+
+    @Test
+    void matchesScanOnRandomSpans() {
+        Random random = new Random(1);
+        for (int size : new int[] {0, 1, 2, 3, 7, 50, 400}) {
+            Map<UUID, AnnotationIntervalIndex.Entry> spans = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                AnnotationIntervalIndex.Entry span = randomSpan(random, newId(random));
+                spans.put(span.getId(), span);
+            }
+
+            assertMatchesScan(AnnotationIntervalIndex.build(spans.values()), spans.values(), random);
+        }
+    }
+
+    @Test
+    void matchesScanAfterChanges() {
+        Random random = new Random(2);
+        Map<UUID, AnnotationIntervalIndex.Entry> spans = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            AnnotationIntervalIndex.Entry span = randomSpan(random, newId(random));
+            spans.put(span.getId(), span);
+        }
+        AnnotationIntervalIndex index = AnnotationIntervalIndex.build(spans.values());
+
+        for (int round = 0; round < 30; round++) {
+            List<UUID> ids = new ArrayList<>(spans.keySet());
+            List<UUID> removed = new ArrayList<>();
+            List<AnnotationIntervalIndex.Entry> added = new ArrayList<>();
+            for (int i = random.nextInt(20); i > 0 && !ids.isEmpty(); i--) {
+                removed.add(ids.remove(random.nextInt(ids.size())));
+            }
+            // Updates are passed as added spans with an existing ID
+            for (int i = random.nextInt(20); i > 0 && !ids.isEmpty(); i--) {
+                added.add(randomSpan(random, ids.remove(random.nextInt(ids.size()))));
+            }
+            for (int i = random.nextInt(20); i > 0; i--) {
+                added.add(randomSpan(random, newId(random)));
+            }
+            // Removing an ID that is not indexed is ignored
+            removed.add(newId(random));
+
+            removed.forEach(spans::remove);
+            added.forEach(span -> spans.put(span.getId(), span));
+            index = index.withChanges(removed, added);
+            assertMatchesScan(index, spans.values(), random);
+
+            // Applying the same change again has no further effect
+            assertMatchesScan(index.withChanges(removed, added), spans.values(), random);
+        }
+
+        index = index.withChanges(new ArrayList<>(spans.keySet()), List.of());
+        assertMatchesScan(index, List.of(), random);
+    }
+
+    @Test
+    void ordersNearestSpansByDistanceWithCoveringSpansFirst() {
+        UUID id1 = new UUID(0, 1);
+        UUID id2 = new UUID(0, 2);
+        UUID id3 = new UUID(0, 3);
+        UUID id4 = new UUID(0, 4);
+        AnnotationIntervalIndex index = AnnotationIntervalIndex.build(List.of(
+                new AnnotationIntervalIndex.Entry(id1, labels[0], 0, 4),
+                new AnnotationIntervalIndex.Entry(id2, labels[0], 8, 12),
+                new AnnotationIntervalIndex.Entry(id3, labels[0], 13, 14),
+                new AnnotationIntervalIndex.Entry(id4, labels[0], 10, 20)));
+
+        assertEquals(List.of(id2, id4, id3, id1), ids(index.nearest(11, 10)));
+        assertEquals(List.of(id1, id2), ids(index.nearest(6, 2)));
+        assertEquals(List.of(id4, id3, id2), ids(index.nearest(14, 3)));
+    }
+
+    private void assertMatchesScan(AnnotationIntervalIndex index, Collection<AnnotationIntervalIndex.Entry> spans,
+                                   Random random) {
+        assertEquals(spans.size(), index.size());
+        for (int i = 0; i < 200; i++) {
+            int start = random.nextInt(TEXT_LENGTH + 10) - 5;
+            int end = start + random.nextInt(40);
+            int position = random.nextInt(TEXT_LENGTH + 10) - 5;
+            int limit = 1 + random.nextInt(12);
+
+            assertEquals(scan(spans, span -> span.getStart() < end && span.getEnd() > start),
+                    keys(index.overlapping(start, end)), "overlapping " + start + ", " + end);
+            assertEquals(scan(spans, span -> span.getStart() <= position && span.getEnd() > position),
+                    keys(index.at(position)), "at " + position);
+            assertEquals(scan(spans, span -> span.getStart() >= start && span.getEnd() <= end),
+                    keys(index.containedIn(start, end)), "containedIn " + start + ", " + end);
+            int emptyOrNot = random.nextBoolean() ? start : end;
+            assertEquals(scan(spans, span -> span.getStart() == start && span.getEnd() == emptyOrNot),
+                    keys(index.matching(start, emptyOrNot)), "matching " + start + ", " + emptyOrNot);
+            assertEquals(nearestByScan(spans, position, limit), keys(index.nearest(position, limit)),
+                    "nearest " + position + ", " + limit);
+        }
+    }
+
+    private List<String> scan(Collection<AnnotationIntervalIndex.Entry> spans,
+                              Predicate<AnnotationIntervalIndex.Entry> filter) {
+        return keys(spans.stream().filter(filter).sorted(START_ORDER).collect(Collectors.toList()));
+    }
+
+    /**
+     * Covering spans in start order, then the others by distance, spans ending
+     * before the position first on a tie; those in descending end order, those
+     * starting after it in start order
+     */
+    private List<String> nearestByScan(Collection<AnnotationIntervalIndex.Entry> spans, int position, int limit) {
+        List<AnnotationIntervalIndex.Entry> covering = spans.stream()
+                .filter(span -> span.getStart() <= position && span.getEnd() > position)
+                .sorted(START_ORDER)
+                .collect(Collectors.toList());
+        List<AnnotationIntervalIndex.Entry> before = spans.stream()
+                .filter(span -> span.getEnd() <= position)
+                .sorted(END_ORDER.reversed())
+                .collect(Collectors.toList());
+        List<AnnotationIntervalIndex.Entry> after = spans.stream()
+                .filter(span -> span.getStart() > position)
+                .sorted(START_ORDER)
+                .collect(Collectors.toList());
+
+        List<AnnotationIntervalIndex.Entry> nearest = new ArrayList<>(covering);
+        int i = 0;
+        int j = 0;
+        while (i < before.size() || j < after.size()) {
+            long beforeDistance = i < before.size() ? position - before.get(i).getEnd() : Long.MAX_VALUE;
+            long afterDistance = j < after.size() ? after.get(j).getStart() - position : Long.MAX_VALUE;
+            nearest.add(beforeDistance <= afterDistance ? before.get(i++) : after.get(j++));
+        }
+        return keys(nearest.subList(0, Math.min(limit, nearest.size())));
+    }
+
+    private AnnotationIntervalIndex.Entry randomSpan(Random random, UUID id) {
+        int start = random.nextInt(TEXT_LENGTH);
+        // Mostly short spans, some long ones and some empty ones
+        int length = random.nextInt(10) == 0 ? random.nextInt(TEXT_LENGTH) : random.nextInt(12);
+        return new AnnotationIntervalIndex.Entry(id, labels[random.nextInt(labels.length)], start,
+                Math.min(TEXT_LENGTH, start + length));
+    }
+
+    private static UUID newId(Random random) {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    private static List<String> keys(List<AnnotationIntervalIndex.Entry> entries) {
+        return entries.stream()
+                .map(entry -> entry.getId() + " " + entry.getLabelId() + " [" + entry.getStart() + ", " + entry.getEnd() + ")")
+                .collect(Collectors.toList());
+    }
+
+    private static List<UUID> ids(List<AnnotationIntervalIndex.Entry> entries) {
+        return entries.stream().map(AnnotationIntervalIndex.Entry::getId).collect(Collectors.toList());
+    }
+}
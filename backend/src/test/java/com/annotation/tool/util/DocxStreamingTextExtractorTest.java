@@ -0,0 +1,197 @@
+package com.annotation.tool.util;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHyperlinkRun;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRunTrackChange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the streaming .docx extractor yields byte-identical text to the
+ * POI object model
+ */
+class DocxStreamingTextExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesObjectModelText() throws Exception {
+        File docx = tempDir.resolve("mixed.docx").toFile();
+        try (XWPFDocument document = new XWPFDocument()) {
+            writeMixedContent(document, 200);
+            save(document, docx);
+        }
+
+        String streaming = DocxStreamingTextExtractor.extract(docx, newContext());
+        String usermodel = extractWithObjectModel(docx);
+
+        assertTrue(streaming.contains("CAPITALS"));
+        assertArrayEquals(usermodel.getBytes(StandardCharsets.UTF_8), streaming.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void matchesObjectModelTextOfEmptyDocument() throws Exception {
+        File docx = tempDir.resolve("empty.docx").toFile();
+        try (XWPFDocument document = new XWPFDocument()) {
+            save(document, docx);
+        }
+
+        assertArrayEquals(extractWithObjectModel(docx).getBytes(StandardCharsets.UTF_8),
+                DocxStreamingTextExtractor.extract(docx, newContext()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void refusesFootnoteReferences() throws Exception {
+        File docx = tempDir.resolve("footnote.docx").toFile();
+        try (XWPFDocument document = new XWPFDocument()) {
+            XWPFRun run = document.createParagraph().createRun();
+            run.setText("See note");
+            run.getCTR().addNewFootnoteReference();
+            save(document, docx);
+        }
+
+        assertThrows(DocxStreamingTextExtractor.UnsupportedContentException.class,
+                () -> DocxStreamingTextExtractor.extract(docx, newContext()));
+    }
+
+    /**
+     * Compare the heap used and allocated by both extractors on a large document
+     *
+     * Run with -Pbenchmarks.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkMemory() throws Exception {
+        File docx = tempDir.resolve("large.docx").toFile();
+        try (XWPFDocument document = new XWPFDocument()) {
+            writeMixedContent(document, 10_000);
+            save(document, docx);
+        }
+        System.out.printf("DOCX of %d KB%n", docx.length() / 1024);
+
+        for (int run = 0; run < 3; run++) {
+            measure("streaming", () -> DocxStreamingTextExtractor.extract(docx, newContext()));
+            measure("object model", () -> extractWithObjectModel(docx));
+        }
+    }
+
+    private static void measure(String name, Callable<String> extraction) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.gc();
+        long baseline = heapUsed();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+
+        String text = extraction.call();
+
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        long peak = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        System.out.printf("%-12s %8d chars  %5d ms  allocated %6d MB  peak heap above baseline %6d MB%n",
+                name, text.length(), elapsed / 1_000_000, allocated >> 20, Math.max(0, peak - baseline) >> 20);
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getUsage().getUsed())
+                .sum();
+    }
+
+    private static String extractWithObjectModel(File docx) {
+        FileProcessingUtil util = new FileProcessingUtil();
+        ReflectionTestUtils.setField(util, "docxStreaming", false);
+        return util.extractTextContent(docx.getPath(), "docx", newContext()).toString();
+    }
+
+    private static FileProcessingUtil.ExtractionContext newContext() {
+        return new FileProcessingUtil.ExtractionContext(Duration.ofMinutes(5), null);
+    }
+
+    private static void save(XWPFDocument document, File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            document.write(out);
+        }
+    }
+
+    /**
+     * Write paragraphs covering the run content the streaming extractor models
+     */
+    private static void writeMixedContent(XWPFDocument document, int sections) {
+        for (int section = 0; section < sections; section++) {
+            XWPFParagraph plain = document.createParagraph();
+            plain.createRun().setText("Section " + section + " with  double spaces, ümlauts, 漢字 and emoji 😀 ");
+            plain.createRun().setText("in a second run.");
+
+            XWPFParagraph formatted = document.createParagraph();
+            XWPFRun caps = formatted.createRun();
+            caps.setCapitalized(true);
+            caps.setText("capitals ");
+            XWPFRun smallCaps = formatted.createRun();
+            smallCaps.setSmallCaps(true);
+            smallCaps.setText("small capitals");
+            XWPFRun layout = formatted.createRun();
+            layout.addTab();
+            layout.setText("after tab");
+            layout.addBreak();
+            layout.setText("after break");
+            layout.addCarriageReturn();
+            layout.setText("after return");
+
+            XWPFParagraph linked = document.createParagraph();
+            linked.createRun().setText("See ");
+            XWPFHyperlinkRun link = linked.createHyperlinkRun("https://example.com/" + section);
+            link.setText("the link");
+            linked.createRun().setText(" here.");
+
+            XWPFParagraph tracked = document.createParagraph();
+            CTP ctp = tracked.getCTP();
+            ctp.addNewR().addNewT().setStringValue("Kept ");
+            CTRunTrackChange insertion = ctp.addNewIns();
+            insertion.setId(java.math.BigInteger.valueOf(section * 2L));
+            insertion.setAuthor("editor");
+            insertion.addNewR().addNewT().setStringValue("inserted ");
+            CTRunTrackChange deletion = ctp.addNewDel();
+            deletion.setId(java.math.BigInteger.valueOf(section * 2L + 1));
+            deletion.setAuthor("editor");
+            CTR deletedRun = deletion.addNewR();
+            deletedRun.addNewDelText().setStringValue("deleted ");
+            ctp.addNewR().addNewT().setStringValue("end.");
+
+            document.createParagraph();
+
+            if (section % 10 == 0) {
+                XWPFTable table = document.createTable(2, 2);
+                table.getRow(0).getCell(0).setText("Table cells are not body paragraphs");
+            }
+        }
+    }
+}
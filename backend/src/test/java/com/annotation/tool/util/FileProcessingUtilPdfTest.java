@@ -0,0 +1,151 @@
+package com.annotation.tool.util;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that stripping a PDF in parallel page ranges yields the same text as
+ * stripping it in one pass
+ */
+class FileProcessingUtilPdfTest {
+
+    private static final int PAGES = 240;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<ForkJoinPool> pools = new ArrayList<>();
+
+    @AfterEach
+    void shutdownPools() {
+        pools.forEach(ForkJoinPool::shutdown);
+    }
+
+    @Test
+    void parallelExtractionMatchesSequentialExtraction() throws IOException {
+        File pdf = writePdf(tempDir.resolve("pages.pdf").toFile(), PAGES);
+
+        String expected;
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setPageEnd(String.valueOf(FileProcessingUtil.PAGE_BREAK));
+            expected = stripper.getText(document);
+        }
+        String sequential = extract(pdf, 1, Integer.MAX_VALUE);
+        String parallel = extract(pdf, 4, 1);
+
+        assertEquals(PAGES, expected.chars().filter(c -> c == FileProcessingUtil.PAGE_BREAK).count());
+        assertEquals(expected, sequential);
+        assertEquals(expected, parallel);
+    }
+
+    @Test
+    void parallelExtractionReportsEveryPage() throws IOException {
+        File pdf = writePdf(tempDir.resolve("progress.pdf").toFile(), PAGES);
+        List<Integer> progress = new ArrayList<>();
+
+        newUtil(4, 1).extractTextContent(pdf.getPath(), "pdf",
+                new FileProcessingUtil.ExtractionContext(Duration.ofMinutes(1), (done, total) -> {
+                    synchronized (progress) {
+                        progress.add(done);
+                    }
+                }));
+
+        assertEquals(PAGES, progress.stream().mapToInt(Integer::intValue).max().orElse(0));
+    }
+
+    /**
+     * Strip a generated PDF with 1 to all available cores and print the timings
+     *
+     * Run with -Pbenchmarks.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkParallelism() throws IOException {
+        File pdf = writePdf(tempDir.resolve("benchmark.pdf").toFile(), 2000);
+        String expected = extract(pdf, 1, Integer.MAX_VALUE);
+
+        for (int parallelism = 1; parallelism <= Runtime.getRuntime().availableProcessors(); parallelism *= 2) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                long started = System.nanoTime();
+                String text = extract(pdf, parallelism, 1);
+                best = Math.min(best, System.nanoTime() - started);
+                assertEquals(expected, text);
+            }
+            System.out.printf("PDF extraction of %d pages with %d threads: %d ms%n",
+                    2000, parallelism, best / 1_000_000);
+        }
+        assertTrue(expected.length() > 0);
+    }
+
+    private String extract(File pdf, int parallelism, int parallelThreshold) {
+        return newUtil(parallelism, parallelThreshold).extractTextContent(pdf.getPath(), "pdf",
+                new FileProcessingUtil.ExtractionContext(Duration.ofMinutes(5), null)).toString();
+    }
+
+    private FileProcessingUtil newUtil(int parallelism, int parallelThreshold) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pools.add(pool);
+
+        FileProcessingUtil util = new FileProcessingUtil();
+        ReflectionTestUtils.setField(util, "pdfMaxMainMemory", DataSize.ofMegabytes(64));
+        ReflectionTestUtils.setField(util, "pdfPagesPerChunk", 10);
+        ReflectionTestUtils.setField(util, "pdfParallelThreshold", parallelThreshold);
+        ReflectionTestUtils.setField(util, "pdfExtractionPool", pool);
+        return util;
+    }
+
+    /**
+     * Write a PDF whose pages carry distinct lines, some of them with multiple
+     * columns and varying spacing, so page order and layout both matter
+     */
+    private static File writePdf(File file, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 1; page <= pages; page++) {
+                PDPage pdPage = new PDPage();
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 11);
+                    content.newLineAtOffset(50, 740);
+                    for (int line = 0; line < 40; line++) {
+                        content.showText("Page " + page + " line " + line + " text "
+                                + Integer.toHexString(page * 31 + line) + (line % 7 == 0 ? "   wide   gap" : ""));
+                        content.newLineAtOffset(0, line % 10 == 9 ? -28 : -16);
+                    }
+                    content.endText();
+                    if (page % 3 == 0) {
+                        content.beginText();
+                        content.setFont(PDType1Font.TIMES_ROMAN, 9);
+                        content.newLineAtOffset(400, 80);
+                        content.showText("Footnote of page " + page);
+                        content.endText();
+                    }
+                }
+            }
+            document.save(file);
+        }
+        return file;
+    }
+}
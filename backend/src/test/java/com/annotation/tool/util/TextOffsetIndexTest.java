@@ -0,0 +1,194 @@
+package com.annotation.tool.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the line, paragraph and page offsets of a text and the lookups of
+ * positions in them, against a line-by-line reading of random texts
+ */
+class TextOffsetIndexTest {
+
+    private static final char PAGE_BREAK = FileProcessingUtil.PAGE_BREAK;
+
+    // Characters per stored content chunk
+    private static final int CHUNK = 16384;
+
+    @Test
+    void splitsLinesAtEveryKindOfBreak() {
+        TextOffsetIndex index = TextOffsetIndex.build("a\nbb\r\nc\rd" + PAGE_BREAK + "e");
+
+        assertEquals(5, index.getLineCount());
+        assertEquals(List.of(0, 2, 6, 8, 10), lineStarts(index));
+        // The \r of \r\n belongs to its line, as does each break
+        assertEquals(1, index.lineOf(4));
+        assertEquals(1, index.lineOf(5));
+        assertEquals(2, index.pageOf(10) + 1);
+    }
+
+    @Test
+    void startsNoLineOrPageAfterBreakEndingTheText() {
+        TextOffsetIndex index = TextOffsetIndex.build("one\ntwo\n");
+        assertEquals(2, index.getLineCount());
+        assertEquals(1, index.lineOf(8));
+
+        TextOffsetIndex paged = TextOffsetIndex.build("page" + PAGE_BREAK);
+        assertEquals(1, paged.getPageCount());
+        assertEquals(0, paged.pageStart(0));
+        assertEquals(5, paged.pageEnd(0));
+    }
+
+    @Test
+    void indexesEmptyTextAsOneLineAndPageWithoutParagraphs() {
+        TextOffsetIndex index = TextOffsetIndex.build("");
+
+        assertEquals(0, index.getTextLength());
+        assertEquals(1, index.getLineCount());
+        assertEquals(1, index.getPageCount());
+        assertEquals(0, index.getParagraphCount());
+        assertEquals(0, index.lineOf(0));
+        assertEquals(-1, index.paragraphOf(0));
+        assertEquals(0, index.pageEnd(0));
+    }
+
+    @Test
+    void startsParagraphsAfterBlankLinesAndPageBreaks() {
+        String text = "  \nfirst\nstill first\n \t\n\nsecond" + PAGE_BREAK + "third\n\n";
+        TextOffsetIndex index = TextOffsetIndex.build(text);
+
+        assertEquals(3, index.getParagraphCount());
+        assertEquals(-1, index.paragraphOf(0));
+        assertEquals(0, index.paragraphOf(text.indexOf("first")));
+        assertEquals(0, index.paragraphOf(text.indexOf("still")));
+        // Blank lines belong to the paragraph before them
+        assertEquals(0, index.paragraphOf(text.indexOf(" \t")));
+        assertEquals(1, index.paragraphOf(text.indexOf("second")));
+        assertEquals(2, index.paragraphOf(text.indexOf("third")));
+        assertEquals(2, index.paragraphOf(text.length()));
+    }
+
+    @Test
+    void keepsLineBreaksStraddlingChunkBoundaries() {
+        StringBuilder text = new StringBuilder("x".repeat(CHUNK - 1)).append("\r\n");
+        text.append("y".repeat(CHUNK - 2)).append('\n').append(PAGE_BREAK);
+        text.append("z".repeat(CHUNK)).append('\r');
+        TextOffsetIndex index = TextOffsetIndex.build(text);
+
+        assertEquals(List.of(0, CHUNK + 1, 2 * CHUNK, 2 * CHUNK + 1), lineStarts(index));
+        assertEquals(0, index.lineOf(CHUNK - 1));
+        assertEquals(0, index.lineOf(CHUNK));
+        assertEquals(1, index.lineOf(CHUNK + 1));
+        assertEquals(2, index.lineOf(2 * CHUNK));
+        assertEquals(1, index.pageOf(2 * CHUNK + 1));
+        assertEquals(2 * CHUNK + 1, index.pageStart(1));
+        assertEquals(text.length(), index.pageEnd(1));
+        assertEquals(3, index.lineOf(text.length()));
+    }
+
+    @Test
+    void matchesLineByLineReadingOfRandomTexts() {
+        Random random = new Random(3);
+        char[] alphabet = {'a', 'b', ' ', '\t', '\n', '\r', PAGE_BREAK};
+        for (int round = 0; round < 300; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(round < 290 ? 60 : 3 * CHUNK); i > 0; i--) {
+                text.append(alphabet[random.nextInt(random.nextBoolean() ? 2 : alphabet.length)]);
+            }
+            assertMatchesReading(text.toString());
+        }
+    }
+
+    @Test
+    void encodesOffsetsAsVarintDeltas() {
+        int[] offsets = {0, 1, 127, 128, 255, 16_384, 2_097_151, 2_097_152, 300_000_000, Integer.MAX_VALUE};
+
+        assertArrayEquals(offsets, TextOffsetIndex.decode(TextOffsetIndex.encode(offsets)));
+        assertArrayEquals(new int[0], TextOffsetIndex.decode(TextOffsetIndex.encode(new int[0])));
+        assertEquals(3, TextOffsetIndex.encode(new int[] {0, 1, 2}).length);
+    }
+
+    /**
+     * Compare the index with the text split into lines, each with the break ending it
+     */
+    private void assertMatchesReading(String text) {
+        List<Integer> lineStarts = new ArrayList<>();
+        List<Integer> paragraphStarts = new ArrayList<>();
+        List<Integer> pageStarts = new ArrayList<>();
+        lineStarts.add(0);
+        pageStarts.add(0);
+        boolean previousBlank = true;
+        int start = 0;
+        while (start < text.length() || start == 0) {
+            int end = start;
+            while (end < text.length() && !isBreak(text, end)) {
+                end++;
+            }
+            boolean blank = text.substring(start, end).isBlank();
+            if (!blank && previousBlank) {
+                paragraphStarts.add(start);
+            }
+            if (end >= text.length()) {
+                break;
+            }
+            previousBlank = blank || text.charAt(end) == PAGE_BREAK;
+            start = end + 1;
+            if (start < text.length()) {
+                lineStarts.add(start);
+                if (text.charAt(end) == PAGE_BREAK) {
+                    pageStarts.add(start);
+                }
+            }
+        }
+
+        TextOffsetIndex index = TextOffsetIndex.build(text);
+        TextOffsetIndex decoded = new TextOffsetIndex(text.length(),
+                TextOffsetIndex.decode(index.encodeLineStarts()),
+                TextOffsetIndex.decode(index.encodeParagraphStarts()),
+                TextOffsetIndex.decode(index.encodePageStarts()));
+        for (TextOffsetIndex candidate : new TextOffsetIndex[] {index, decoded}) {
+            assertEquals(lineStarts.size(), candidate.getLineCount(), text);
+            assertEquals(paragraphStarts.size(), candidate.getParagraphCount(), text);
+            assertEquals(pageStarts.size(), candidate.getPageCount(), text);
+            // Lines, paragraphs and pages started at or before the offset, counted as it advances
+            int lines = 0;
+            int paragraphs = 0;
+            int pages = 0;
+            for (int offset = 0; offset <= text.length(); offset++) {
+                lines += countAt(lineStarts, lines, offset);
+                paragraphs += countAt(paragraphStarts, paragraphs, offset);
+                pages += countAt(pageStarts, pages, offset);
+                int line = candidate.lineOf(offset);
+                assertEquals(lines - 1, line);
+                assertTrue(candidate.lineStart(line) <= offset);
+                assertEquals(paragraphs - 1, candidate.paragraphOf(offset));
+                int page = candidate.pageOf(offset);
+                assertEquals(pages - 1, page);
+                assertTrue(candidate.pageStart(page) <= offset && offset <= candidate.pageEnd(page));
+            }
+        }
+    }
+
+    private static boolean isBreak(String text, int i) {
+        char c = text.charAt(i);
+        return c == '\n' || c == PAGE_BREAK || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'));
+    }
+
+    private static int countAt(List<Integer> starts, int next, int offset) {
+        return next < starts.size() && starts.get(next) == offset ? 1 : 0;
+    }
+
+    private static List<Integer> lineStarts(TextOffsetIndex index) {
+        List<Integer> starts = new ArrayList<>();
+        for (int line = 0; line < index.getLineCount(); line++) {
+            starts.add(index.lineStart(line));
+        }
+        return starts;
+    }
+}
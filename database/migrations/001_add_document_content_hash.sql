@@ -0,0 +1,2 @@
+-- SHA-256 of the uploaded file, computed while the upload is streamed to disk
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
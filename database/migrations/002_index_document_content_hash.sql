@@ -0,0 +1,3 @@
+-- Lookups of already extracted documents and shared-file reference counts
+CREATE INDEX IF NOT EXISTS idx_documents_content_hash ON documents (content_hash);
+CREATE INDEX IF NOT EXISTS idx_documents_file_path ON documents (file_path);
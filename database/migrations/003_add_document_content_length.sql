@@ -0,0 +1,3 @@
+-- Length of the extracted text, so content windows can be served without reading the whole value
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS content_length INTEGER;
+UPDATE documents SET content_length = length(content) WHERE content IS NOT NULL AND content_length IS NULL;
@@ -0,0 +1,6 @@
+-- Keyset pagination of document listings: every sort order ends with the id tiebreaker
+CREATE INDEX IF NOT EXISTS idx_documents_upload_date_id ON documents (upload_date, id);
+CREATE INDEX IF NOT EXISTS idx_documents_name_id ON documents (name, id);
+CREATE INDEX IF NOT EXISTS idx_documents_file_type_upload_date_id ON documents (file_type, upload_date, id);
+-- Annotation counts per listed document and the without-annotations filter
+CREATE INDEX IF NOT EXISTS idx_annotations_document_id ON annotations (document_id);
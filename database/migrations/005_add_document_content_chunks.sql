@@ -0,0 +1,12 @@
+-- Extracted text in deflate-compressed chunks of 16384 characters, so content windows
+-- only read the chunks they touch. The chunks are compressed already, so keep them
+-- out of TOAST compression.
+CREATE TABLE IF NOT EXISTS document_content_chunks (
+    document_id UUID NOT NULL REFERENCES documents(id) ON DELETE CASCADE,
+    chunk_index INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    PRIMARY KEY (document_id, chunk_index)
+);
+ALTER TABLE document_content_chunks ALTER COLUMN data SET STORAGE EXTERNAL;
+-- documents.content is kept as legacy storage: the application moves its text into
+-- chunks in the background after startup and clears the column document by document.
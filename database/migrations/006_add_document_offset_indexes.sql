@@ -0,0 +1,10 @@
+-- Line, paragraph and page start offsets of each document's text, as varint-delta
+-- encoded int arrays. Documents extracted before this table existed get their index
+-- built on first lookup.
+CREATE TABLE IF NOT EXISTS document_offset_indexes (
+    document_id UUID PRIMARY KEY REFERENCES documents(id) ON DELETE CASCADE,
+    text_length INTEGER NOT NULL,
+    line_starts BYTEA NOT NULL,
+    paragraph_starts BYTEA NOT NULL,
+    page_starts BYTEA NOT NULL
+);
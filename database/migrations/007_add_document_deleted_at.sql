@@ -0,0 +1,9 @@
+-- Soft deletion of documents: a deleted document is hidden at once and its rows are
+-- purged in the background in batches. The partial index keeps the purge queue
+-- lookup independent of the number of live documents.
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+CREATE INDEX IF NOT EXISTS idx_documents_deleted_at ON documents (deleted_at) WHERE deleted_at IS NOT NULL;
+-- Set-based deletes of a label's annotations and relationships (the unique constraint
+-- on (source_label_id, target_label_id) already covers the source side)
+CREATE INDEX IF NOT EXISTS idx_annotations_label_id ON annotations (label_id);
+CREATE INDEX IF NOT EXISTS idx_label_relationships_target_label_id ON label_relationships (target_label_id);
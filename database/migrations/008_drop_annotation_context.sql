@@ -0,0 +1,5 @@
+-- Annotation context is cut from the document text when annotations are read, at a
+-- length chosen per request, so the stored copies are dropped. The selected text stays
+-- stored for annotation text search.
+ALTER TABLE annotations DROP COLUMN IF EXISTS context_before;
+ALTER TABLE annotations DROP COLUMN IF EXISTS context_after;
@@ -0,0 +1,14 @@
+-- Keyset pagination of annotation listings: each filter and sort order has an index ending with the id tiebreaker
+CREATE INDEX IF NOT EXISTS idx_annotations_created_at_id ON annotations (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_annotations_start_position_id ON annotations (start_position, id);
+CREATE INDEX IF NOT EXISTS idx_annotations_label_id_created_at_id ON annotations (label_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_annotations_label_id_start_position_id ON annotations (label_id, start_position, id);
+CREATE INDEX IF NOT EXISTS idx_annotations_document_id_start_position_id ON annotations (document_id, start_position, id);
+CREATE INDEX IF NOT EXISTS idx_annotations_document_id_created_at_id ON annotations (document_id, created_at, id);
+-- A document may hold 100k annotations, so filtering its index by label would not keep pages of a rare label cheap
+CREATE INDEX IF NOT EXISTS idx_annotations_document_label_start_position_id ON annotations (document_id, label_id, start_position, id);
+CREATE INDEX IF NOT EXISTS idx_annotations_document_label_created_at_id ON annotations (document_id, label_id, created_at, id);
+-- The (document_id, ...) and (label_id, ...) indexes above also serve lookups and set-based
+-- deletes by document or label alone
+DROP INDEX IF EXISTS idx_annotations_document_id;
+DROP INDEX IF EXISTS idx_annotations_label_id;
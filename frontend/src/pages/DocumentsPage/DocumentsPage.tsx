@@ -1,7 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { Link } from 'react-router-dom';
 import { apiService } from '../../services/api';
-import { Document } from '../../types';
+import { DocumentSummary } from '../../types';
 import {
   PageContainer,
   PageHeader,
@@ -23,8 +23,10 @@ import {
 } from './DocumentsPage.styles';
 
 const DocumentsPage: React.FC = () => {
-  const [documents, setDocuments] = useState<Document[]>([]);
+  const [documents, setDocuments] = useState<DocumentSummary[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const [uploading, setUploading] = useState(false);
 
@@ -35,8 +37,9 @@ const DocumentsPage: React.FC = () => {
   const loadDocuments = async () => {
     try {
       setLoading(true);
-      const docs = await apiService.getDocuments();
-      setDocuments(docs);
+      const page = await apiService.getDocuments();
+      setDocuments(page.items);
+      setNextCursor(page.nextCursor);
     } catch (err) {
       setError(err instanceof Error ? err.message : 'Failed to load documents');
     } finally {
@@ -44,6 +47,21 @@ const DocumentsPage: React.FC = () => {
     }
   };
 
+  const loadMoreDocuments = async () => {
+    if (!nextCursor || loadingMore) return;
+
+    try {
+      setLoadingMore(true);
+      const page = await apiService.getDocuments(nextCursor);
+      setDocuments(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      setError(err instanceof Error ? err.message : 'Failed to load documents');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const handleFileUpload = async (event: React.ChangeEvent<HTMLInputElement>) => {
     const file = event.target.files?.[0];
     if (!file) return;
@@ -173,6 +191,14 @@ const DocumentsPage: React.FC = () => {
         ))}
       </DocumentGrid>
 
+      {nextCursor && (
+        <div style={{ textAlign: 'center', padding: '1rem' }}>
+          <ActionButton onClick={loadMoreDocuments}>
+            {loadingMore ? 'Зареждане...' : 'Зареди още'}
+          </ActionButton>
+        </div>
+      )}
+
       {documents.length === 0 && !loading && (
         <div style={{ textAlign: 'center', padding: '2rem', color: '#6b7280' }}>
           Няма качени документи. Качете първия си документ за анотиране.
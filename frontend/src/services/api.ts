@@ -4,6 +4,14 @@ import {
   CreateLabelRequest,
   UpdateLabelRequest,
   Document,
+  DocumentContentWindow,
+  TextPosition,
+  PageRange,
+  DocumentSummary,
+  DocumentSortField,
+  AnnotationSortField,
+  CursorPage,
+  ExtractionJob,
   Annotation,
   CreateAnnotationRequest,
   UpdateAnnotationRequest,
@@ -68,8 +76,15 @@ class ApiService {
   }
 
   // Documents API
-  async getDocuments(): Promise<Document[]> {
-    const response: AxiosResponse<Document[]> = await this.api.get('/documents');
+  async getDocuments(
+    cursor?: string,
+    limit?: number,
+    sort: DocumentSortField = 'uploadDate',
+    direction: 'asc' | 'desc' = 'desc'
+  ): Promise<CursorPage<DocumentSummary>> {
+    const response: AxiosResponse<CursorPage<DocumentSummary>> = await this.api.get('/documents', {
+      params: { cursor, limit, sort, direction },
+    });
     return response.data;
   }
 
@@ -78,17 +93,62 @@ class ApiService {
     return response.data;
   }
 
+  async getDocumentContent(id: string, offset = 0, length?: number): Promise<DocumentContentWindow> {
+    const response: AxiosResponse<DocumentContentWindow> = await this.api.get(`/documents/${id}/content`, {
+      params: { offset, length },
+    });
+    return response.data;
+  }
+
+  async getDocumentViewport(id: string, offset = 0, length?: number): Promise<DocumentContentWindow> {
+    const response: AxiosResponse<DocumentContentWindow> = await this.api.get(`/documents/${id}/viewport`, {
+      params: { offset, length },
+    });
+    return response.data;
+  }
+
+  getOriginalFileUrl(id: string): string {
+    return `${this.api.defaults.baseURL}/documents/${id}/file`;
+  }
+
+  async getTextPosition(id: string, offset: number): Promise<TextPosition> {
+    const response: AxiosResponse<TextPosition> = await this.api.get(`/documents/${id}/position`, {
+      params: { offset },
+    });
+    return response.data;
+  }
+
+  async getPageRange(id: string, page: number): Promise<PageRange> {
+    const response: AxiosResponse<PageRange> = await this.api.get(`/documents/${id}/pages/${page}`);
+    return response.data;
+  }
+
   async uploadDocument(file: File, title?: string, description?: string): Promise<Document> {
     const formData = new FormData();
     formData.append('file', file);
     if (title) formData.append('title', title);
     if (description) formData.append('description', description);
 
-    const response: AxiosResponse<Document> = await this.api.post('/documents/upload', formData, {
+    const response: AxiosResponse<ExtractionJob> = await this.api.post('/documents/upload', formData, {
       headers: {
         'Content-Type': 'multipart/form-data',
       },
     });
+
+    // Text extraction runs in the background; wait for the job before loading the document
+    let job = response.data;
+    while (job.status === 'QUEUED' || job.status === 'RUNNING') {
+      await new Promise(resolve => setTimeout(resolve, 1000));
+      job = await this.getExtractionJob(job.id);
+    }
+    if (job.status === 'FAILED') {
+      throw new Error(job.error || 'Text extraction failed');
+    }
+    return this.getDocumentById(job.documentId);
+  }
+
+  async getExtractionJob(id: string): Promise<ExtractionJob> {
+    const response: AxiosResponse<ExtractionJob> = await this.api.get(`/documents/jobs/${id}`);
     return response.data;
   }
 
@@ -97,8 +157,15 @@ class ApiService {
   }
 
   // Annotations API
-  async getAnnotations(): Promise<Annotation[]> {
-    const response: AxiosResponse<Annotation[]> = await this.api.get('/annotations');
+  async getAnnotations(
+    cursor?: string,
+    limit?: number,
+    sort: AnnotationSortField = 'createdAt',
+    direction: 'asc' | 'desc' = 'desc'
+  ): Promise<CursorPage<Annotation>> {
+    const response: AxiosResponse<CursorPage<Annotation>> = await this.api.get('/annotations', {
+      params: { cursor, limit, sort, direction },
+    });
     return response.data;
   }
 
@@ -108,8 +175,17 @@ class ApiService {
   }
 
   async getAnnotationsByDocument(documentId: string): Promise<Annotation[]> {
-    const response: AxiosResponse<Annotation[]> = await this.api.get(`/annotations/document/${documentId}`);
-    return response.data;
+    // Follow the cursor through every page, in position order
+    const annotations: Annotation[] = [];
+    let cursor: string | undefined;
+    do {
+      const response: AxiosResponse<CursorPage<Annotation>> = await this.api.get(`/annotations/document/${documentId}`, {
+        params: { cursor, limit: 1000 },
+      });
+      annotations.push(...response.data.items);
+      cursor = response.data.nextCursor ?? undefined;
+    } while (cursor);
+    return annotations;
   }
 
   async createAnnotation(annotationData: CreateAnnotationRequest): Promise<Annotation> {
@@ -35,12 +35,79 @@ export interface Document {
   originalFilename: string;
   fileType: string;
   content: string;
+  contentLength?: number;
   fileSize: number;
   uploadDate?: string;
   annotations?: Annotation[];
   annotationCount: number;
 }
 
+export interface DocumentSummary {
+  id: string;
+  name: string;
+  originalFilename: string;
+  fileType: string;
+  fileSize: number;
+  contentLength?: number;
+  uploadDate?: string;
+  annotationCount: number;
+}
+
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor: string | null;
+  hasMore: boolean;
+}
+
+export type DocumentSortField = 'uploadDate' | 'name' | 'fileType';
+
+export type AnnotationSortField = 'createdAt' | 'startPosition';
+
+export interface DocumentContentWindow {
+  documentId: string;
+  documentName: string;
+  offset: number;
+  length: number;
+  totalLength: number;
+  content: string;
+  annotations?: Annotation[];
+}
+
+export interface TextPosition {
+  documentId: string;
+  offset: number;
+  line: number;
+  column: number;
+  paragraph: number | null;
+  page: number;
+  lineCount: number;
+  paragraphCount: number;
+  pageCount: number;
+}
+
+export interface PageRange {
+  documentId: string;
+  page: number;
+  startOffset: number;
+  endOffset: number;
+  pageCount: number;
+}
+
+export type ExtractionJobStatus = 'QUEUED' | 'RUNNING' | 'DONE' | 'FAILED';
+
+export interface ExtractionJob {
+  id: string;
+  documentId: string;
+  documentName: string;
+  status: ExtractionJobStatus;
+  error?: string;
+  pagesProcessed?: number;
+  totalPages?: number;
+  createdAt: string;
+  startedAt?: string;
+  completedAt?: string;
+}
+
 export interface DocumentUploadRequest {
   file: File;
   title?: string;